@@ -0,0 +1,3 @@
+#!/bin/bash
+# Lets the replica containers stream WAL as the superuser of the image.
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,13 @@
+#!/bin/bash
+# Hot standby of $PRIMARY_HOST: cloned with pg_basebackup on the first start, streaming afterwards.
+set -e
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    until pg_basebackup --host="$PRIMARY_HOST" --username="$PRIMARY_USER" --pgdata="$PGDATA" \
+            --write-recovery-conf --wal-method=stream --checkpoint=fast; do
+        echo "Waiting for $PRIMARY_HOST"
+        rm -rf "${PGDATA:?}"/*
+        sleep 2
+    done
+    chmod 0700 "$PGDATA"
+fi
+exec postgres
@@ -0,0 +1,50 @@
+package ru.practicum.ewm.event;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import ru.practicum.ewm.category.model.Category;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventState;
+import ru.practicum.ewm.event.model.Location;
+import ru.practicum.ewm.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic published events shaped like the ones the API tests create.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class EventFixtures {
+
+    public static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    public static List<Event> events(int count) {
+        List<Event> events = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            events.add(event(id));
+        }
+        return events;
+    }
+
+    public static Event event(long id) {
+        return Event.builder()
+                .id(id)
+                .annotation("Annotation of event " + id + " long enough to pass the validation rules")
+                .description("Description of event " + id + " ".repeat(200))
+                .category(Category.builder().id(id % 10 + 1).name("Category " + (id % 10 + 1)).build())
+                .eventDate(NOW.plusDays(id % 30 + 1).plusMinutes(id))
+                .location(Location.builder().lat(55.75f).lon(37.61f).build())
+                .paid(id % 2 == 0)
+                .participantLimit((int) (id % 50))
+                .requestModeration(Boolean.TRUE)
+                .title("Event " + id)
+                .createdOn(NOW.minusDays(id % 60).minusSeconds(id))
+                .publishedOn(NOW.minusDays(id % 30))
+                .state(EventState.PUBLISHED)
+                .initiator(User.builder().id(id % 100 + 1).name("User " + (id % 100 + 1))
+                        .email("user" + (id % 100 + 1) + "@example.com").build())
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.ewm.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.practicum.ewm.event.model.Event;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of a page of events, as done by every public and admin event listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventMapperBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private List<Event> events;
+
+    @Setup
+    public void setUp() {
+        events = EventFixtures.events(size);
+    }
+
+    @Benchmark
+    public void toShortDto(Blackhole blackhole) {
+        for (Event event : events) {
+            blackhole.consume(EventMapper.toShortDto(event, 5, 42));
+        }
+    }
+
+    @Benchmark
+    public void toFullDto(Blackhole blackhole) {
+        for (Event event : events) {
+            blackhole.consume(EventMapper.toFullDto(event, 5, 42));
+        }
+    }
+}
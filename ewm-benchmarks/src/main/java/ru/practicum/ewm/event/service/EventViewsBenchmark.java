@@ -0,0 +1,79 @@
+package ru.practicum.ewm.event.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.event.EventFixtures;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.stats.StatsService;
+import ru.practicum.ewm.stats.ViewCountReplica;
+import ru.practicum.ewm.stats.ViewReplicationProperties;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Building the uri list and mapping the stats response back to event ids, with the stats server
+ * replaced by a canned response so only the main service side is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventViewsBenchmark {
+
+    @Param({"10", "1000"})
+    private int size;
+
+    private EventServiceImpl service;
+    private Map<Long, Event> events;
+
+    @Setup
+    public void setUp() {
+        events = EventFixtures.events(size).stream()
+                .collect(Collectors.toMap(Event::getId, Function.identity()));
+        Map<String, Long> stats = new HashMap<>();
+        events.keySet().forEach(id -> stats.put("/events/" + id, id * 3));
+        // never started, so every read takes the stats server path
+        ViewReplicationProperties replication = new ViewReplicationProperties();
+        replication.setEnabled(false);
+        service = new EventServiceImpl(null, null, null, null, new CannedStatsService(stats),
+                new ViewCountReplica(null, null, replication, new SimpleMeterRegistry()), null, null, null, null);
+    }
+
+    @Benchmark
+    public Map<Long, Long> views() {
+        return service.views(events);
+    }
+
+    private static final class CannedStatsService extends StatsService {
+
+        private final Map<String, Long> stats;
+
+        CannedStatsService(Map<String, Long> stats) {
+            super(null, null);
+            this.stats = stats;
+        }
+
+        @Override
+        public Map<String, Long> getViews(List<String> uris, LocalDateTime start, LocalDateTime end) {
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.ewm.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateTimeBenchmark {
+
+    private final LocalDateTime dateTime = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+    private final String text = "2024-05-01 12:30:15";
+
+    @Benchmark
+    public String format() {
+        return DateTimeUtils.FORMATTER.format(dateTime);
+    }
+
+    @Benchmark
+    public LocalDateTime parse() {
+        return LocalDateTime.parse(text, DateTimeUtils.FORMATTER);
+    }
+
+    /**
+     * The form used by {@code EventMapper.toEntity}, resolving through a {@code TemporalQuery}.
+     */
+    @Benchmark
+    public LocalDateTime parseWithQuery() {
+        return DateTimeUtils.FORMATTER.parse(text, LocalDateTime::from);
+    }
+}
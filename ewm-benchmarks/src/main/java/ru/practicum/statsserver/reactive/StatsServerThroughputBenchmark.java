@@ -0,0 +1,158 @@
+package ru.practicum.statsserver.reactive;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import ru.practicum.statsclient.ReactiveStatsClient;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsserver.StatsServerApplication;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second of the servlet and the reactive stats server at a fixed number of requests
+ * in flight, sent by {@link ReactiveStatsClient} from the same JVM. The fork sees two cores, so
+ * the stacks compete for the same small CPU budget instead of scaling out with threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-XX:ActiveProcessorCount=2")
+public class StatsServerThroughputBenchmark {
+
+    private static final int REQUESTS = 1024;
+    private static final int URIS = 1000;
+    private static final int SEED_HITS = 10_000;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Param({"servlet", "reactive"})
+    private String stack;
+
+    /**
+     * Requests kept in flight by the client.
+     */
+    @Param({"64", "512"})
+    private int concurrency;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private ConnectionProvider connections;
+    private ReactiveStatsClient client;
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        postgres = EmbeddedPostgres.builder()
+                .setServerConfig("max_connections", "100")
+                .start();
+        List<String> args = new ArrayList<>(List.of(
+                // the main service puts its own application.yaml on the same classpath
+                "--spring.config.location=" + configLocation(),
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                // measures the stacks, not the instrumentation only the servlet one has
+                "--query-profiler.enabled=false",
+                "--management.tracing.sampling.probability=0"));
+        if (stack.equals("reactive")) {
+            args.add("--spring.profiles.active=reactive");
+        }
+        context = new SpringApplicationBuilder(StatsServerApplication.class)
+                .run(args.toArray(String[]::new));
+        String port = Objects.requireNonNull(context.getEnvironment().getProperty("local.server.port"));
+
+        // the default pool of 16 connections would queue most of the requests on the client side
+        connections = ConnectionProvider.builder("stats-benchmark")
+                .maxConnections(concurrency)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        client = new ReactiveStatsClient(WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build());
+
+        end = LocalDateTime.now().plusDays(1);
+        start = end.minusDays(30);
+        Flux.range(0, SEED_HITS)
+                .flatMap(i -> client.hit(randomHit()), 64)
+                .blockLast();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        connections.dispose();
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void hit() {
+        Flux.range(0, REQUESTS)
+                .flatMap(i -> client.hit(randomHit()), concurrency)
+                .blockLast();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void getStats() {
+        Flux.range(0, REQUESTS)
+                .flatMap(i -> client.getStats(start, end, randomUris(), true), concurrency)
+                .blockLast();
+    }
+
+    private EndpointHit randomHit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int ip = random.nextInt(5000);
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + random.nextInt(URIS))
+                .ip("10.0." + (ip >> 8) + "." + (ip & 0xff))
+                .timestamp(FORMATTER.format(LocalDateTime.now()))
+                .build();
+    }
+
+    private List<String> randomUris() {
+        return ThreadLocalRandom.current().ints(10, 0, URIS)
+                .mapToObj(i -> "/events/" + i)
+                .toList();
+    }
+
+    private static String configLocation() {
+        String location = StatsServerApplication.class.getProtectionDomain().getCodeSource().getLocation().toString();
+        return location.endsWith(".jar") ? "jar:" + location + "!/" : location;
+    }
+}
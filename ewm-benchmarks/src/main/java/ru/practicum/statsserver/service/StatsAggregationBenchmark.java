@@ -0,0 +1,157 @@
+package ru.practicum.statsserver.service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.StatsServerApplication;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.HitStore;
+import ru.practicum.statsserver.storage.StorageType;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StatsService#getStats} over a seeded hit set, against an embedded PostgreSQL for the JPA
+ * store and a temporary directory for the columnar one. The whole server context is started, so
+ * the measured path is the one behind {@code GET /stats}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsAggregationBenchmark {
+
+    private static final int URIS = 1000;
+    private static final int IPS = 5000;
+    private static final int BATCH = 10_000;
+
+    @Param({"JPA", "COLUMNAR"})
+    private StorageType storage;
+
+    @Param({"100000"})
+    private int hits;
+
+    /**
+     * Number of uris in the filter, 0 requests stats for all of them.
+     */
+    @Param({"0", "10"})
+    private int filter;
+
+    @Param({"false", "true"})
+    private boolean unique;
+
+    /**
+     * Whether the bucket cache of the service is on; it only serves requests with uris.
+     */
+    @Param({"false", "true"})
+    private boolean cache;
+
+    private EmbeddedPostgres postgres;
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private StatsService service;
+    private LocalDateTime start;
+    private List<String> uris;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> args = new ArrayList<>(List.of(
+                // the main service puts its own application.yaml on the same classpath
+                "--spring.config.location=" + configLocation(),
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--stats.cache.enabled=" + cache));
+        if (storage == StorageType.JPA) {
+            postgres = EmbeddedPostgres.start();
+            args.add("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"));
+            args.add("--spring.datasource.username=postgres");
+            args.add("--spring.datasource.password=postgres");
+        } else {
+            directory = Files.createTempDirectory("stats-benchmark");
+            args.add("--spring.profiles.active=columnar");
+            args.add("--stats.storage.columnar.directory=" + directory);
+        }
+        context = new SpringApplicationBuilder(StatsServerApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+        service = context.getBean(StatsService.class);
+
+        start = LocalDateTime.now().minusDays(30);
+        seed(context.getBean(HitStore.class));
+        uris = filter == 0 ? null : new Random(7).ints(filter, 0, URIS)
+                .mapToObj(i -> "/events/" + i)
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        if (postgres != null) {
+            postgres.close();
+        }
+        if (directory != null) {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public List<ViewStats> getStats() {
+        // the window ends now, as in the views lookups of the main service
+        return service.getStats(start, LocalDateTime.now(), uris, unique);
+    }
+
+    private static String configLocation() {
+        String location = StatsServerApplication.class.getProtectionDomain().getCodeSource().getLocation().toString();
+        return location.endsWith(".jar") ? "jar:" + location + "!/" : location;
+    }
+
+    private void seed(HitStore store) throws UnknownHostException {
+        Random random = new Random(42);
+        long span = Duration.ofDays(30).toSeconds();
+        List<HitRecord> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < hits; i++) {
+            // skewed towards low event ids, like real listings where a few events get most views
+            int uri = (int) (URIS * Math.pow(random.nextDouble(), 2));
+            int ip = random.nextInt(IPS);
+            InetAddress address = InetAddress.getByAddress(new byte[]{10, 0, (byte) (ip >> 8), (byte) ip});
+            batch.add(new HitRecord("ewm-main-service", "/events/" + uri, address,
+                    start.plusSeconds(random.nextLong(span))));
+            if (batch.size() == BATCH) {
+                store.saveAll(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            store.saveAll(batch);
+        }
+    }
+}
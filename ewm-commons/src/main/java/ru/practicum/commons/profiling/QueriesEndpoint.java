@@ -0,0 +1,44 @@
+package ru.practicum.commons.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@code /actuator/queries}: the most expensive normalized statements since startup or the last
+ * reset, ordered by {@code total} (default), {@code max} or {@code count}, and statement counts
+ * per route.
+ */
+@Endpoint(id = "queries")
+@RequiredArgsConstructor
+public class QueriesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final QueryProfiler profiler;
+
+    @ReadOperation
+    public QueriesReport queries(@Nullable String orderBy, @Nullable Integer limit) {
+        ToLongFunction<StatementStats> metric = switch (orderBy == null ? "total" : orderBy) {
+            case "max" -> StatementStats::maxNanos;
+            case "count" -> StatementStats::count;
+            default -> StatementStats::totalNanos;
+        };
+        return new QueriesReport(profiler.statements(metric, limit == null ? DEFAULT_LIMIT : limit),
+                profiler.endpoints());
+    }
+
+    @DeleteOperation
+    public void reset() {
+        profiler.reset();
+    }
+
+    public record QueriesReport(List<QueryProfiler.StatementView> statements,
+                                List<QueryProfiler.EndpointView> endpoints) {
+    }
+}
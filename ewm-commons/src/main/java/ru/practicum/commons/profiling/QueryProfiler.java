@@ -0,0 +1,225 @@
+package ru.practicum.commons.profiling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Listener of the proxied data sources: aggregates every statement by its normalized text, counts
+ * statements of the request being served and logs slow ones with their parameters and call site.
+ * The time a request holds a pooled connection is exported as {@code db.connection.hold} per route.
+ */
+@Slf4j
+public class QueryProfiler implements QueryExecutionListener, MethodExecutionListener {
+
+    static final String OTHER_STATEMENTS = "<other statements>";
+
+    private static final String START = QueryProfiler.class.getName() + ".start";
+    private static final int MAX_PARAMETER_LENGTH = 100;
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    private final QueryProfilerProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry registry of the connection hold timers, may be {@code null}
+     */
+    public QueryProfiler(QueryProfilerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+        if (executionContext.getTarget() instanceof Connection
+                && executionContext.getMethod().getName().equals("close")) {
+            RequestQueries.connectionClosed();
+        }
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (executionContext.getTarget() instanceof DataSource
+                && executionContext.getMethod().getName().equals("getConnection")
+                && executionContext.getThrown() == null) {
+            RequestQueries.connectionOpened();
+        }
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = execInfo.getCustomValue(START, Long.class);
+        if (start == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        RequestQueries.record(nanos);
+        for (QueryInfo query : queryInfoList) {
+            // a batch reports one duration for all its statements, it is attributed to each of them
+            statsOf(query.getQuery()).record(nanos);
+        }
+        if (nanos >= properties.getSlowQueryThreshold().toNanos()) {
+            logSlowQuery(nanos, queryInfoList);
+        }
+    }
+
+    /**
+     * Statements with the largest value of {@code metric}, most expensive first.
+     */
+    List<StatementView> statements(ToLongFunction<StatementStats> metric, int limit) {
+        return statements.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, StatementStats> e) -> metric.applyAsLong(e.getValue()))
+                        .reversed())
+                .limit(limit)
+                .map(e -> StatementView.of(e.getKey(), e.getValue()))
+                .toList();
+    }
+
+    List<EndpointView> endpoints() {
+        return endpoints.entrySet().stream()
+                .map(e -> EndpointView.of(e.getKey(), e.getValue()))
+                .sorted(Comparator.comparingDouble(EndpointView::meanStatements).reversed())
+                .toList();
+    }
+
+    void reset() {
+        statements.clear();
+        endpoints.clear();
+    }
+
+    void recordRequest(String method, String route, RequestQueries queries) {
+        String endpoint = method + " " + route;
+        long connectionNanos = queries.connectionNanos();
+        endpoints.computeIfAbsent(endpoint, key -> new EndpointStats()).record(queries, connectionNanos);
+        if (meterRegistry != null) {
+            Timer.builder("db.connection.hold")
+                    .description("Time a request held a pooled JDBC connection")
+                    .tags("method", method, "uri", route)
+                    .register(meterRegistry)
+                    .record(connectionNanos, TimeUnit.NANOSECONDS);
+        }
+        if (queries.count() > properties.getRequestStatementThreshold()) {
+            log.warn("{} issued {} statements taking {} ms", endpoint, queries.count(),
+                    TimeUnit.NANOSECONDS.toMillis(queries.nanos()));
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} issued {} statements taking {} ms", endpoint, queries.count(),
+                    TimeUnit.NANOSECONDS.toMillis(queries.nanos()));
+        }
+    }
+
+    private StatementStats statsOf(String sql) {
+        String normalized = SqlNormalizer.normalize(sql);
+        StatementStats stats = statements.get(normalized);
+        if (stats != null) {
+            return stats;
+        }
+        if (statements.size() >= properties.getMaxStatements()) {
+            return statements.computeIfAbsent(OTHER_STATEMENTS, key -> new StatementStats());
+        }
+        return statements.computeIfAbsent(normalized, key -> new StatementStats());
+    }
+
+    private void logSlowQuery(long nanos, List<QueryInfo> queries) {
+        String callSite = callSite().map(StackWalker.StackFrame::toString).orElse("unknown");
+        for (QueryInfo query : queries) {
+            log.warn("Slow statement took {} ms at {}: {} {}", TimeUnit.NANOSECONDS.toMillis(nanos), callSite,
+                    query.getQuery(), parameters(query.getParametersList()));
+        }
+    }
+
+    private Optional<StackWalker.StackFrame> callSite() {
+        return STACK_WALKER.walk(frames -> frames
+                .filter(frame -> !frame.getClassName().startsWith(QueryProfiler.class.getPackageName()))
+                .filter(frame -> !frame.getClassName().contains("$$") && !frame.getClassName().contains("$HibernateProxy"))
+                .filter(frame -> properties.getCallSitePackages().stream().anyMatch(frame.getClassName()::startsWith))
+                .findFirst());
+    }
+
+    private static String parameters(List<List<ParameterSetOperation>> batches) {
+        if (batches.isEmpty()) {
+            return "";
+        }
+        String first = batches.get(0).stream()
+                .map(op -> ParameterSetOperation.isSetNullParameterOperation(op) ? null : op.getArgs()[1])
+                .map(QueryProfiler::format)
+                .collect(Collectors.joining(", ", "[", "]"));
+        return batches.size() == 1 ? first : first + " and " + (batches.size() - 1) + " more batched";
+    }
+
+    private static String format(Object value) {
+        String text = String.valueOf(value);
+        return text.length() <= MAX_PARAMETER_LENGTH ? text : text.substring(0, MAX_PARAMETER_LENGTH) + "...";
+    }
+
+    public record StatementView(String sql, long count, double totalMs, double meanMs, double maxMs) {
+
+        static StatementView of(String sql, StatementStats stats) {
+            long count = stats.count();
+            return new StatementView(sql, count, millis(stats.totalNanos()),
+                    count == 0 ? 0 : millis(stats.totalNanos()) / count, millis(stats.maxNanos()));
+        }
+    }
+
+    public record EndpointView(String endpoint, long requests, double meanStatements, long maxStatements, double meanMs,
+                               double meanConnectionMs, double maxConnectionMs) {
+
+        static EndpointView of(String endpoint, EndpointStats stats) {
+            long requests = stats.requests.sum();
+            return new EndpointView(endpoint, requests,
+                    requests == 0 ? 0 : (double) stats.statements.sum() / requests,
+                    stats.maxStatements.get(),
+                    requests == 0 ? 0 : millis(stats.nanos.sum()) / requests,
+                    requests == 0 ? 0 : millis(stats.connectionNanos.sum()) / requests,
+                    millis(stats.maxConnectionNanos.get()));
+        }
+    }
+
+    private static final class EndpointStats {
+
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLong maxStatements = new AtomicLong();
+        private final LongAdder connectionNanos = new LongAdder();
+        private final AtomicLong maxConnectionNanos = new AtomicLong();
+
+        void record(RequestQueries queries, long connectionNanos) {
+            requests.increment();
+            statements.add(queries.count());
+            nanos.add(queries.nanos());
+            maxStatements.accumulateAndGet(queries.count(), Math::max);
+            this.connectionNanos.add(connectionNanos);
+            maxConnectionNanos.accumulateAndGet(connectionNanos, Math::max);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.practicum.commons.profiling;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps every {@link DataSource} bean in a datasource-proxy reporting to the {@link QueryProfiler}.
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(QueryProfilerProperties.class)
+@ConditionalOnProperty(prefix = "query-profiler", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class QueryProfilerAutoConfiguration {
+
+    @Bean
+    public QueryProfiler queryProfiler(QueryProfilerProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new QueryProfiler(properties, meterRegistry.getIfAvailable());
+    }
+
+    @Bean
+    public static BeanPostProcessor queryProfilerDataSourceWrapper(ObjectProvider<QueryProfiler> profiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(profiler.getObject())
+                            .methodListener(profiler.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<QueryProfilingFilter> queryProfilingFilter(QueryProfiler profiler) {
+        FilterRegistrationBean<QueryProfilingFilter> registration =
+                new FilterRegistrationBean<>(new QueryProfilingFilter(profiler));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    public QueriesEndpoint queriesEndpoint(QueryProfiler profiler) {
+        return new QueriesEndpoint(profiler);
+    }
+}
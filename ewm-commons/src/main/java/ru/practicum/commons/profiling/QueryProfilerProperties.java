@@ -0,0 +1,36 @@
+package ru.practicum.commons.profiling;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "query-profiler")
+public class QueryProfilerProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Statements running at least this long are logged with their parameters and call site.
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(100);
+
+    /**
+     * Requests issuing more statements than this are logged, usually a sign of N+1 loading.
+     */
+    private int requestStatementThreshold = 50;
+
+    /**
+     * Upper bound of distinct normalized statements kept, later ones are counted as one bucket.
+     */
+    private int maxStatements = 500;
+
+    /**
+     * Packages whose first stack frame is reported as the call site of a slow statement.
+     */
+    private List<String> callSitePackages = List.of("ru.practicum");
+}
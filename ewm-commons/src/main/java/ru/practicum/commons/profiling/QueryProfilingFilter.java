@@ -0,0 +1,37 @@
+package ru.practicum.commons.profiling;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Collects the statements issued and the connection hold time while serving a request and reports
+ * them per route pattern.
+ */
+@RequiredArgsConstructor
+class QueryProfilingFilter extends OncePerRequestFilter {
+
+    private final QueryProfiler profiler;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestQueries queries = RequestQueries.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueries.finish();
+            if (queries.count() > 0 || queries.connectionNanos() > 0) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                profiler.recordRequest(request.getMethod(), pattern != null ? pattern.toString() : "UNMATCHED", queries);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.practicum.commons.profiling;
+
+/**
+ * Statements issued on the current thread while it serves one HTTP request, and how long the
+ * thread held at least one pooled connection.
+ */
+final class RequestQueries {
+
+    private static final ThreadLocal<RequestQueries> CURRENT = new ThreadLocal<>();
+
+    private int count;
+    private long nanos;
+    private int openConnections;
+    private long connectionSince;
+    private long connectionNanos;
+
+    static RequestQueries start() {
+        RequestQueries queries = new RequestQueries();
+        CURRENT.set(queries);
+        return queries;
+    }
+
+    static void finish() {
+        CURRENT.remove();
+    }
+
+    static void record(long nanos) {
+        RequestQueries queries = CURRENT.get();
+        if (queries != null) {
+            queries.count++;
+            queries.nanos += nanos;
+        }
+    }
+
+    static void connectionOpened() {
+        RequestQueries queries = CURRENT.get();
+        if (queries != null && queries.openConnections++ == 0) {
+            queries.connectionSince = System.nanoTime();
+        }
+    }
+
+    static void connectionClosed() {
+        RequestQueries queries = CURRENT.get();
+        // a connection obtained before the request started is not counted
+        if (queries != null && queries.openConnections > 0 && --queries.openConnections == 0) {
+            queries.connectionNanos += System.nanoTime() - queries.connectionSince;
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    long nanos() {
+        return nanos;
+    }
+
+    /**
+     * Connection hold time so far, including a connection that is still open.
+     */
+    long connectionNanos() {
+        return openConnections > 0 ? connectionNanos + System.nanoTime() - connectionSince : connectionNanos;
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.commons.profiling;
+
+import java.util.regex.Pattern;
+
+/**
+ * Reduces a statement to its shape, so executions differing only in literals or in the length of
+ * an {@code IN} list are aggregated together.
+ */
+final class SqlNormalizer {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlNormalizer() {
+    }
+
+    static String normalize(String sql) {
+        String normalized = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        return IN_LIST.matcher(normalized).replaceAll("(?, ...)");
+    }
+}
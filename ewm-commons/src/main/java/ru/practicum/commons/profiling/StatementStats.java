@@ -0,0 +1,32 @@
+package ru.practicum.commons.profiling;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals of one normalized statement.
+ */
+final class StatementStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    long totalNanos() {
+        return totalNanos.sum();
+    }
+
+    long maxNanos() {
+        return maxNanos.get();
+    }
+}
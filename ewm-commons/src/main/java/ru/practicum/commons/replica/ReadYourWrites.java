@@ -0,0 +1,25 @@
+package ru.practicum.commons.replica;
+
+/**
+ * Marks the current thread's reads as ones that have to see its client's latest writes, which only
+ * the primary guarantees.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static boolean isPinned() {
+        return PINNED.get() != null;
+    }
+
+    static void pin() {
+        PINNED.set(Boolean.TRUE);
+    }
+
+    static void clear() {
+        PINNED.remove();
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.commons.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Pins the reads of a client to the primary for a while after it changed something. The end of
+ * that window travels in a cookie, so it holds across instances without shared state.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final String cookieName;
+    private final long windowMillis;
+
+    public ReadYourWritesFilter(ReplicaRoutingProperties properties) {
+        this.cookieName = properties.getCookieName();
+        this.windowMillis = properties.getReadYourWrites().toMillis();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            Cookie cookie = new Cookie(cookieName, Long.toString(now + windowMillis));
+            cookie.setPath("/");
+            cookie.setMaxAge((int) Math.max(1, windowMillis / 1000));
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+        if (!write && !pinnedUntilAfter(request, now)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ReadYourWrites.pin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+
+    private boolean pinnedUntilAfter(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (cookieName.equals(cookie.getName())) {
+                try {
+                    // a window longer than ours was not set by us
+                    long left = Long.parseLong(cookie.getValue()) - now;
+                    return left > 0 && left <= windowMillis;
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.commons.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Routes read-only transactions of the {@link DataSource} bean to the configured replicas. The
+ * wrapping runs before other post processors, so the query profiler sees replica statements too.
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+@ConditionalOnClass({HikariDataSource.class, LazyConnectionDataSourceProxy.class})
+@ConditionalOnProperty(prefix = "datasource-routing", name = "enabled", havingValue = "true")
+public class ReplicaRoutingAutoConfiguration {
+
+    @Bean
+    public ReplicaSet replicaSet(ReplicaRoutingProperties properties, DataSourceProperties primary) {
+        ReplicaSet replicas = ReplicaSet.create(properties, primary);
+        replicas.start(properties.getCheckInterval());
+        return replicas;
+    }
+
+    @Bean
+    public static RoutingPostProcessor replicaRoutingDataSourceWrapper(ObjectProvider<ReplicaSet> replicas) {
+        return new RoutingPostProcessor(replicas);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaRoutingProperties properties) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(properties));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    /**
+     * Declared with its own type, post processors are ordered by the type their factory method returns.
+     */
+    static final class RoutingPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final ObjectProvider<ReplicaSet> replicas;
+
+        RoutingPostProcessor(ObjectProvider<ReplicaSet> replicas) {
+            this.replicas = replicas;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource primary && !(bean instanceof LazyConnectionDataSourceProxy)) {
+                LazyConnectionDataSourceProxy proxy =
+                        new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replicas.getObject()));
+                // known up front, otherwise the proxy would borrow a connection to find them out
+                proxy.setDefaultAutoCommit(true);
+                proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+                return proxy;
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
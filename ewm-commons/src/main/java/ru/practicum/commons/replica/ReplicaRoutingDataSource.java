@@ -0,0 +1,40 @@
+package ru.practicum.commons.replica;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Serves connections of read-only transactions from a replica and everything else from the
+ * primary. It has to sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the transaction is only marked read-only after it began, so the connection must not be taken
+ * before its first statement.
+ */
+public class ReplicaRoutingDataSource extends DelegatingDataSource {
+
+    private final ReplicaSet replicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReplicaSet replicas) {
+        super(primary);
+        this.replicas = replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (ReadYourWrites.isPinned()) {
+                replicas.pinned();
+            } else {
+                Optional<Connection> replica = replicas.connection();
+                if (replica.isPresent()) {
+                    return replica.get();
+                }
+            }
+        }
+        return super.getConnection();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.commons.replica;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "datasource-routing")
+public class ReplicaRoutingProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Read-only transactions are spread over these; username and password default to the ones of
+     * {@code spring.datasource}.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * A replica further behind its primary than this is skipped until it catches up.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    private Duration checkInterval = Duration.ofSeconds(1);
+
+    /**
+     * After a client's own write, its reads go to the primary for this long.
+     */
+    private Duration readYourWrites = Duration.ofSeconds(5);
+
+    /**
+     * Cookie carrying the end of a client's read-your-writes window.
+     */
+    private String cookieName = "primary-until";
+
+    @Getter
+    @Setter
+    public static class Replica {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+
+        /**
+         * Kept short, a replica that cannot hand out a connection quickly is skipped for the primary.
+         */
+        private Duration connectionTimeout = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,191 @@
+package ru.practicum.commons.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The read replicas of a primary with their replay lag, checked in the background. Only replicas
+ * that answered the last check within {@code max-lag} are handed out, round robin.
+ */
+@Slf4j
+public class ReplicaSet implements MeterBinder, AutoCloseable {
+
+    /**
+     * Seconds since the last replayed transaction, or 0 when everything received is replayed: an
+     * idle primary sends nothing, which is no lag. A server not in recovery is the primary itself.
+     * A standby without a streaming WAL receiver gives null, as having replayed all it received
+     * says nothing about how far behind it is. The status is only visible with
+     * {@code pg_read_all_stats}; without it a running receiver is taken as streaming.
+     */
+    static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 "
+            + "WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver "
+            + "WHERE status = 'streaming' OR status IS NULL) THEN NULL "
+            + "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder pinnedReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+    private ScheduledExecutorService checker;
+
+    ReplicaSet(List<Replica> replicas, Duration maxLag) {
+        this.replicas = replicas;
+        this.maxLag = maxLag;
+    }
+
+    static ReplicaSet create(ReplicaRoutingProperties properties, DataSourceProperties primary) {
+        List<Replica> replicas = new ArrayList<>();
+        for (ReplicaRoutingProperties.Replica settings : properties.getReplicas()) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + replicas.size());
+            dataSource.setJdbcUrl(settings.getUrl());
+            dataSource.setUsername(settings.getUsername() != null ? settings.getUsername() : primary.determineUsername());
+            dataSource.setPassword(settings.getPassword() != null ? settings.getPassword() : primary.determinePassword());
+            dataSource.setMaximumPoolSize(settings.getMaximumPoolSize());
+            dataSource.setConnectionTimeout(settings.getConnectionTimeout().toMillis());
+            dataSource.setReadOnly(true);
+            replicas.add(new Replica(dataSource.getPoolName(), dataSource));
+        }
+        return new ReplicaSet(replicas, properties.getMaxLag());
+    }
+
+    void start(Duration interval) {
+        checker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("replica-lag").daemon()
+                .factory());
+        checker.scheduleWithFixedDelay(this::check, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A connection to a replica close enough to the primary, or empty when none is usable now.
+     */
+    Optional<Connection> connection() {
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.usable) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replicaReads.increment();
+                return Optional.of(connection);
+            } catch (SQLException ex) {
+                replica.usable = false;
+                log.warn("Replica {} is unavailable, reading from the others until its next check: {}",
+                        replica.name, ex.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return Optional.empty();
+    }
+
+    void pinned() {
+        pinnedReads.increment();
+    }
+
+    void check() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet lag = statement.executeQuery(LAG_QUERY)) {
+                lag.next();
+                double seconds = lag.getDouble(1);
+                if (lag.wasNull()) {
+                    if (replica.usable) {
+                        log.warn("Replica {} is not streaming from its primary", replica.name);
+                    }
+                    seconds = Double.NaN;
+                }
+                update(replica, seconds);
+            } catch (SQLException | RuntimeException ex) {
+                if (replica.usable) {
+                    log.warn("Replica {} failed its lag check: {}", replica.name, ex.getMessage());
+                }
+                replica.lagSeconds = Double.NaN;
+                replica.usable = false;
+            }
+        }
+    }
+
+    void update(Replica replica, double lagSeconds) {
+        boolean usable = lagSeconds * 1000 <= maxLag.toMillis();
+        if (usable != replica.usable) {
+            log.info("Replica {} is {} ({}s behind)", replica.name, usable ? "in use" : "skipped", lagSeconds);
+        }
+        replica.lagSeconds = lagSeconds;
+        replica.usable = usable;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            Gauge.builder("db.replica.lag", replica, r -> r.lagSeconds)
+                    .description("Seconds the replica's replay is behind its primary, NaN when unreachable")
+                    .baseUnit("seconds")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+        readCounter(registry, "replica", replicaReads);
+        readCounter(registry, "primary-pinned", pinnedReads);
+        readCounter(registry, "primary-fallback", fallbackReads);
+    }
+
+    private static void readCounter(MeterRegistry registry, String target, LongAdder count) {
+        FunctionCounter.builder("db.routing.reads", count, LongAdder::sum)
+                .description("Connections of read-only transactions by where they were served")
+                .tag("target", target)
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ex) {
+                    log.warn("Failed to close replica {}", replica.name, ex);
+                }
+            }
+        }
+    }
+
+    static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile double lagSeconds = Double.NaN;
+        private volatile boolean usable;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
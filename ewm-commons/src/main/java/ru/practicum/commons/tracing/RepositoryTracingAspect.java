@@ -0,0 +1,58 @@
+package ru.practicum.commons.tracing;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.data.repository.Repository;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opens a child span around every Spring Data repository call made inside a trace, named like
+ * {@code EventRepository.findAllByIdIn}.
+ *
+ * <p>Plain spans rather than observations, the invocations are already timed by the
+ * {@code spring.data.repository.invocations} metric.</p>
+ */
+@Aspect
+@RequiredArgsConstructor
+public class RepositoryTracingAspect {
+
+    private final Tracer tracer;
+    private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    @Around("this(org.springframework.data.repository.Repository)")
+    public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (tracer.currentSpan() == null) {
+            return joinPoint.proceed();
+        }
+        String repository = repositoryNames.computeIfAbsent(joinPoint.getThis().getClass(),
+                type -> repositoryName(joinPoint.getThis()));
+        Span span = tracer.nextSpan()
+                .name(repository + "." + joinPoint.getSignature().getName())
+                .tag("repository", repository)
+                .start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            span.error(ex);
+            throw ex;
+        } finally {
+            span.end();
+        }
+    }
+
+    private static String repositoryName(Object proxy) {
+        return Arrays.stream(AopProxyUtils.proxiedUserInterfaces(proxy))
+                .filter(Repository.class::isAssignableFrom)
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElse(proxy.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.commons.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Keeps the most recent spans in memory and assembles them into traces on demand.
+ *
+ * <p>Spans of one trace arrive from every service in the process separately, and a trace is only
+ * complete once its root has been exported.</p>
+ */
+public class SpanCollector implements SpanExporter {
+
+    private final int capacity;
+    private final ArrayDeque<SpanView> spans;
+
+    public SpanCollector(int capacity) {
+        this.capacity = capacity;
+        this.spans = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> finished) {
+        for (SpanData span : finished) {
+            if (spans.size() == capacity) {
+                spans.removeFirst();
+            }
+            spans.addLast(SpanView.of(span));
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        spans.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * The most recent traces, newest first.
+     */
+    public List<TraceView> traces(int limit) {
+        Map<String, List<SpanView>> byTrace = new LinkedHashMap<>();
+        synchronized (this) {
+            spans.descendingIterator().forEachRemaining(span ->
+                    byTrace.computeIfAbsent(span.traceId(), id -> new ArrayList<>()).add(span));
+        }
+        return byTrace.values().stream()
+                .map(TraceView::of)
+                .sorted(Comparator.comparing(TraceView::start).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    public Optional<TraceView> trace(String traceId) {
+        List<SpanView> found = new ArrayList<>();
+        synchronized (this) {
+            for (SpanView span : spans) {
+                if (span.traceId().equals(traceId)) {
+                    found.add(span);
+                }
+            }
+        }
+        return found.isEmpty() ? Optional.empty() : Optional.of(TraceView.of(found));
+    }
+
+    public record TraceView(String traceId,
+                            String root,
+                            Instant start,
+                            long durationMicros,
+                            Collection<String> services,
+                            List<SpanView> spans) {
+
+        static TraceView of(List<SpanView> spans) {
+            List<SpanView> ordered = spans.stream()
+                    .sorted(Comparator.comparing(SpanView::start))
+                    .toList();
+            SpanView first = ordered.get(0);
+            long end = ordered.stream()
+                    .mapToLong(span -> micros(span.start()) + span.durationMicros())
+                    .max()
+                    .orElseThrow();
+            TreeSet<String> services = new TreeSet<>();
+            ordered.stream().map(SpanView::service).filter(s -> s != null).forEach(services::add);
+            String root = ordered.stream()
+                    .filter(span -> span.parentSpanId() == null)
+                    .map(SpanView::name)
+                    .findFirst()
+                    .orElse(null);
+            return new TraceView(first.traceId(), root, first.start(), end - micros(first.start()), services, ordered);
+        }
+
+        private static long micros(Instant instant) {
+            return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package ru.practicum.commons.tracing;
+
+import io.micrometer.tracing.Tracer;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Span exporters picked up by the OpenTelemetry tracer Spring Boot sets up, plus repository spans.
+ */
+@AutoConfiguration(afterName = "org.springframework.boot.actuate.autoconfigure.tracing.MicrometerTracingAutoConfiguration")
+@ConditionalOnClass(SpanExporter.class)
+@EnableConfigurationProperties(SpanExportProperties.class)
+public class SpanExportAutoConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "tracing.export.file", name = "enabled", havingValue = "true")
+    public FileSpanExporter fileSpanExporter(SpanExportProperties properties) {
+        return new FileSpanExporter(properties.getFile().getPath());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "tracing.export.collector", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    public SpanCollector spanCollector(SpanExportProperties properties) {
+        return new SpanCollector(properties.getCollector().getCapacity());
+    }
+
+    @Bean
+    @ConditionalOnBean(SpanCollector.class)
+    public TracesEndpoint tracesEndpoint(SpanCollector collector) {
+        return new TracesEndpoint(collector);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.data.repository.Repository")
+    @ConditionalOnBean(Tracer.class)
+    static class RepositoryTracingConfiguration {
+
+        @Bean
+        public RepositoryTracingAspect repositoryTracingAspect(Tracer tracer) {
+            return new RepositoryTracingAspect(tracer);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.commons.tracing;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "tracing.export")
+public class SpanExportProperties {
+
+    private final File file = new File();
+
+    private final Collector collector = new Collector();
+
+    @Getter
+    @Setter
+    public static class File {
+
+        private boolean enabled = false;
+
+        /**
+         * File the finished spans are appended to, one JSON object per line.
+         */
+        private Path path = Path.of("logs/spans.jsonl");
+    }
+
+    @Getter
+    @Setter
+    public static class Collector {
+
+        private boolean enabled = true;
+
+        /**
+         * Number of most recent spans kept in memory for {@code /actuator/traces}.
+         */
+        private int capacity = 10_000;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.commons.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exported form of a finished span, shared by the file exporter and the in-process collector.
+ */
+public record SpanView(String traceId,
+                       String spanId,
+                       String parentSpanId,
+                       String service,
+                       String name,
+                       String kind,
+                       Instant start,
+                       long durationMicros,
+                       boolean error,
+                       Map<String, String> attributes) {
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    static SpanView of(SpanData span) {
+        SpanContext parent = span.getParentSpanContext();
+        Map<String, String> attributes = new TreeMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        return new SpanView(span.getTraceId(),
+                span.getSpanId(),
+                parent.isValid() ? parent.getSpanId() : null,
+                span.getResource().getAttribute(SERVICE_NAME),
+                span.getName(),
+                span.getKind().name(),
+                Instant.ofEpochSecond(0, span.getStartEpochNanos()),
+                TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()),
+                span.getStatus().getStatusCode() == StatusCode.ERROR,
+                attributes);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.commons.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * {@code /actuator/traces}: the most recent traces seen by this process with their spans, and
+ * {@code /actuator/traces/{traceId}} for a single one.
+ */
+@Endpoint(id = "traces")
+@RequiredArgsConstructor
+public class TracesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final SpanCollector collector;
+
+    @ReadOperation
+    public List<SpanCollector.TraceView> traces(@Nullable Integer limit) {
+        return collector.traces(limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    @ReadOperation
+    public SpanCollector.TraceView trace(@Selector String traceId) {
+        return collector.trace(traceId).orElse(null);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.commons.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlNormalizerTest {
+
+    @Test
+    void replacesLiteralsAndCollapsesInLists() {
+        assertEquals("select e1_0.id from events e1_0 where e1_0.state=? and e1_0.id in (?, ...) limit ?",
+                SqlNormalizer.normalize("select e1_0.id\n  from events e1_0 where e1_0.state='PUBLISHED'"
+                        + " and e1_0.id in (?, ?, ?) limit 10"));
+    }
+
+    @Test
+    void keepsIdentifiersContainingDigits() {
+        assertEquals("select u1_0.name from users u1_0 where u1_0.id=? and u1_0.email=?",
+                SqlNormalizer.normalize("select u1_0.name from users u1_0 where u1_0.id=-5 and u1_0.email='a''b'"));
+    }
+}
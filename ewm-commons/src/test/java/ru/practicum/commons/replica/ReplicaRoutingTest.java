@@ -0,0 +1,140 @@
+package ru.practicum.commons.replica;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replicaSource = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+
+    private ReplicaSet.Replica replica;
+    private ReplicaSet replicas;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replicaSource.getConnection()).thenReturn(replicaConnection);
+        replica = new ReplicaSet.Replica("replica-0", replicaSource);
+        replicas = new ReplicaSet(List.of(replica), Duration.ofSeconds(5));
+        replicas.update(replica, 0.5);
+        routing = new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReadYourWrites.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsReadFromReplica() throws SQLException {
+        assertSame(primaryConnection, routing.getConnection());
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replicaConnection, routing.getConnection());
+    }
+
+    @Test
+    void laggingOrUnreachableReplicaFallsBackToPrimary() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        replicas.update(replica, 30);
+        assertSame(primaryConnection, routing.getConnection());
+
+        replicas.update(replica, 1);
+        when(replicaSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        assertSame(primaryConnection, routing.getConnection());
+        // skipped until the next lag check brings it back
+        assertSame(primaryConnection, routing.getConnection());
+        verify(replicaSource, times(1)).getConnection();
+    }
+
+    @Test
+    void standbyWithoutStreamingReceiverIsSkipped() throws SQLException {
+        Statement statement = mock(Statement.class);
+        ResultSet lag = mock(ResultSet.class);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReplicaSet.LAG_QUERY)).thenReturn(lag);
+        when(lag.next()).thenReturn(true);
+        when(lag.wasNull()).thenReturn(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        replicas.check();
+
+        assertSame(primaryConnection, routing.getConnection());
+    }
+
+    @Test
+    void readOnlyTransactionTakesItsConnectionAtFirstStatement() throws SQLException {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routing);
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(proxy));
+        transaction.setReadOnly(true);
+
+        transaction.executeWithoutResult(status -> {
+            try {
+                DataSourceUtils.getConnection(proxy).createStatement();
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        verify(replicaSource).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void clientReadsOwnWritesFromPrimary() throws Exception {
+        ReplicaRoutingProperties properties = new ReplicaRoutingProperties();
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(properties);
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        MockHttpServletResponse written = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PATCH", "/admin/events/1"), written,
+                (request, response) -> pinned.set(ReadYourWrites.isPinned()));
+        assertTrue(pinned.get());
+        Cookie cookie = written.getCookie(properties.getCookieName());
+        assertNotNull(cookie);
+
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/events/1");
+        read.setCookies(cookie);
+        filter.doFilter(read, new MockHttpServletResponse(),
+                (request, response) -> pinned.set(ReadYourWrites.isPinned()));
+        assertTrue(pinned.get());
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/events/1"), new MockHttpServletResponse(),
+                (request, response) -> pinned.set(ReadYourWrites.isPinned()));
+        assertFalse(pinned.get());
+        assertFalse(ReadYourWrites.isPinned());
+    }
+}
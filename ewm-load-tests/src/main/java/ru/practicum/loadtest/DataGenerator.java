@@ -0,0 +1,162 @@
+package ru.practicum.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Seeds both databases with {@code COPY FROM STDIN}, which loads millions of rows in seconds where
+ * the REST API would take hours. Rows are derived from a fixed seed, so every run sees the same data.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class DataGenerator {
+
+    static final String APP = "ewm-main-service";
+    static final String[] WORDS = {"concert", "jazz", "festival", "theatre", "exhibition", "lecture", "marathon",
+        "workshop", "cinema", "opera", "party", "quiz", "standup", "tour", "fair", "yoga", "chess", "hackathon"};
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int FLUSH_SIZE = 1 << 20;
+
+    private final LoadTestConfig config;
+    private final LocalDateTime now;
+
+    void seedMain(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            SplittableRandom random = new SplittableRandom(config.seed());
+            copy(connection, "users (id, name, email)", config.users(), (i, row) -> row
+                    .append(i).append('\t')
+                    .append("User ").append(i).append('\t')
+                    .append("user").append(i).append("@example.com"));
+
+            copy(connection, "categories (id, name)", config.categories(), (i, row) -> row
+                    .append(i).append('\t')
+                    .append("Category ").append(i));
+
+            copy(connection, "events (id, annotation, description, category_id, event_date, lat, lon, paid, " +
+                    "participant_limit, request_moderation, title, created_on, published_on, state, initiator_id)",
+                    config.events(), (i, row) -> {
+                        String word = WORDS[random.nextInt(WORDS.length)];
+                        int state = random.nextInt(100);
+                        LocalDateTime created = now.minusMinutes(random.nextLong(60L * 24 * 180));
+                        row.append(i).append('\t')
+                                .append("Annotation of the ").append(word).append(" number ").append(i).append('\t')
+                                .append("Description of the ").append(word).append(" number ").append(i)
+                                .append(", long enough to look like a real one").append('\t')
+                                .append(random.nextInt(config.categories()) + 1).append('\t')
+                                .append(format(now.plusMinutes(random.nextLong(-60L * 24 * 30, 60L * 24 * 180))))
+                                .append('\t')
+                                .append(55 + random.nextDouble()).append('\t')
+                                .append(37 + random.nextDouble()).append('\t')
+                                .append(random.nextBoolean()).append('\t')
+                                .append(random.nextBoolean() ? 0 : random.nextInt(10, 100)).append('\t')
+                                .append(random.nextInt(10) < 8).append('\t')
+                                .append(word).append(' ').append(i).append('\t')
+                                .append(format(created)).append('\t');
+                        if (state < 80) {
+                            row.append(format(created.plusHours(1))).append('\t').append("PUBLISHED");
+                        } else if (state < 95) {
+                            row.append("\\N").append('\t').append("PENDING");
+                        } else {
+                            row.append("\\N").append('\t').append("CANCELED");
+                        }
+                        row.append('\t').append(random.nextInt(config.users()) + 1);
+                    });
+
+            // walks the events round-robin and picks a different requester on every lap, keeping pairs unique
+            copy(connection, "requests (id, created, event_id, requester_id, status)", config.requests(), (i, row) -> {
+                long event = (i - 1) % config.events() + 1;
+                long lap = (i - 1) / config.events();
+                int status = random.nextInt(10);
+                row.append(i).append('\t')
+                        .append(format(now.minusMinutes(random.nextLong(60L * 24 * 30)))).append('\t')
+                        .append(event).append('\t')
+                        .append((event * 7919 + lap) % config.users() + 1).append('\t')
+                        .append(status < 6 ? "CONFIRMED" : status < 9 ? "PENDING" : "REJECTED");
+            });
+            resetIdentities(connection, "users", "categories", "events", "requests");
+        }
+    }
+
+    void seedStats(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            SplittableRandom random = new SplittableRandom(config.seed() + 1);
+            copy(connection, "apps (id, name)", 1, (i, row) -> row.append(i).append('\t').append(APP));
+            copy(connection, "uris (id, path)", config.events() + 1, (i, row) -> row
+                    .append(i).append('\t')
+                    .append(i <= config.events() ? "/events/" + i : "/events"));
+            copy(connection, "hits (app_id, uri_id, ip, \"timestamp\")", config.hits(), (i, row) -> {
+                // squared uniform draw, so a small share of events gets most of the views
+                double skew = random.nextDouble();
+                row.append(1).append('\t')
+                        .append((long) (skew * skew * (config.events() + 1)) + 1).append('\t')
+                        .append("10.").append(random.nextInt(256)).append('.')
+                        .append(random.nextInt(256)).append('.').append(random.nextInt(256)).append('\t')
+                        .append(format(now.minusSeconds(random.nextLong(60L * 60 * 24 * 30))));
+            });
+            resetIdentities(connection, "apps", "uris");
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("ANALYZE hits");
+            }
+        }
+    }
+
+    private void copy(Connection connection, String target, int rows, RowWriter writer) throws SQLException {
+        long started = System.nanoTime();
+        CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY " + target + " FROM STDIN");
+        StringBuilder buffer = new StringBuilder(FLUSH_SIZE + 4096);
+        try {
+            for (long i = 1; i <= rows; i++) {
+                writer.write(i, buffer);
+                buffer.append('\n');
+                if (buffer.length() >= FLUSH_SIZE) {
+                    flush(copy, buffer);
+                }
+            }
+            flush(copy, buffer);
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+        log.info("Copied {} rows into {} in {} ms", rows, target.substring(0, target.indexOf(' ')),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static void flush(CopyIn copy, StringBuilder buffer) throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private static void resetIdentities(Connection connection, String... tables) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                statement.execute(String.format("SELECT setval(pg_get_serial_sequence('%1$s', 'id'), " +
+                        "(SELECT COALESCE(MAX(id), 0) + 1 FROM %1$s), false)", table));
+                statement.execute("ANALYZE " + table);
+            }
+        }
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return TIMESTAMP.format(dateTime);
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(long index, StringBuilder row);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+
+/**
+ * Starts both services, seeds the databases and drives the mixed workload, then prints per-endpoint
+ * latencies. Sizes and durations are set with {@code loadtest.*} system properties, see
+ * {@link LoadTestConfig}.
+ */
+@Slf4j
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        try (ServiceCluster cluster = new ServiceCluster(config)) {
+            cluster.start();
+
+            DataGenerator generator = new DataGenerator(config, LocalDateTime.now());
+            generator.seedMain(cluster.getMainDataSource());
+            generator.seedStats(cluster.getStatsDataSource());
+
+            Report report = new TrafficDriver(config,
+                    new Operation.Target(config, cluster.getMainUrl(), cluster.getStatsUrl())).run();
+            report.print(System.out);
+            report.write(config.reportDirectory());
+            log.info("Histograms written to {}", config.reportDirectory().toAbsolutePath());
+        }
+        // the http client and the servers leave non-daemon threads behind
+        System.exit(0);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of a run, read from {@code loadtest.*} system properties. The same seed and sizes
+ * always produce the same data set and the same request sequence per worker.
+ *
+ * @param jdbcUrl     url of an existing PostgreSQL to create the databases in; an embedded one is
+ *                    started when empty
+ * @param concurrency number of closed-loop workers, each sending its next request after the
+ *                    previous response
+ * @param replicaStandIn route read-only transactions through a replica pool pointing at the primary
+ *                       database itself, which exercises the routing without a real standby
+ */
+public record LoadTestConfig(String jdbcUrl,
+                             String username,
+                             String password,
+                             long seed,
+                             int users,
+                             int categories,
+                             int events,
+                             int requests,
+                             int hits,
+                             int concurrency,
+                             Duration warmup,
+                             Duration duration,
+                             Duration timeout,
+                             Path reportDirectory,
+                             boolean replicaStandIn) {
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                System.getProperty("loadtest.jdbc-url", ""),
+                System.getProperty("loadtest.username", "postgres"),
+                System.getProperty("loadtest.password", "postgres"),
+                Long.getLong("loadtest.seed", 42),
+                Integer.getInteger("loadtest.users", 100_000),
+                Integer.getInteger("loadtest.categories", 200),
+                Integer.getInteger("loadtest.events", 1_000_000),
+                Integer.getInteger("loadtest.requests", 2_000_000),
+                Integer.getInteger("loadtest.hits", 5_000_000),
+                Integer.getInteger("loadtest.concurrency", 32),
+                Duration.parse(System.getProperty("loadtest.warmup", "PT30S")),
+                Duration.parse(System.getProperty("loadtest.duration", "PT2M")),
+                Duration.parse(System.getProperty("loadtest.timeout", "PT30S")),
+                Path.of(System.getProperty("loadtest.report-directory", "target/load-test")),
+                Boolean.getBoolean("loadtest.replica-stand-in"));
+    }
+}
@@ -0,0 +1,122 @@
+package ru.practicum.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+
+/**
+ * Request kinds of the mixed workload with their share of the traffic, in percent.
+ */
+enum Operation {
+
+    PUBLIC_SEARCH(45) {
+        @Override
+        HttpRequest.Builder request(Target target, SplittableRandom random) {
+            StringBuilder query = new StringBuilder("/events?from=").append(random.nextInt(5) * 10).append("&size=10");
+            if (random.nextInt(2) == 0) {
+                query.append("&text=").append(DataGenerator.WORDS[random.nextInt(DataGenerator.WORDS.length)]);
+            }
+            if (random.nextInt(3) == 0) {
+                query.append("&categories=").append(random.nextInt(target.config().categories()) + 1)
+                        .append("&categories=").append(random.nextInt(target.config().categories()) + 1);
+            }
+            if (random.nextInt(4) == 0) {
+                query.append("&paid=").append(random.nextBoolean());
+            }
+            if (random.nextInt(4) == 0) {
+                LocalDateTime start = LocalDateTime.now().plusDays(random.nextInt(60));
+                query.append("&rangeStart=").append(encode(FORMATTER.format(start)))
+                        .append("&rangeEnd=").append(encode(FORMATTER.format(start.plusDays(30))));
+            }
+            query.append("&onlyAvailable=").append(random.nextInt(5) == 0)
+                    .append("&sort=").append(random.nextInt(10) == 0 ? "VIEWS" : "EVENT_DATE");
+            return HttpRequest.newBuilder(URI.create(target.mainUrl() + query)).GET();
+        }
+    },
+    EVENT_DETAIL(35) {
+        @Override
+        HttpRequest.Builder request(Target target, SplittableRandom random) {
+            return HttpRequest.newBuilder(URI.create(target.mainUrl() + "/events/" + event(target, random))).GET();
+        }
+    },
+    SIGN_UP(10) {
+        @Override
+        HttpRequest.Builder request(Target target, SplittableRandom random) {
+            return HttpRequest.newBuilder(URI.create(target.mainUrl() + "/users/"
+                            + (random.nextInt(target.config().users()) + 1)
+                            + "/requests?eventId=" + event(target, random)))
+                    .POST(HttpRequest.BodyPublishers.noBody());
+        }
+    },
+    ADMIN_MODERATION(3) {
+        @Override
+        HttpRequest.Builder request(Target target, SplittableRandom random) {
+            String action = random.nextInt(4) == 0 ? "REJECT_EVENT" : "PUBLISH_EVENT";
+            return HttpRequest.newBuilder(URI.create(target.mainUrl() + "/admin/events/" + event(target, random)))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"stateAction\":\"" + action + "\"}"));
+        }
+    },
+    STATS(7) {
+        @Override
+        HttpRequest.Builder request(Target target, SplittableRandom random) {
+            LocalDateTime end = LocalDateTime.now();
+            StringBuilder query = new StringBuilder("/stats?start=")
+                    .append(encode(FORMATTER.format(end.minusDays(30))))
+                    .append("&end=").append(encode(FORMATTER.format(end)))
+                    .append("&unique=").append(random.nextBoolean());
+            for (int i = 0; i < 10; i++) {
+                query.append("&uris=/events/").append(event(target, random));
+            }
+            return HttpRequest.newBuilder(URI.create(target.statsUrl() + query)).GET();
+        }
+    };
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final int weight;
+
+    Operation(int weight) {
+        this.weight = weight;
+    }
+
+    abstract HttpRequest.Builder request(Target target, SplittableRandom random);
+
+    /**
+     * Responses that are a legitimate outcome of the operation against the seeded data, such as
+     * a repeated sign-up or moderating an already published event.
+     */
+    boolean expected(int status) {
+        return status < 400 || status == 404 || status == 409;
+    }
+
+    static Operation pick(SplittableRandom random) {
+        int point = random.nextInt(100);
+        for (Operation operation : values()) {
+            point -= operation.weight;
+            if (point < 0) {
+                return operation;
+            }
+        }
+        return PUBLIC_SEARCH;
+    }
+
+    /**
+     * Event ids are drawn with the same skew as the seeded hits, popular events get most requests.
+     */
+    private static long event(Target target, SplittableRandom random) {
+        double skew = random.nextDouble();
+        return (long) (skew * skew * target.config().events()) + 1;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    record Target(LoadTestConfig config, String mainUrl, String statsUrl) {
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-operation latency summary of the measured phase. Besides the console table, the full
+ * percentile distribution of every operation is written as an {@code .hgrm} file that can be
+ * plotted or diffed against another run.
+ */
+@RequiredArgsConstructor
+class Report {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final long elapsedNanos;
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, long[]> errors = new EnumMap<>(Operation.class);
+
+    void add(Operation operation, Histogram histogram, long unexpected, long failed) {
+        histograms.put(operation, histogram);
+        errors.put(operation, new long[]{unexpected, failed});
+    }
+
+    void print(PrintStream out) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf(Locale.ROOT, "%-18s %9s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "unexpect", "failed");
+        long total = 0;
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            long[] error = errors.get(entry.getKey());
+            total += histogram.getTotalCount();
+            out.printf(Locale.ROOT, "%-18s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9d %9d%n",
+                    entry.getKey(),
+                    histogram.getTotalCount(),
+                    histogram.getTotalCount() / seconds,
+                    millis(histogram, 50),
+                    millis(histogram, 90),
+                    millis(histogram, 99),
+                    millis(histogram, 99.9),
+                    histogram.getMaxValue() / MICROS_PER_MILLI,
+                    error[0],
+                    error[1]);
+        }
+        out.printf(Locale.ROOT, "%-18s %9d %9.1f%n", "TOTAL", total, total / seconds);
+    }
+
+    void write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+            Path file = directory.resolve(entry.getKey().name().toLowerCase(Locale.ROOT) + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                entry.getValue().outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve("summary.txt")))) {
+            print(out);
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.loadtest;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.statsserver.StatsServerApplication;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Both services started in this JVM on random ports, each with its own database in one PostgreSQL
+ * instance. Schemas are created by the services themselves on startup, as in production.
+ */
+@Slf4j
+class ServiceCluster implements AutoCloseable {
+
+    private static final String MAIN_DB = "ewm_load";
+    private static final String STATS_DB = "stats_load";
+
+    private final LoadTestConfig config;
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext stats;
+    private ConfigurableApplicationContext main;
+
+    @Getter
+    private DataSource mainDataSource;
+    @Getter
+    private DataSource statsDataSource;
+    @Getter
+    private String mainUrl;
+    @Getter
+    private String statsUrl;
+
+    ServiceCluster(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    void start() throws IOException, SQLException {
+        String serverUrl = config.jdbcUrl();
+        if (serverUrl.isEmpty()) {
+            postgres = EmbeddedPostgres.builder()
+                    .setServerConfig("max_connections", "300")
+                    .setServerConfig("shared_buffers", "512MB")
+                    .start();
+            serverUrl = postgres.getJdbcUrl("postgres", "postgres");
+        }
+        String server = serverUrl.split("\\?")[0];
+        String base = server.substring(0, server.lastIndexOf('/') + 1);
+        try (Connection connection = dataSource(serverUrl).getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String db : List.of(MAIN_DB, STATS_DB)) {
+                statement.execute("DROP DATABASE IF EXISTS " + db);
+                statement.execute("CREATE DATABASE " + db);
+            }
+        }
+        statsDataSource = dataSource(base + STATS_DB);
+        mainDataSource = dataSource(base + MAIN_DB);
+
+        stats = new SpringApplicationBuilder(StatsServerApplication.class)
+                .run(args(StatsServerApplication.class, base + STATS_DB,
+                        "--spring.jpa.properties.hibernate.show_sql=false"));
+        statsUrl = "http://localhost:" + port(stats);
+        main = new SpringApplicationBuilder(EwmServiceApplication.class)
+                .run(args(EwmServiceApplication.class, base + MAIN_DB,
+                        "--stats-server.url=" + statsUrl,
+                        // the R2DBC driver of the stats server is on the shared classpath
+                        "--spring.autoconfigure.exclude="
+                                + "org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration",
+                        // 404 and 409 responses are a normal part of the workload
+                        "--logging.level.ru.practicum.ewm.exception=ERROR"));
+        mainUrl = "http://localhost:" + port(main);
+        log.info("Main service on {}, stats server on {}", mainUrl, statsUrl);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (main != null) {
+            main.close();
+        }
+        if (stats != null) {
+            stats.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    private String[] args(Class<?> application, String jdbcUrl, String... extra) {
+        List<String> args = new ArrayList<>(List.of(
+                // both services ship an application.yaml, each context has to read the one of its own jar
+                "--spring.config.location=" + configLocation(application),
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=" + jdbcUrl,
+                "--spring.datasource.username=" + config.username(),
+                "--spring.datasource.password=" + config.password(),
+                "--spring.datasource.hikari.maximum-pool-size=" + Math.max(10, config.concurrency())));
+        if (config.replicaStandIn()) {
+            args.add("--datasource-routing.enabled=true");
+            args.add("--datasource-routing.replicas[0].url=" + jdbcUrl);
+            args.add("--datasource-routing.replicas[0].maximum-pool-size=" + Math.max(10, config.concurrency()));
+        }
+        args.addAll(List.of(extra));
+        return args.toArray(String[]::new);
+    }
+
+    private PGSimpleDataSource dataSource(String url) {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setUrl(url);
+        dataSource.setUser(config.username());
+        dataSource.setPassword(config.password());
+        return dataSource;
+    }
+
+    private static int port(ConfigurableApplicationContext context) {
+        return Integer.parseInt(Objects.requireNonNull(context.getEnvironment().getProperty("local.server.port")));
+    }
+
+    private static String configLocation(Class<?> application) {
+        String location = application.getProtectionDomain().getCodeSource().getLocation().toString();
+        return location.endsWith(".jar") ? "jar:" + location + "!/" : location;
+    }
+}
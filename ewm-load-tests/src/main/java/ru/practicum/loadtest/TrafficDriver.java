@@ -0,0 +1,116 @@
+package ru.practicum.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop workers on virtual threads sending the mixed workload. Latencies of the warmup phase
+ * are discarded, measured ones go into one histogram per operation.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class TrafficDriver {
+
+    private static final long MAX_LATENCY = TimeUnit.MINUTES.toMicros(5);
+
+    private final LoadTestConfig config;
+    private final Operation.Target target;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> unexpected = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> failed = new EnumMap<>(Operation.class);
+
+    private volatile boolean measuring;
+    private volatile boolean running = true;
+
+    Report run() throws InterruptedException {
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(MAX_LATENCY, 3));
+            unexpected.put(operation, new LongAdder());
+            failed.put(operation, new LongAdder());
+        }
+
+        try (HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(config.timeout())
+                .build()) {
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < config.concurrency(); i++) {
+                SplittableRandom random = new SplittableRandom(config.seed() * 31 + i);
+                workers.add(Thread.ofVirtual().name("load-worker-" + i).start(() -> work(client, random)));
+            }
+
+            log.info("Warming up for {}", config.warmup());
+            Thread.sleep(config.warmup().toMillis());
+            recorders.values().forEach(Recorder::reset);
+            unexpected.values().forEach(LongAdder::reset);
+            failed.values().forEach(LongAdder::reset);
+            measuring = true;
+            long started = System.nanoTime();
+
+            log.info("Measuring for {}", config.duration());
+            Thread.sleep(config.duration().toMillis());
+            measuring = false;
+            long elapsed = System.nanoTime() - started;
+            running = false;
+            for (Thread worker : workers) {
+                worker.join(config.timeout().toMillis());
+            }
+
+            Report report = new Report(elapsed);
+            for (Operation operation : Operation.values()) {
+                report.add(operation, recorders.get(operation).getIntervalHistogram(),
+                        unexpected.get(operation).sum(), failed.get(operation).sum());
+            }
+            return report;
+        }
+    }
+
+    private void work(HttpClient client, SplittableRandom random) {
+        while (running) {
+            Operation operation = Operation.pick(random);
+            long started = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(operation.request(target, random)
+                                .timeout(config.timeout())
+                                .build(),
+                        HttpResponse.BodyHandlers.discarding());
+                record(operation, started);
+                if (!operation.expected(response.statusCode()) && measuring) {
+                    unexpected.get(operation).increment();
+                }
+            } catch (HttpTimeoutException ex) {
+                record(operation, started);
+                if (measuring) {
+                    failed.get(operation).increment();
+                }
+            } catch (IOException ex) {
+                if (measuring) {
+                    failed.get(operation).increment();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void record(Operation operation, long started) {
+        if (measuring) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+            recorders.get(operation).recordValue(Math.min(micros, MAX_LATENCY));
+        }
+    }
+}
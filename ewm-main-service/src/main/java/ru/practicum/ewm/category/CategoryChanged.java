@@ -0,0 +1,4 @@
+package ru.practicum.ewm.category;
+
+public record CategoryChanged(Long categoryId) {
+}
@@ -1,9 +1,13 @@
 package ru.practicum.ewm.category.repository;
 
- import org.springframework.data.jpa.repository.JpaRepository;
- import ru.practicum.ewm.category.model.Category;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.ewm.category.model.Category;
 
- public interface CategoryRepository extends JpaRepository<Category, Long> {
+public interface CategoryRepository extends JpaRepository<Category, Long> {
 
     boolean existsByNameIgnoreCase(String name);
+
+    Slice<Category> findAllBy(Pageable pageable);
 }
@@ -1,10 +1,12 @@
 package ru.practicum.ewm.category.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.category.CategoryChanged;
 import ru.practicum.ewm.category.CategoryMapper;
 import ru.practicum.ewm.category.dto.CategoryDto;
 import ru.practicum.ewm.category.dto.NewCategoryDto;
@@ -13,6 +15,7 @@ import ru.practicum.ewm.category.repository.CategoryRepository;
 import ru.practicum.ewm.event.repository.EventRepository;
 import ru.practicum.ewm.exception.ConflictException;
 import ru.practicum.ewm.exception.NotFoundException;
+import ru.practicum.ewm.util.CountEstimates;
 
 import java.util.List;
 
@@ -23,6 +26,8 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
     private final EventRepository eventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CountEstimates countEstimates;
 
     @Override
     @Transactional
@@ -58,6 +63,7 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         category.setName(dto.getName());
+        eventPublisher.publishEvent(new CategoryChanged(catId));
         return CategoryMapper.toDto(category);
     }
 
@@ -65,9 +71,11 @@ public class CategoryServiceImpl implements CategoryService {
     @Transactional(readOnly = true)
     public List<CategoryDto> getCategories(int from, int size) {
         Pageable page = PageRequest.of(from / size, size);
-        return categoryRepository.findAll(page).stream()
+        List<CategoryDto> categories = categoryRepository.findAllBy(page).stream()
                 .map(CategoryMapper::toDto)
                 .toList();
+        countEstimates.report(CountEstimates.Query.from("categories"));
+        return categories;
     }
 
     @Override
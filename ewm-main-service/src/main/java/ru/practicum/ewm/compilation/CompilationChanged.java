@@ -0,0 +1,4 @@
+package ru.practicum.ewm.compilation;
+
+public record CompilationChanged(Long compilationId) {
+}
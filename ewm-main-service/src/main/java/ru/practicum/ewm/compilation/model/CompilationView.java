@@ -0,0 +1,48 @@
+package ru.practicum.ewm.compilation.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import ru.practicum.ewm.event.dto.EventShortDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read model of a compilation with its events already mapped, rebuilt whenever the compilation,
+ * one of its events, their categories or confirmed requests change.
+ */
+@Entity
+@Table(name = "compilation_views", indexes = @Index(name = "idx_compilation_views_pinned", columnList = "pinned, id"))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompilationView {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false, length = 50)
+    private String title;
+
+    @Column(nullable = false)
+    private Boolean pinned;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(nullable = false, columnDefinition = "jsonb")
+    private List<EventShortDto> events;
+
+    @Column(nullable = false)
+    private LocalDateTime refreshedOn;
+}
@@ -1,7 +1,28 @@
 package ru.practicum.ewm.compilation.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.ewm.compilation.model.Compilation;
 
+import java.util.Collection;
+import java.util.List;
+
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
+
+    @EntityGraph(attributePaths = {"events", "events.category", "events.initiator"})
+    List<Compilation> findAllWithEventsByIdIn(Collection<Long> ids);
+
+    @Query("select c.id from Compilation c where :pinned is null or c.pinned = :pinned")
+    List<Long> findIdsByPinned(Boolean pinned, Pageable pageable);
+
+    @Query("select distinct c.id from Compilation c join c.events e where e.id in :eventIds")
+    List<Long> findIdsByEventIds(Collection<Long> eventIds);
+
+    @Query("select distinct c.id from Compilation c join c.events e where e.category.id = :categoryId")
+    List<Long> findIdsByEventCategoryId(Long categoryId);
+
+    @Query("select c.id from Compilation c where not exists (select v.id from CompilationView v where v.id = c.id)")
+    List<Long> findIdsWithoutView();
 }
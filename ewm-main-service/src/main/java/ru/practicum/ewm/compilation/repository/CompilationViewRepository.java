@@ -0,0 +1,14 @@
+package ru.practicum.ewm.compilation.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import ru.practicum.ewm.compilation.model.CompilationView;
+
+import java.util.List;
+
+public interface CompilationViewRepository extends JpaRepository<CompilationView, Long> {
+
+    List<CompilationView> findAllByPinned(Boolean pinned, Pageable pageable);
+
+    List<CompilationView> findAllBy(Pageable pageable);
+}
@@ -0,0 +1,97 @@
+package ru.practicum.ewm.compilation.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.compilation.CompilationMapper;
+import ru.practicum.ewm.compilation.dto.CompilationDto;
+import ru.practicum.ewm.compilation.model.Compilation;
+import ru.practicum.ewm.event.dto.EventShortDto;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.request.model.RequestStatus;
+import ru.practicum.ewm.request.repository.EventRequestCount;
+import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
+import ru.practicum.ewm.stats.StatsService;
+import ru.practicum.ewm.stats.ViewCountReplica;
+import ru.practicum.ewm.util.DateTimeUtils;
+import ru.practicum.statsdto.ViewChanges;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Maps a whole page of compilations at once: confirmed requests of all their events are counted in
+ * one grouped query and views are looked up in one call, however many compilations and events
+ * the page holds. Events are expected to be fetched with their category and initiator.
+ *
+ * <p>Read paths map inside their transaction with {@link #renderWithoutViews} and add the views
+ * after it with {@link #withViews}, so no stats call holds a database connection.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class CompilationRenderer {
+
+    private final ParticipationRequestRepository requestRepository;
+    private final StatsService statsService;
+    private final ViewCountReplica viewCountReplica;
+
+    public CompilationDto render(Compilation compilation) {
+        return render(List.of(compilation)).get(0);
+    }
+
+    public List<CompilationDto> render(List<Compilation> compilations) {
+        return withViews(renderWithoutViews(compilations));
+    }
+
+    public List<CompilationDto> renderWithoutViews(List<Compilation> compilations) {
+        Set<Long> eventIds = compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .map(Event::getId)
+                .collect(Collectors.toSet());
+        Map<Long, Long> confirmed = confirmed(eventIds);
+        return compilations.stream()
+                .map(compilation -> CompilationMapper.toDto(compilation, confirmed, Map.of()))
+                .toList();
+    }
+
+    /**
+     * Sets the current views on the events of the compilations, from the replica while it is fresh
+     * and from the stats server otherwise.
+     */
+    public List<CompilationDto> withViews(List<CompilationDto> compilations) {
+        Set<Long> eventIds = compilations.stream()
+                .flatMap(compilation -> compilation.getEvents().stream())
+                .map(EventShortDto::getId)
+                .collect(Collectors.toSet());
+        Map<Long, Long> views = views(eventIds);
+        compilations.forEach(compilation -> compilation.getEvents()
+                .forEach(event -> event.setViews(views.getOrDefault(event.getId(), 0L))));
+        return compilations;
+    }
+
+    private Map<Long, Long> confirmed(Set<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+        return requestRepository.countByEventIdInAndStatus(eventIds, RequestStatus.CONFIRMED).stream()
+                .collect(Collectors.toMap(EventRequestCount::eventId, EventRequestCount::count));
+    }
+
+    private Map<Long, Long> views(Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+        return viewCountReplica.views(eventIds).orElseGet(() -> {
+            List<String> uris = eventIds.stream()
+                    .map(id -> "/events/" + id)
+                    .toList();
+            Map<Long, Long> views = new HashMap<>();
+            statsService.getViews(uris, ViewChanges.COUNTED_SINCE, DateTimeUtils.now())
+                    .forEach((uri, hits) -> views.put(Long.parseLong(uri.substring(uri.lastIndexOf('/') + 1)), hits));
+            return views;
+        });
+    }
+}
@@ -1,28 +1,34 @@
 package ru.practicum.ewm.compilation.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import ru.practicum.ewm.compilation.CompilationMapper;
+import ru.practicum.ewm.compilation.CompilationChanged;
 import ru.practicum.ewm.compilation.dto.CompilationDto;
 import ru.practicum.ewm.compilation.dto.NewCompilationDto;
 import ru.practicum.ewm.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.ewm.compilation.model.Compilation;
+import ru.practicum.ewm.compilation.model.CompilationView;
 import ru.practicum.ewm.compilation.repository.CompilationRepository;
+import ru.practicum.ewm.compilation.repository.CompilationViewRepository;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.repository.EventRepository;
 import ru.practicum.ewm.exception.NotFoundException;
-import ru.practicum.ewm.request.model.RequestStatus;
-import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
-import ru.practicum.ewm.stats.StatsService;
-import ru.practicum.ewm.util.DateTimeUtils;
+import ru.practicum.ewm.util.CountEstimates;
+import ru.practicum.ewm.util.ReadOnlyTransactions;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,9 +37,18 @@ import java.util.stream.Collectors;
 public class CompilationServiceImpl implements CompilationService {
 
     private final CompilationRepository compilationRepository;
+    private final CompilationViewRepository viewRepository;
     private final EventRepository eventRepository;
-    private final ParticipationRequestRepository requestRepository;
-    private final StatsService statsService;
+    private final CompilationRenderer renderer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReadOnlyTransactions readOnlyTransactions;
+    private final CountEstimates countEstimates;
+
+    /**
+     * Serve public reads from {@code compilation_views}; when off, every page is rendered live.
+     */
+    @Value("${compilations.read-model:true}")
+    private boolean readModel;
 
     @Override
     @Transactional
@@ -45,7 +60,8 @@ public class CompilationServiceImpl implements CompilationService {
             compilation.setEvents(fetchEvents(dto.getEvents()));
         }
         Compilation saved = compilationRepository.save(compilation);
-        return toDto(saved);
+        eventPublisher.publishEvent(new CompilationChanged(saved.getId()));
+        return renderer.render(saved);
     }
 
     @Override
@@ -55,6 +71,7 @@ public class CompilationServiceImpl implements CompilationService {
             throw new NotFoundException("Compilation with id=" + compId + " was not found");
         }
         compilationRepository.deleteById(compId);
+        viewRepository.deleteById(compId);
     }
 
     @Override
@@ -72,54 +89,73 @@ public class CompilationServiceImpl implements CompilationService {
             compilation.setEvents(fetchEvents(dto.getEvents()));
         }
         Compilation saved = compilationRepository.save(compilation);
-        return toDto(saved);
+        eventPublisher.publishEvent(new CompilationChanged(saved.getId()));
+        return renderer.render(saved);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<CompilationDto> getCompilations(Boolean pinned, int from, int size) {
-        Pageable page = PageRequest.of(from / size, size);
-        List<Compilation> comps = compilationRepository.findAll(page).getContent();
-        if (pinned != null) {
-            comps = comps.stream()
-                    .filter(c -> c.getPinned().equals(pinned))
-                    .toList();
-        }
-        return comps.stream()
-                .map(this::toDto)
-                .toList();
+        Pageable page = PageRequest.of(from / size, size, Sort.by("id"));
+        List<CompilationDto> compilations = readOnlyTransactions.execute(() -> {
+            countEstimates.report(CountEstimates.Query.from("compilations").whereSet("pinned = ?", pinned));
+            if (!readModel) {
+                return renderPage(compilationRepository.findIdsByPinned(pinned, page));
+            }
+            List<CompilationView> views = pinned == null
+                    ? viewRepository.findAllBy(page)
+                    : viewRepository.findAllByPinned(pinned, page);
+            return views.stream().map(CompilationServiceImpl::fromSnapshot).toList();
+        });
+        return renderer.withViews(compilations);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CompilationDto getCompilation(Long compId) {
-        Compilation compilation = compilationRepository.findById(compId)
-                .orElseThrow(() -> new NotFoundException("Compilation with id=" + compId + " was not found"));
-        return toDto(compilation);
+        CompilationDto compilation = readOnlyTransactions.execute(() -> {
+            Optional<CompilationView> view = readModel ? viewRepository.findById(compId) : Optional.empty();
+            if (view.isPresent()) {
+                return fromSnapshot(view.get());
+            }
+            return renderPage(List.of(compId)).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new NotFoundException("Compilation with id=" + compId + " was not found"));
+        });
+        return renderer.withViews(List.of(compilation)).get(0);
+    }
+
+    /**
+     * Renders compilations in the order of {@code ids} with a constant number of round trips:
+     * one query for the compilations with their events and one for confirmed counts. Views are
+     * added by the caller once the transaction is over.
+     */
+    private List<CompilationDto> renderPage(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Compilation> byId = compilationRepository.findAllWithEventsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Compilation::getId, Function.identity()));
+        return renderer.renderWithoutViews(ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList());
     }
 
     private Set<Event> fetchEvents(Set<Long> ids) {
         return eventRepository.findAllByIdIn(ids).stream().collect(Collectors.toSet());
     }
 
-    private CompilationDto toDto(Compilation compilation) {
-        Map<Long, Long> confirmed = new HashMap<>();
-        Map<Long, Event> eventsById = compilation.getEvents().stream()
-                .collect(Collectors.toMap(Event::getId, e -> e));
-
-        for (Event event : compilation.getEvents()) {
-            confirmed.put(event.getId(),
-                    requestRepository.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED));
-        }
-        List<String> uris = eventsById.keySet().stream()
-                .map(id -> "/events/" + id)
-                .toList();
-        Map<String, Long> stats = statsService.getViews(uris, DateTimeUtils.now().minusYears(1), DateTimeUtils.now());
-        Map<Long, Long> views = new HashMap<>();
-        for (Map.Entry<String, Long> entry : stats.entrySet()) {
-            Long id = Long.parseLong(entry.getKey().substring(entry.getKey().lastIndexOf("/") + 1));
-            views.put(id, entry.getValue());
-        }
-        return CompilationMapper.toDto(compilation, confirmed, views);
+    /**
+     * The compilation as of its snapshot, copied so the managed entity is left untouched when the
+     * current views are set.
+     */
+    private static CompilationDto fromSnapshot(CompilationView view) {
+        return CompilationDto.builder()
+                .id(view.getId())
+                .events(view.getEvents().stream().map(event -> event.toBuilder().build()).toList())
+                .pinned(view.getPinned())
+                .title(view.getTitle())
+                .build();
     }
 }
@@ -0,0 +1,90 @@
+package ru.practicum.ewm.compilation.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.ewm.category.CategoryChanged;
+import ru.practicum.ewm.compilation.CompilationChanged;
+import ru.practicum.ewm.compilation.dto.CompilationDto;
+import ru.practicum.ewm.compilation.model.CompilationView;
+import ru.practicum.ewm.compilation.repository.CompilationRepository;
+import ru.practicum.ewm.compilation.repository.CompilationViewRepository;
+import ru.practicum.ewm.event.EventsChanged;
+import ru.practicum.ewm.util.DateTimeUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps {@link CompilationView} snapshots in line with their sources. Changes are applied after the
+ * commit of the transaction making them, in a transaction of their own. Snapshots carry no views,
+ * read paths add current ones, so building them never waits for the stats server.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CompilationViewUpdater {
+
+    private final CompilationRepository compilationRepository;
+    private final CompilationViewRepository viewRepository;
+    private final CompilationRenderer renderer;
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCompilationChanged(CompilationChanged change) {
+        refresh(List.of(change.compilationId()));
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onEventsChanged(EventsChanged change) {
+        refresh(compilationRepository.findIdsByEventIds(change.eventIds()));
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onCategoryChanged(CategoryChanged change) {
+        refresh(compilationRepository.findIdsByEventCategoryId(change.categoryId()));
+    }
+
+    /**
+     * Builds snapshots of compilations created before the read model existed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void buildMissing() {
+        List<Long> ids = compilationRepository.findIdsWithoutView();
+        if (!ids.isEmpty()) {
+            log.info("Building read model of {} compilations", ids.size());
+            refresh(ids);
+        }
+    }
+
+    private void refresh(List<Long> compilationIds) {
+        if (compilationIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = DateTimeUtils.now();
+        List<CompilationDto> rendered = renderer.renderWithoutViews(compilationRepository.findAllWithEventsByIdIn(compilationIds));
+        viewRepository.saveAll(rendered.stream()
+                .map(dto -> CompilationView.builder()
+                        .id(dto.getId())
+                        .title(dto.getTitle())
+                        .pinned(dto.getPinned())
+                        .events(dto.getEvents())
+                        .refreshedOn(now)
+                        .build())
+                .toList());
+
+        Set<Long> removed = new HashSet<>(compilationIds);
+        rendered.forEach(dto -> removed.remove(dto.getId()));
+        viewRepository.deleteAllById(removed);
+    }
+}
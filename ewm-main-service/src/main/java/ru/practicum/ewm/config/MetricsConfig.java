@@ -0,0 +1,31 @@
+package ru.practicum.ewm.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.metrics.OnlyOnceLoggingDenyMeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Turns {@code @Observed} methods into timers, and into spans once tracing is on the classpath.
+     */
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+
+    /**
+     * Stops registering new meters once a {@code uri} tag has more distinct values than allowed,
+     * so unmatched or raw request paths cannot blow up the number of time series.
+     */
+    @Bean
+    public MeterFilter uriTagCardinalityGuard(@Value("${metrics.max-uri-tags:100}") int maxUriTags) {
+        return MeterFilter.maximumAllowableTags("", "uri", maxUriTags, new OnlyOnceLoggingDenyMeterFilter(
+                () -> "Reached the maximum number of 'uri' tags (" + maxUriTags + "), new values are dropped"));
+    }
+}
@@ -0,0 +1,9 @@
+package ru.practicum.ewm.event;
+
+import java.util.Collection;
+
+/**
+ * Published when the public representation of events changes, including their confirmed requests.
+ */
+public record EventsChanged(Collection<Long> eventIds) {
+}
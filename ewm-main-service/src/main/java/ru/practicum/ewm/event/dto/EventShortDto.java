@@ -10,7 +10,7 @@ import ru.practicum.ewm.user.dto.UserShortDto;
 
 @Getter
 @Setter
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class EventShortDto {
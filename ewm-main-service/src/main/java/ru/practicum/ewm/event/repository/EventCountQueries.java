@@ -0,0 +1,41 @@
+package ru.practicum.ewm.event.repository;
+
+import ru.practicum.ewm.event.model.EventState;
+import ru.practicum.ewm.util.CountEstimates;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The filters of {@link EventSpecifications} as plain SQL, for the planner's estimate of how many
+ * events a search matches.
+ */
+public final class EventCountQueries {
+
+    private EventCountQueries() {
+    }
+
+    public static CountEstimates.Query adminSearch(List<Long> users, List<EventState> states, List<Long> categories,
+                                                   LocalDateTime start, LocalDateTime end) {
+        return CountEstimates.Query.from("events")
+                .whereAny("initiator_id = ANY(?)", users)
+                .whereAny("state = ANY(?)", states)
+                .whereAny("category_id = ANY(?)", categories)
+                .whereSet("event_date >= ?", start)
+                .whereSet("event_date <= ?", end);
+    }
+
+    public static CountEstimates.Query publicSearch(String text, List<Long> categories, Boolean paid,
+                                                    LocalDateTime start, LocalDateTime end) {
+        CountEstimates.Query query = CountEstimates.Query.from("events")
+                .where("state = 'PUBLISHED'");
+        if (text != null && !text.isBlank()) {
+            String pattern = "%" + text.toLowerCase() + "%";
+            query.where("(lower(annotation) LIKE ? OR lower(description) LIKE ?)", pattern, pattern);
+        }
+        return query.whereAny("category_id = ANY(?)", categories)
+                .whereSet("paid = ?", paid)
+                .whereSet("event_date >= ?", start)
+                .whereSet("event_date <= ?", end);
+    }
+}
@@ -1,17 +1,26 @@
 package ru.practicum.ewm.event.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.ewm.event.model.Event;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
-public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecificationExecutor<Event> {
+public interface EventRepository extends JpaRepository<Event, Long>, EventSearchRepository {
 
     boolean existsByCategoryId(Long categoryId);
 
+    @EntityGraph(attributePaths = {"category", "initiator"})
+    Optional<Event> findWithDetailsById(Long id);
+
     List<Event> findAllByIdIn(Set<Long> ids);
 
-    List<Event> findAllByInitiatorId(Long initiatorId, org.springframework.data.domain.Pageable pageable);
+    List<Event> findAllByInitiatorId(Long initiatorId, Pageable pageable);
+
+    @Query("SELECT MAX(e.id) FROM Event e")
+    Long findMaxId();
 }
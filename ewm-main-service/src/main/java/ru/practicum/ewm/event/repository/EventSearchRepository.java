@@ -0,0 +1,15 @@
+package ru.practicum.ewm.event.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+import ru.practicum.ewm.event.model.Event;
+
+public interface EventSearchRepository {
+
+    /**
+     * One page of matching events with their category and initiator, without the count query a
+     * {@code Page} would run with the same filters.
+     */
+    Slice<Event> findSlice(Specification<Event> spec, Pageable pageable);
+}
@@ -0,0 +1,47 @@
+package ru.practicum.ewm.event.repository;
+
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import ru.practicum.ewm.event.model.Event;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class EventSearchRepositoryImpl implements EventSearchRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Slice<Event> findSlice(Specification<Event> spec, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Event> query = cb.createQuery(Event.class);
+        Root<Event> root = query.from(Event.class);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+        EntityGraph<Event> graph = entityManager.createEntityGraph(Event.class);
+        graph.addAttributeNodes("category", "initiator");
+        // one row past the page tells whether there is a next one
+        List<Event> events = entityManager.createQuery(query)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, graph)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = events.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? events.subList(0, pageable.getPageSize()) : events, pageable, hasNext);
+    }
+}
@@ -1,15 +1,20 @@
 package ru.practicum.ewm.event.service;
 
+import io.micrometer.observation.annotation.Observed;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.category.model.Category;
 import ru.practicum.ewm.category.repository.CategoryRepository;
 import ru.practicum.ewm.event.EventMapper;
+import ru.practicum.ewm.event.EventsChanged;
 import ru.practicum.ewm.event.dto.EventFullDto;
 import ru.practicum.ewm.event.dto.EventRequestStatusUpdateRequest;
 import ru.practicum.ewm.event.dto.EventRequestStatusUpdateResult;
@@ -22,6 +27,7 @@ import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.EventState;
 import ru.practicum.ewm.event.model.Location;
 import ru.practicum.ewm.event.model.UserStateAction;
+import ru.practicum.ewm.event.repository.EventCountQueries;
 import ru.practicum.ewm.event.repository.EventRepository;
 import ru.practicum.ewm.event.repository.EventSpecifications;
 import ru.practicum.ewm.exception.BadRequestException;
@@ -31,11 +37,18 @@ import ru.practicum.ewm.request.RequestMapper;
 import ru.practicum.ewm.request.dto.ParticipationRequestDto;
 import ru.practicum.ewm.request.model.ParticipationRequest;
 import ru.practicum.ewm.request.model.RequestStatus;
+import ru.practicum.ewm.request.repository.EventRequestCount;
 import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
 import ru.practicum.ewm.stats.StatsService;
+import ru.practicum.ewm.stats.ViewCountReplica;
 import ru.practicum.ewm.user.model.User;
 import ru.practicum.ewm.user.repository.UserRepository;
+import ru.practicum.ewm.util.CountEstimates;
 import ru.practicum.ewm.util.DateTimeUtils;
+import ru.practicum.ewm.util.FanOut;
+import ru.practicum.ewm.util.FanOutFactory;
+import ru.practicum.ewm.util.ReadOnlyTransactions;
+import ru.practicum.statsdto.EndpointHit;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -44,8 +57,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+@Observed(name = "ewm.events")
 @Service
 @RequiredArgsConstructor
 @Transactional
@@ -56,6 +73,11 @@ public class EventServiceImpl implements EventService {
     private final UserRepository userRepository;
     private final ParticipationRequestRepository requestRepository;
     private final StatsService statsService;
+    private final ViewCountReplica viewCountReplica;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FanOutFactory fanOutFactory;
+    private final ReadOnlyTransactions readOnlyTransactions;
+    private final CountEstimates countEstimates;
 
     private static final String REASON = "For the requested operation the conditions are not met.";
 
@@ -132,11 +154,12 @@ public class EventServiceImpl implements EventService {
             }
         }
         Event saved = eventRepository.save(event);
+        eventPublisher.publishEvent(new EventsChanged(List.of(saved.getId())));
         return EventMapper.toFullDto(saved, confirmedCount(event.getId()), views(List.of(saved)).getOrDefault(event.getId(), 0L));
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<EventFullDto> searchAdminEvents(List<Long> users, List<String> states, List<Long> categories,
                                                 String rangeStart, String rangeEnd, int from, int size) {
         Pageable page = PageRequest.of(from / size, size);
@@ -154,21 +177,22 @@ public class EventServiceImpl implements EventService {
         LocalDateTime start = parseDateOrNull(rangeStart);
         LocalDateTime end = parseDateOrNull(rangeEnd);
 
-        List<Event> events = eventRepository.findAll(
-                EventSpecifications.hasUsers(users)
-                        .and(EventSpecifications.hasStates(stateEnums))
-                        .and(EventSpecifications.hasCategories(categories))
-                        .and(EventSpecifications.startAfter(start))
-                        .and(EventSpecifications.endBefore(end)),
-                page).getContent();
-
-        Map<Long, Long> confirmed = confirmedCounts(events);
-        Map<Long, Long> views = views(events);
-        return events.stream()
-                .map(event -> EventMapper.toFullDto(event,
-                        confirmed.getOrDefault(event.getId(), 0L),
-                        views.getOrDefault(event.getId(), 0L)))
-                .toList();
+        Specification<Event> filter = EventSpecifications.hasUsers(users)
+                .and(EventSpecifications.hasStates(stateEnums))
+                .and(EventSpecifications.hasCategories(categories))
+                .and(EventSpecifications.startAfter(start))
+                .and(EventSpecifications.endBefore(end));
+
+        try (FanOut fanOut = fanOutFactory.open()) {
+            LoadedEvents loaded = load(fanOut, () -> eventRepository.findSlice(filter, page).getContent());
+            countEstimates.report(EventCountQueries.adminSearch(users, stateEnums, categories, start, end));
+            Map<Long, Long> views = views(fanOut, loaded);
+            return loaded.events().stream()
+                    .map(event -> EventMapper.toFullDto(event,
+                            loaded.confirmed().getOrDefault(event.getId(), 0L),
+                            views.getOrDefault(event.getId(), 0L)))
+                    .toList();
+        }
     }
 
     @Override
@@ -204,71 +228,78 @@ public class EventServiceImpl implements EventService {
         }
 
         Event saved = eventRepository.save(event);
+        eventPublisher.publishEvent(new EventsChanged(List.of(saved.getId())));
         return EventMapper.toFullDto(saved, confirmedCount(saved.getId()), views(List.of(saved)).getOrDefault(saved.getId(), 0L));
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<EventShortDto> getPublicEvents(String text, List<Long> categories, Boolean paid,
                                                String rangeStart, String rangeEnd, Boolean onlyAvailable,
                                                String sort, int from, int size, HttpServletRequest request) {
-        statsService.hit(request);
-        LocalDateTime start = parseDateOrNull(rangeStart);
-        LocalDateTime end = parseDateOrNull(rangeEnd);
-        if (start == null && end == null) {
-            start = DateTimeUtils.now();
-        }
-        if (start != null && end != null && end.isBefore(start)) {
-            throw new BadRequestException("rangeEnd must be after rangeStart");
-        }
-
-        Sort sorting = "EVENT_DATE".equals(sort) ? Sort.by("eventDate") : Sort.unsorted();
-        Pageable page = PageRequest.of(from / size, size, sorting);
-
-        List<Event> events = eventRepository.findAll(
-                EventSpecifications.isPublished()
-                        .and(EventSpecifications.textSearch(text))
-                        .and(EventSpecifications.hasCategories(categories))
-                        .and(EventSpecifications.paid(paid))
-                        .and(EventSpecifications.startAfter(start))
-                        .and(EventSpecifications.endBefore(end)),
-                page).getContent();
-
-        Map<Long, Long> confirmed = confirmedCounts(events);
-        Map<Long, Long> views = views(events);
+        try (FanOut fanOut = fanOutFactory.open()) {
+            EndpointHit hit = statsService.toHit(request);
+            fanOut.fork(() -> statsService.hit(hit));
+            LocalDateTime start = parseDateOrNull(rangeStart);
+            LocalDateTime end = parseDateOrNull(rangeEnd);
+            if (start == null && end == null) {
+                start = DateTimeUtils.now();
+            }
+            if (start != null && end != null && end.isBefore(start)) {
+                throw new BadRequestException("rangeEnd must be after rangeStart");
+            }
 
-        List<EventShortDto> result = new ArrayList<>();
-        for (Event event : events) {
-            long confirmedCount = confirmed.getOrDefault(event.getId(), 0L);
-            if (Boolean.TRUE.equals(onlyAvailable) && event.getParticipantLimit() != 0
-                    && confirmedCount >= event.getParticipantLimit()) {
-                continue;
+            Sort sorting = "EVENT_DATE".equals(sort) ? Sort.by("eventDate") : Sort.unsorted();
+            Pageable page = PageRequest.of(from / size, size, sorting);
+
+            Specification<Event> filter = EventSpecifications.isPublished()
+                    .and(EventSpecifications.textSearch(text))
+                    .and(EventSpecifications.hasCategories(categories))
+                    .and(EventSpecifications.paid(paid))
+                    .and(EventSpecifications.startAfter(start))
+                    .and(EventSpecifications.endBefore(end));
+
+            LoadedEvents loaded = load(fanOut, () -> eventRepository.findSlice(filter, page).getContent());
+            countEstimates.report(EventCountQueries.publicSearch(text, categories, paid, start, end));
+            Map<Long, Long> views = views(fanOut, loaded);
+
+            List<EventShortDto> result = new ArrayList<>();
+            for (Event event : loaded.events()) {
+                long confirmedCount = loaded.confirmed().getOrDefault(event.getId(), 0L);
+                if (Boolean.TRUE.equals(onlyAvailable) && event.getParticipantLimit() != 0
+                        && confirmedCount >= event.getParticipantLimit()) {
+                    continue;
+                }
+                result.add(EventMapper.toShortDto(event,
+                        confirmedCount,
+                        views.getOrDefault(event.getId(), 0L)));
             }
-            result.add(EventMapper.toShortDto(event,
-                    confirmedCount,
-                    views.getOrDefault(event.getId(), 0L)));
-        }
 
-        if ("VIEWS".equals(sort)) {
-            result = result.stream()
-                    .sorted(Comparator.comparingLong(EventShortDto::getViews).reversed())
-                    .toList();
+            if ("VIEWS".equals(sort)) {
+                result = result.stream()
+                        .sorted(Comparator.comparingLong(EventShortDto::getViews).reversed())
+                        .toList();
+            }
+            return result;
         }
-        return result;
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EventFullDto getPublicEvent(Long id, HttpServletRequest request) {
-        statsService.hit(request);
-        Event event = eventRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException("Event with id=" + id + " was not found"));
-        if (event.getState() != EventState.PUBLISHED) {
-            throw new NotFoundException("Event with id=" + id + " was not found");
-        }
-        long confirmed = confirmedCount(id);
-        long views = views(List.of(event)).getOrDefault(id, 0L);
-        return EventMapper.toFullDto(event, confirmed, views);
+        try (FanOut fanOut = fanOutFactory.open()) {
+            EndpointHit hit = statsService.toHit(request);
+            // the views include this request: they are looked up once its hit is sent
+            CompletableFuture<Void> sent = fanOut.fork(() -> statsService.hit(hit));
+            LoadedEvents loaded = load(fanOut, sent, () -> eventRepository.findWithDetailsById(id)
+                    .filter(event -> event.getState() == EventState.PUBLISHED)
+                    .map(List::of)
+                    .orElseThrow(() -> new NotFoundException("Event with id=" + id + " was not found")));
+            Event event = loaded.events().get(0);
+            return EventMapper.toFullDto(event,
+                    loaded.confirmed().getOrDefault(id, 0L),
+                    views(fanOut, loaded).getOrDefault(id, 0L));
+        }
     }
 
     @Override
@@ -329,6 +360,9 @@ public class EventServiceImpl implements EventService {
             }
             requestRepository.saveAll(pending);
         }
+        if (!result.getConfirmedRequests().isEmpty()) {
+            eventPublisher.publishEvent(new EventsChanged(List.of(eventId)));
+        }
         return result;
     }
 
@@ -404,10 +438,14 @@ public class EventServiceImpl implements EventService {
         return views(map);
     }
 
-    private Map<Long, Long> views(Map<Long, Event> eventsById) {
+    Map<Long, Long> views(Map<Long, Event> eventsById) {
         if (eventsById.isEmpty()) {
             return Map.of();
         }
+        Optional<Map<Long, Long>> replicated = viewCountReplica.views(eventsById.keySet());
+        if (replicated.isPresent()) {
+            return replicated.get();
+        }
         List<String> uris = eventsById.keySet().stream()
                 .map(id -> "/events/" + id)
                 .toList();
@@ -426,15 +464,50 @@ public class EventServiceImpl implements EventService {
         return result;
     }
 
+    /**
+     * Reads events and their confirmed counts in one short read-only transaction while the views
+     * are looked up concurrently. The views are awaited by {@link #views(FanOut, LoadedEvents)}
+     * after the transaction, so a slow stats server never keeps a pooled connection busy.
+     */
+    private LoadedEvents load(FanOut fanOut, Supplier<List<Event>> query) {
+        return load(fanOut, CompletableFuture.completedFuture(null), query);
+    }
+
+    /**
+     * The same, starting the view lookup only once {@code after} is done.
+     */
+    private LoadedEvents load(FanOut fanOut, CompletableFuture<?> after, Supplier<List<Event>> query) {
+        return readOnlyTransactions.execute(() -> {
+            List<Event> events = query.get();
+            CompletableFuture<Map<Long, Long>> views = fanOut.forkAfter(after, () -> views(events));
+            return new LoadedEvents(events, confirmedCounts(events), views);
+        });
+    }
+
+    /**
+     * A view lookup failing or missing the deadline leaves the views at zero.
+     */
+    private Map<Long, Long> views(FanOut fanOut, LoadedEvents loaded) {
+        return fanOut.join(loaded.views(), Map.of(), "View lookup");
+    }
+
     private Map<Long, Long> confirmedCounts(List<Event> events) {
-        Map<Long, Long> result = new HashMap<>();
-        for (Event event : events) {
-            result.put(event.getId(), confirmedCount(event.getId()));
+        if (events.isEmpty()) {
+            return Map.of();
         }
-        return result;
+        List<Long> ids = events.stream()
+                .map(Event::getId)
+                .toList();
+        return requestRepository.countByEventIdInAndStatus(ids, RequestStatus.CONFIRMED).stream()
+                .collect(Collectors.toMap(EventRequestCount::eventId, EventRequestCount::count));
     }
 
     private long confirmedCount(Long eventId) {
         return requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
     }
+
+    private record LoadedEvents(List<Event> events,
+                                Map<Long, Long> confirmed,
+                                CompletableFuture<Map<Long, Long>> views) {
+    }
 }
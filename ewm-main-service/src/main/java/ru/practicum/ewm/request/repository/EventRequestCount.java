@@ -0,0 +1,4 @@
+package ru.practicum.ewm.request.repository;
+
+public record EventRequestCount(Long eventId, Long count) {
+}
@@ -1,8 +1,11 @@
 package ru.practicum.ewm.request.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.ewm.request.model.ParticipationRequest;
 import ru.practicum.ewm.request.model.RequestStatus;
+
+import java.util.Collection;
 import java.util.List;
 
 public interface ParticipationRequestRepository extends JpaRepository<ParticipationRequest, Long> {
@@ -11,6 +14,10 @@ public interface ParticipationRequestRepository extends JpaRepository<Participat
 
     long countByEventIdAndStatus(Long eventId, RequestStatus status);
 
+    @Query("select new ru.practicum.ewm.request.repository.EventRequestCount(r.event.id, count(r)) " +
+            "from ParticipationRequest r where r.event.id in :eventIds and r.status = :status group by r.event.id")
+    List<EventRequestCount> countByEventIdInAndStatus(Collection<Long> eventIds, RequestStatus status);
+
     List<ParticipationRequest> findAllByRequesterId(Long requesterId);
 
     List<ParticipationRequest> findAllByEventId(Long eventId);
@@ -1,8 +1,10 @@
 package ru.practicum.ewm.request.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.ewm.event.EventsChanged;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.EventState;
 import ru.practicum.ewm.event.repository.EventRepository;
@@ -27,6 +29,7 @@ public class RequestServiceImpl implements RequestService {
     private final ParticipationRequestRepository requestRepository;
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional(readOnly = true)
@@ -72,6 +75,9 @@ public class RequestServiceImpl implements RequestService {
                 .build();
 
         ParticipationRequest saved = requestRepository.save(request);
+        if (status == RequestStatus.CONFIRMED) {
+            eventPublisher.publishEvent(new EventsChanged(List.of(eventId)));
+        }
         return RequestMapper.toDto(saved);
     }
 
@@ -82,6 +88,9 @@ public class RequestServiceImpl implements RequestService {
         if (!request.getRequester().getId().equals(userId)) {
             throw new NotFoundException("Request with id=" + requestId + " was not found");
         }
+        if (request.getStatus() == RequestStatus.CONFIRMED) {
+            eventPublisher.publishEvent(new EventsChanged(List.of(request.getEvent().getId())));
+        }
         request.setStatus(RequestStatus.CANCELED);
         return RequestMapper.toDto(requestRepository.save(request));
     }
@@ -0,0 +1,204 @@
+package ru.practicum.ewm.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsdto.EndpointHit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers hits to the stats server, spooling them to disk while it is unavailable.
+ *
+ * <p>Hits are sent directly as long as the server takes them. After a failure, new hits go to the
+ * {@link HitSpool} without trying the server, so requests do not wait on it, and a background
+ * thread replays the spool in batches until it is empty again. Hits of shards that failed are put
+ * back at the end of the spool, so the shards that took theirs do not count them again. A batch a
+ * shard rejects is sent again hit by hit, and only the hits rejected as invalid are dropped.</p>
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(HitSpoolProperties.class)
+public class HitSender {
+
+    /**
+     * 421 Misdirected Request, which a shard answers for hits of another shard.
+     */
+    private static final int MISDIRECTED = 421;
+
+    private final StatsClient statsClient;
+    private final HitSpoolProperties properties;
+    private final HitSpool spool;
+    private final Counter replayed;
+    private final Counter rejected;
+
+    private volatile boolean available = true;
+    private ScheduledExecutorService replayer;
+
+    public HitSender(StatsClient statsClient, HitSpoolProperties properties, MeterRegistry registry)
+            throws IOException {
+        this.statsClient = statsClient;
+        this.properties = properties;
+        this.spool = properties.isEnabled()
+                ? new HitSpool(properties.getDirectory(), properties.getSegmentSize(), properties.getMaxSize())
+                : null;
+        this.replayed = Counter.builder("ewm.stats.spool.replayed")
+                .description("Spooled hits delivered to the stats server")
+                .register(registry);
+        this.rejected = Counter.builder("ewm.stats.spool.rejected")
+                .description("Spooled hits the stats server refused as invalid")
+                .register(registry);
+        if (spool != null) {
+            Gauge.builder("ewm.stats.spool.depth", spool, HitSpool::depth)
+                    .description("Hits waiting in the spool for the stats server")
+                    .register(registry);
+            FunctionCounter.builder("ewm.stats.spool.dropped", spool, HitSpool::dropped)
+                    .description("Spooled hits dropped because the spool was full")
+                    .register(registry);
+        }
+    }
+
+    public void send(EndpointHit hit) {
+        if (spool == null) {
+            statsClient.hit(hit);
+            return;
+        }
+        if (available && spool.isEmpty()) {
+            try {
+                statsClient.hit(hit);
+                return;
+            } catch (RuntimeException ex) {
+                if (!retriable(ex)) {
+                    throw ex;
+                }
+                available = false;
+                log.warn("Stats server did not take a hit, spooling hits until it is back: {}", ex.getMessage());
+            }
+        }
+        spool.append(hit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (spool == null) {
+            return;
+        }
+        long interval = properties.getReplayInterval().toMillis();
+        replayer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("hit-spool-replay").daemon()
+                .factory());
+        replayer.scheduleWithFixedDelay(this::replay, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (replayer != null) {
+            replayer.shutdownNow();
+        }
+        if (spool != null) {
+            spool.close();
+        }
+    }
+
+    /**
+     * Delivers spooled hits until the spool is empty or the server fails again.
+     */
+    void replay() {
+        try {
+            deliverSpooled();
+        } catch (RuntimeException ex) {
+            log.warn("Failed to replay spooled hits", ex);
+        }
+    }
+
+    private void deliverSpooled() {
+        while (true) {
+            List<HitSpool.Spooled> batch = spool.peek(properties.getBatchSize());
+            if (batch.isEmpty()) {
+                available = true;
+                return;
+            }
+            List<EndpointHit> hits = batch.stream().map(HitSpool.Spooled::hit).toList();
+            List<EndpointHit> retry = new ArrayList<>();
+            RuntimeException error = null;
+            int delivered = hits.size();
+            for (StatsClient.FailedBatch failed : statsClient.hitAll(hits)) {
+                delivered -= failed.hits().size();
+                if (retriable(failed.error())) {
+                    retry.addAll(failed.hits());
+                    error = failed.error();
+                } else {
+                    RuntimeException last = deliverOneByOne(failed.hits(), retry);
+                    error = last != null ? last : error;
+                }
+            }
+            if (retry.size() == hits.size()) {
+                available = false;
+                log.debug("Stats server is still unavailable, {} hits spooled: {}", spool.depth(), error.getMessage());
+                return;
+            }
+            replayed.increment(delivered);
+            // the hits a shard did not take go back to the end of the spool, the rest is done
+            retry.forEach(spool::append);
+            spool.commit(batch.get(batch.size() - 1));
+            if (!retry.isEmpty()) {
+                available = false;
+                log.debug("Stats server took part of the spooled hits, {} left to retry: {}", retry.size(),
+                        error.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the hits of a batch a shard rejected one at a time, so that only the invalid ones are
+     * dropped. Hits that fail for another reason are added to {@code retry}; returns the last error.
+     */
+    private RuntimeException deliverOneByOne(List<EndpointHit> hits, List<EndpointHit> retry) {
+        RuntimeException error = null;
+        int invalid = 0;
+        for (EndpointHit hit : hits) {
+            try {
+                statsClient.hit(hit);
+                replayed.increment();
+            } catch (RuntimeException ex) {
+                error = ex;
+                if (retriable(ex)) {
+                    retry.add(hit);
+                } else {
+                    invalid++;
+                    log.debug("Stats server rejected spooled hit {}: {}", hit, ex.getMessage());
+                }
+            }
+        }
+        if (invalid > 0) {
+            rejected.increment(invalid);
+            log.warn("Stats server rejected {} of {} spooled hits, dropping them: {}", invalid, hits.size(),
+                    error.getMessage());
+        }
+        return error;
+    }
+
+    private static boolean retriable(RuntimeException ex) {
+        // a misdirected hit is fine, the shards are just configured differently than this client
+        return ex instanceof ResourceAccessException
+                || ex instanceof HttpServerErrorException
+                || ex instanceof HttpClientErrorException.TooManyRequests
+                || ex instanceof HttpClientErrorException client && client.getStatusCode().value() == MISDIRECTED;
+    }
+}
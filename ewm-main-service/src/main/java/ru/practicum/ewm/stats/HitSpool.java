@@ -0,0 +1,336 @@
+package ru.practicum.ewm.stats;
+
+import ru.practicum.statsdto.EndpointHit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only spool of hits the stats server could not take, in memory-mapped segment files of a
+ * fixed size named after their first sequence number.
+ *
+ * <p>Each record is {@code length, crc32c, payload}; the length is written last, so the zero-filled
+ * rest of a segment or a torn record ends it. The sequence of the last hit delivered is kept in a
+ * checkpoint file and delivered segments are deleted. Once {@code maxSegments} are in use, the
+ * oldest one is dropped with the hits it still holds. Records survive a crash of the process, but
+ * are only forced to disk when a segment is finished.</p>
+ */
+final class HitSpool implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final int HEADER = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final Path checkpointFile;
+    // oldest first, appends go to the last one
+    private final Deque<Segment> segments = new ArrayDeque<>();
+
+    private long nextSequence = 1;
+    // every hit up to this sequence was delivered or dropped
+    private long delivered;
+    private long dropped;
+    private Segment readSegment;
+    private int readPosition;
+
+    HitSpool(Path directory, int segmentSize, long maxSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(2, maxSize / segmentSize);
+        this.checkpointFile = directory.resolve("checkpoint");
+        Files.createDirectories(directory);
+
+        delivered = readCheckpoint();
+        for (Path path : segmentFiles()) {
+            Segment segment = new Segment(path, firstSequence(path), map(path));
+            if (segments.isEmpty()) {
+                // hits of segments dropped before are gone
+                delivered = Math.max(delivered, segment.firstSequence - 1);
+            }
+            int position = 0;
+            Spooled record;
+            while ((record = read(segment, position)) != null) {
+                nextSequence = Math.max(nextSequence, record.sequence() + 1);
+                if (record.sequence() <= delivered) {
+                    readSegment = segment;
+                    readPosition = record.end();
+                }
+                position = record.end();
+            }
+            if (position == 0) {
+                // nothing was written to it, the segment opened below may take its name
+                delete(segment);
+                continue;
+            }
+            segment.writePosition = position;
+            segments.addLast(segment);
+        }
+        nextSequence = Math.max(nextSequence, delivered + 1);
+        if (readSegment == null) {
+            readSegment = segments.peekFirst();
+        }
+        deleteDelivered();
+        // records are never appended after a possibly torn one
+        openSegment();
+    }
+
+    synchronized void append(EndpointHit hit) {
+        byte[] payload = encode(nextSequence, hit);
+        if (HEADER + payload.length > segmentSize) {
+            throw new IllegalArgumentException("Hit of " + payload.length + " bytes does not fit in a spool segment");
+        }
+        Segment segment = segments.getLast();
+        if (segment.writePosition + HEADER + payload.length > segmentSize) {
+            segment.buffer.force();
+            openSegment();
+            segment = segments.getLast();
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        int position = segment.writePosition;
+        segment.buffer.put(position + HEADER, payload);
+        segment.buffer.putInt(position + 4, (int) crc.getValue());
+        segment.buffer.putInt(position, payload.length);
+        segment.writePosition = position + HEADER + payload.length;
+        nextSequence++;
+    }
+
+    /**
+     * Up to {@code max} of the oldest undelivered hits, left in the spool until {@link #commit}.
+     */
+    synchronized List<Spooled> peek(int max) {
+        List<Spooled> result = new ArrayList<>();
+        Iterator<Segment> iterator = segments.iterator();
+        Segment segment = iterator.next();
+        while (segment != readSegment) {
+            segment = iterator.next();
+        }
+        int position = readPosition;
+        while (result.size() < max) {
+            Spooled record = read(segment, position);
+            if (record != null) {
+                result.add(record);
+                position = record.end();
+            } else if (iterator.hasNext()) {
+                segment = iterator.next();
+                position = 0;
+            } else {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks every hit up to {@code last}, as returned by {@link #peek}, as delivered.
+     */
+    synchronized void commit(Spooled last) {
+        if (last.sequence() <= delivered) {
+            // its segment was dropped meanwhile
+            return;
+        }
+        delivered = last.sequence();
+        readSegment = last.segment();
+        readPosition = last.end();
+        writeCheckpoint(delivered);
+        deleteDelivered();
+    }
+
+    synchronized long depth() {
+        return nextSequence - 1 - delivered;
+    }
+
+    synchronized boolean isEmpty() {
+        return depth() == 0;
+    }
+
+    /**
+     * Hits lost because the spool was full.
+     */
+    synchronized long dropped() {
+        return dropped;
+    }
+
+    @Override
+    public synchronized void close() {
+        segments.getLast().buffer.force();
+    }
+
+    private void openSegment() {
+        if (segments.size() >= maxSegments) {
+            dropOldest();
+        }
+        Path path = directory.resolve(String.format("%020d%s", nextSequence, SEGMENT_SUFFIX));
+        try {
+            segments.addLast(new Segment(path, nextSequence, map(path)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        if (readSegment == null) {
+            readSegment = segments.getFirst();
+            readPosition = 0;
+        }
+    }
+
+    private void dropOldest() {
+        Segment oldest = segments.removeFirst();
+        // sequences are contiguous, so the next segment starts right after the dropped hits
+        long lastDropped = segments.isEmpty() ? nextSequence - 1 : segments.getFirst().firstSequence - 1;
+        if (lastDropped > delivered) {
+            dropped += lastDropped - delivered;
+            delivered = lastDropped;
+        }
+        if (oldest == readSegment) {
+            readSegment = segments.peekFirst();
+            readPosition = 0;
+        }
+        delete(oldest);
+    }
+
+    private void deleteDelivered() {
+        while (segments.size() > 1 && segments.getFirst() != readSegment) {
+            delete(segments.removeFirst());
+        }
+        Segment first = segments.peekFirst();
+        if (segments.size() > 1 && first == readSegment && readPosition == first.writePosition) {
+            delete(segments.removeFirst());
+            readSegment = segments.getFirst();
+            readPosition = 0;
+        }
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(checkpointFile, StandardCharsets.US_ASCII).trim());
+    }
+
+    private void writeCheckpoint(long sequence) {
+        try {
+            Path tmp = directory.resolve("checkpoint.tmp");
+            Files.writeString(tmp, Long.toString(sequence), StandardCharsets.US_ASCII);
+            Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void delete(Segment segment) {
+        try {
+            // the mapping itself is released once the buffer is collected
+            Files.deleteIfExists(segment.path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(long sequence, EndpointHit hit) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeUTF(hit.getApp());
+            out.writeUTF(hit.getUri());
+            out.writeUTF(hit.getIp());
+            out.writeUTF(hit.getTimestamp());
+            if (hit.getUserAgent() != null) {
+                out.writeUTF(hit.getUserAgent());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Spooled read(Segment segment, int position) {
+        if (position + HEADER > segmentSize) {
+            return null;
+        }
+        MappedByteBuffer buffer = segment.buffer;
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > segmentSize - position - HEADER) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(position + HEADER, payload);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+            return null;
+        }
+        try (DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long sequence = record.readLong();
+            EndpointHit hit = EndpointHit.builder()
+                    .app(record.readUTF())
+                    .uri(record.readUTF())
+                    .ip(record.readUTF())
+                    .timestamp(record.readUTF())
+                    // only written for hits that have one
+                    .userAgent(record.available() > 0 ? record.readUTF() : null)
+                    .build();
+            return new Spooled(sequence, hit, segment, position + HEADER + length);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * A spooled hit and where its record ends.
+     */
+    record Spooled(long sequence, EndpointHit hit, Segment segment, int end) {
+    }
+
+    private static final class Segment {
+
+        final Path path;
+        final long firstSequence;
+        final MappedByteBuffer buffer;
+        int writePosition;
+
+        Segment(Path path, long firstSequence, MappedByteBuffer buffer) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+        }
+    }
+}
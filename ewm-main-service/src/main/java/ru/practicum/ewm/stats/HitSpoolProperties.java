@@ -0,0 +1,36 @@
+package ru.practicum.ewm.stats;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.spool")
+public class HitSpoolProperties {
+
+    /**
+     * Keep hits the stats server did not take and send them once it is back; without the spool
+     * they are lost.
+     */
+    private boolean enabled = true;
+
+    private Path directory = Path.of("data", "hit-spool");
+
+    private int segmentSize = 4 * 1024 * 1024;
+
+    /**
+     * Disk space the spool may take; beyond it the oldest spooled hits are dropped.
+     */
+    private long maxSize = 256L * 1024 * 1024;
+
+    private int batchSize = 500;
+
+    /**
+     * Pause between attempts to deliver spooled hits.
+     */
+    private Duration replayInterval = Duration.ofSeconds(1);
+}
@@ -1,8 +1,10 @@
 package ru.practicum.ewm.stats;
 
+import io.micrometer.observation.annotation.Observed;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import ru.practicum.statsclient.StatsClient;
 import ru.practicum.statsdto.EndpointHit;
@@ -14,23 +16,43 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+@Observed(name = "ewm.stats")
 @Service
 @RequiredArgsConstructor
 public class StatsService {
 
     private final StatsClient statsClient;
+    private final HitSender hitSender;
 
     @Value("${app.name:ewm-main-service}")
     private String appName;
 
     public void hit(HttpServletRequest request) {
-        EndpointHit hit = EndpointHit.builder()
+        hit(toHit(request));
+    }
+
+    public void hit(EndpointHit hit) {
+        hitSender.send(hit);
+    }
+
+    /**
+     * Captures the hit while the request is still in scope, so it can be sent from another thread.
+     */
+    public EndpointHit toHit(HttpServletRequest request) {
+        return EndpointHit.builder()
                 .app(appName)
                 .uri(request.getRequestURI())
                 .ip(request.getRemoteAddr())
                 .timestamp(DateTimeUtils.FORMATTER.format(LocalDateTime.now()))
+                .userAgent(userAgent(request))
                 .build();
-        statsClient.hit(hit);
+    }
+
+    private static String userAgent(HttpServletRequest request) {
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        return userAgent != null && userAgent.length() > EndpointHit.MAX_USER_AGENT_LENGTH
+                ? userAgent.substring(0, EndpointHit.MAX_USER_AGENT_LENGTH)
+                : userAgent;
     }
 
     public Map<String, Long> getViews(List<String> uris, LocalDateTime start, LocalDateTime end) {
@@ -0,0 +1,180 @@
+package ru.practicum.ewm.stats;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsdto.ViewChanges;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Local copy of the unique view counts of events, kept up to date from the stats server changefeed.
+ *
+ * <p>Counts are served only while the last successful poll is within
+ * {@code stats.replication.max-staleness}; otherwise callers fall back to asking the stats server.
+ * Even then they may miss the views of the last poll interval, so the replica is off by default.</p>
+ *
+ * <p>Full reloads ask for the uris of all event ids, which the stats server answers from its cached
+ * buckets rather than by counting the whole history of every uri again.</p>
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(ViewReplicationProperties.class)
+public class ViewCountReplica {
+
+    private static final String EVENT_URI_PREFIX = "/events/";
+    private static final int RESYNC_SLICE = 10_000;
+
+    private final StatsClient statsClient;
+    private final EventRepository eventRepository;
+    private final ViewReplicationProperties properties;
+
+    private volatile Map<Long, Long> views = new ConcurrentHashMap<>();
+    private volatile long lastSync;
+    private volatile boolean synced;
+    // changefeed position per stats server shard
+    private String[] epochs;
+    private long[] cursors;
+    private long lastFullSync;
+    private ScheduledExecutorService poller;
+
+    public ViewCountReplica(StatsClient statsClient,
+                            EventRepository eventRepository,
+                            ViewReplicationProperties properties,
+                            MeterRegistry registry) {
+        this.statsClient = statsClient;
+        this.eventRepository = eventRepository;
+        this.properties = properties;
+        Gauge.builder("ewm.views.replica.lag", this, replica -> replica.synced
+                        ? (System.nanoTime() - replica.lastSync) / 1e9
+                        : Double.NaN)
+                .description("Seconds since the local view counts were last brought up to date")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Counts of the given events if the local copy is fresh enough; events without views are absent.
+     */
+    public Optional<Map<Long, Long>> views(Collection<Long> eventIds) {
+        if (!synced || System.nanoTime() - lastSync > properties.getMaxStaleness().toNanos()) {
+            return Optional.empty();
+        }
+        Map<Long, Long> current = views;
+        Map<Long, Long> result = new HashMap<>();
+        for (Long id : eventIds) {
+            Long count = current.get(id);
+            if (count != null) {
+                result.put(id, count);
+            }
+        }
+        return Optional.of(result);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = properties.getPollInterval().toMillis();
+        poller = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("view-replica").daemon()
+                .factory());
+        poller.scheduleWithFixedDelay(this::poll, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    void poll() {
+        try {
+            if (epochs == null || System.nanoTime() - lastFullSync > properties.getFullResyncInterval().toNanos()) {
+                resync();
+            }
+            for (int shard = 0; shard < epochs.length; shard++) {
+                ViewChanges page;
+                do {
+                    page = statsClient.getChanges(shard, epochs[shard], cursors[shard], properties.getPageSize());
+                    if (page.isReset()) {
+                        log.info("View changefeed position of stats shard {} lost, reloading all counts", shard);
+                        resync();
+                        return;
+                    }
+                    apply(views, page.getStats());
+                    cursors[shard] = page.getCursor();
+                } while (page.isMore());
+            }
+            lastSync = System.nanoTime();
+        } catch (RuntimeException ex) {
+            log.warn("Failed to update view counts from the stats server", ex);
+        }
+    }
+
+    private void resync() {
+        // the heads are taken first, changes made during the reload are then replayed on top of it
+        int shards = statsClient.shardCount();
+        String[] headEpochs = new String[shards];
+        long[] headCursors = new long[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            ViewChanges head = statsClient.getChanges(shard, null, null, 0);
+            headEpochs[shard] = head.getEpoch();
+            headCursors[shard] = head.getCursor();
+        }
+        long started = System.nanoTime();
+        Map<Long, Long> loaded = new ConcurrentHashMap<>();
+        Long maxId = eventRepository.findMaxId();
+        LocalDateTime now = LocalDateTime.now();
+        // consecutive ids are sent as ranges, each slice split into parallel chunks by the client
+        for (long from = 1; maxId != null && from <= maxId; from += RESYNC_SLICE) {
+            List<String> uris = LongStream.range(from, Math.min(from + RESYNC_SLICE, maxId + 1))
+                    .mapToObj(id -> EVENT_URI_PREFIX + id)
+                    .toList();
+            apply(loaded, statsClient.getStats(ViewChanges.COUNTED_SINCE, now, uris, true));
+        }
+        views = loaded;
+        epochs = headEpochs;
+        cursors = headCursors;
+        lastFullSync = started;
+        lastSync = started;
+        synced = true;
+        log.info("Loaded view counts of {} events", loaded.size());
+    }
+
+    private static void apply(Map<Long, Long> target, List<ViewStats> stats) {
+        if (stats == null) {
+            return;
+        }
+        for (ViewStats stat : stats) {
+            String uri = stat.getUri();
+            if (uri == null || !uri.startsWith(EVENT_URI_PREFIX)) {
+                continue;
+            }
+            try {
+                target.put(Long.parseLong(uri.substring(EVENT_URI_PREFIX.length())), stat.getHits());
+            } catch (NumberFormatException ignored) {
+                // not an event page
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.ewm.stats;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.replication")
+public class ViewReplicationProperties {
+
+    /**
+     * Off by default: local counts trail the stats server by up to a poll interval, while views are
+     * expected to include a hit right after it was sent.
+     */
+    private boolean enabled = false;
+
+    private Duration pollInterval = Duration.ofSeconds(1);
+
+    /**
+     * Local counts older than this are not served, reads go to the stats server instead.
+     */
+    private Duration maxStaleness = Duration.ofSeconds(30);
+
+    /**
+     * Interval of complete reloads repairing anything the changefeed may have missed.
+     */
+    private Duration fullResyncInterval = Duration.ofMinutes(15);
+
+    private int pageSize = 1000;
+}
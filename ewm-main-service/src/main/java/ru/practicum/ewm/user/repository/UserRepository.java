@@ -1,9 +1,13 @@
 package ru.practicum.ewm.user.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import ru.practicum.ewm.user.model.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
     boolean existsByEmailIgnoreCase(String email);
+
+    Slice<User> findAllBy(Pageable pageable);
 }
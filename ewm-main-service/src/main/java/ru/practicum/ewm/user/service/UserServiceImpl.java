@@ -12,6 +12,7 @@ import ru.practicum.ewm.user.dto.NewUserRequest;
 import ru.practicum.ewm.user.dto.UserDto;
 import ru.practicum.ewm.user.model.User;
 import ru.practicum.ewm.user.repository.UserRepository;
+import ru.practicum.ewm.util.CountEstimates;
 
 import java.util.List;
 
@@ -21,6 +22,7 @@ import java.util.List;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final CountEstimates countEstimates;
 
     @Override
     @Transactional
@@ -45,9 +47,11 @@ public class UserServiceImpl implements UserService {
     public List<UserDto> getUsers(List<Long> ids, int from, int size) {
         Pageable page = PageRequest.of(from / size, size);
         if (ids == null || ids.isEmpty()) {
-            return userRepository.findAll(page).stream()
+            List<UserDto> users = userRepository.findAllBy(page).stream()
                     .map(UserMapper::toDto)
                     .toList();
+            countEstimates.report(CountEstimates.Query.from("users"));
+            return users;
         }
         return userRepository.findAllById(ids).stream()
                 .map(UserMapper::toDto)
@@ -0,0 +1,128 @@
+package ru.practicum.ewm.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Total counts for paged listings, sent as {@code X-Total-Count} only to clients asking with
+ * {@code Prefer: count=estimated}. The number is the planner's row estimate for the listing's
+ * filters, so it costs one {@code EXPLAIN} instead of a {@code COUNT(*)} over all matching rows.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CountEstimates {
+
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final String PREFERENCE = "count=estimated";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Sets the estimated number of rows matched by {@code query} on the current response, if its
+     * request asked for one.
+     */
+    public void report(Query query) {
+        ServletRequestAttributes attributes = currentRequest();
+        if (attributes == null || attributes.getResponse() == null || !requested(attributes.getRequest())) {
+            return;
+        }
+        try {
+            long estimate = estimate(query);
+            HttpServletResponse response = attributes.getResponse();
+            response.setHeader(TOTAL_COUNT_HEADER, Long.toString(estimate));
+            response.setHeader("Preference-Applied", PREFERENCE);
+        } catch (DataAccessException ex) {
+            // the listing itself is still valid, the header is best effort
+            log.warn("Could not estimate the count of {}: {}", query.sql, ex.getMessage());
+        }
+    }
+
+    long estimate(Query query) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + query.sql, String.class,
+                query.args.toArray());
+        try {
+            JsonNode root = objectMapper.readTree(plan);
+            return root.path(0).path("Plan").path("Plan Rows").asLong();
+        } catch (Exception ex) {
+            throw new IllegalStateException("Unexpected plan " + plan, ex);
+        }
+    }
+
+    static boolean requested(HttpServletRequest request) {
+        var values = request.getHeaders("Prefer");
+        while (values != null && values.hasMoreElements()) {
+            for (String preference : values.nextElement().split(",")) {
+                if (PREFERENCE.equalsIgnoreCase(preference.trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static ServletRequestAttributes currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes
+                : null;
+    }
+
+    /**
+     * {@code SELECT 1 FROM table WHERE ...} with the filters of a listing; only the plan of it is
+     * ever computed.
+     */
+    public static final class Query {
+
+        private final StringBuilder sql;
+        private final List<Object> args = new ArrayList<>();
+
+        private Query(String table) {
+            this.sql = new StringBuilder("SELECT 1 FROM ").append(table).append(" WHERE TRUE");
+        }
+
+        public static Query from(String table) {
+            return new Query(table);
+        }
+
+        public Query where(String condition, Object... values) {
+            sql.append(" AND ").append(condition);
+            args.addAll(List.of(values));
+            return this;
+        }
+
+        /**
+         * Adds {@code condition} with {@code value} bound, unless the value is not set.
+         */
+        public Query whereSet(String condition, Object value) {
+            return value == null ? this : where(condition, value);
+        }
+
+        /**
+         * Adds {@code condition} with {@code values} bound as one array, unless there are none.
+         */
+        public Query whereAny(String condition, Collection<?> values) {
+            return values == null || values.isEmpty() ? this : where(condition, (Object) array(values));
+        }
+
+        private static Object[] array(Collection<?> values) {
+            return values.stream().allMatch(Number.class::isInstance)
+                    ? values.stream().map(value -> ((Number) value).longValue()).toArray(Long[]::new)
+                    : values.stream().map(value -> value instanceof Enum<?> constant ? constant.name() : value.toString())
+                    .toArray(String[]::new);
+        }
+    }
+}
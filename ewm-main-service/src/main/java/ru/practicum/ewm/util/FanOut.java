@@ -0,0 +1,78 @@
+package ru.practicum.ewm.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent lookups of one request concurrently under a shared deadline.
+ *
+ * <p>Forked work must not touch the caller's persistence context, database access stays on the
+ * calling thread. A lookup that fails or misses the deadline yields its fallback. Closing the scope
+ * waits for unfinished tasks until the deadline and cancels the rest, so nothing outlives the request.</p>
+ */
+@Slf4j
+public final class FanOut implements AutoCloseable {
+
+    private final Executor executor;
+    private final long deadline;
+    private final List<CompletableFuture<?>> tasks = new ArrayList<>();
+
+    FanOut(Executor executor, long timeoutNanos) {
+        this.executor = executor;
+        this.deadline = System.nanoTime() + timeoutNanos;
+    }
+
+    public <T> CompletableFuture<T> fork(Supplier<T> task) {
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(task, executor);
+        tasks.add(future);
+        return future;
+    }
+
+    public CompletableFuture<Void> fork(Runnable task) {
+        CompletableFuture<Void> future = CompletableFuture.runAsync(task, executor);
+        tasks.add(future);
+        return future;
+    }
+
+    /**
+     * Forks {@code task} once {@code first} is done, whether it succeeded or not.
+     */
+    public <T> CompletableFuture<T> forkAfter(CompletableFuture<?> first, Supplier<T> task) {
+        CompletableFuture<T> future = first.handle((result, ex) -> null)
+                .thenApplyAsync(ignored -> task.get(), executor);
+        tasks.add(future);
+        return future;
+    }
+
+    public <T> T join(CompletableFuture<T> task, T fallback, String name) {
+        try {
+            return task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            task.cancel(true);
+            log.warn("{} did not complete in time", name);
+        } catch (ExecutionException ex) {
+            log.warn("{} failed", name, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+        }
+        return fallback;
+    }
+
+    @Override
+    public void close() {
+        for (CompletableFuture<?> task : tasks) {
+            if (!task.isDone()) {
+                join(task, null, "Background lookup");
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.ewm.util;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opens {@link FanOut} scopes running on virtual threads that carry the caller's observation and
+ * trace context.
+ */
+@Component
+public class FanOutFactory {
+
+    private final ExecutorService executor;
+    private final Duration deadline;
+
+    public FanOutFactory(@Value("${fan-out.deadline:2s}") Duration deadline) {
+        ContextSnapshotFactory snapshots = ContextSnapshotFactory.builder().build();
+        this.executor = ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("fan-out-", 0).factory()),
+                snapshots::captureAll);
+        this.deadline = deadline;
+    }
+
+    public FanOut open() {
+        return new FanOut(executor, deadline.toNanos());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
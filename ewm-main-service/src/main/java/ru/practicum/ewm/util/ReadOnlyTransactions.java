@@ -0,0 +1,27 @@
+package ru.practicum.ewm.util;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Short read-only transactions for read paths that also call remote services: the database work
+ * runs in {@link #execute}, the remote calls and the rendering outside of it, so a pooled
+ * connection is only held while the database is actually queried.
+ */
+@Component
+public class ReadOnlyTransactions {
+
+    private final TransactionTemplate template;
+
+    public ReadOnlyTransactions(PlatformTransactionManager transactionManager) {
+        this.template = new TransactionTemplate(transactionManager);
+        this.template.setReadOnly(true);
+    }
+
+    public <T> T execute(Supplier<T> work) {
+        return template.execute(status -> work.get());
+    }
+}
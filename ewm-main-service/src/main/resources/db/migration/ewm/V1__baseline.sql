@@ -0,0 +1,77 @@
+-- Schema exactly as Hibernate schema update created it before migrations existed, constraint names
+-- included; such databases are baselined at this version instead of running it, so everything
+-- added since belongs in later versions.
+
+CREATE TABLE categories (
+    id   BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name VARCHAR(50) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_category_name UNIQUE (name)
+);
+
+CREATE TABLE compilation_events (
+    compilation_id BIGINT NOT NULL,
+    event_id       BIGINT NOT NULL,
+    PRIMARY KEY (compilation_id, event_id)
+);
+
+CREATE TABLE compilations (
+    pinned BOOLEAN     NOT NULL,
+    id     BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    title  VARCHAR(50) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE events (
+    lat                FLOAT4        NOT NULL,
+    lon                FLOAT4        NOT NULL,
+    paid               BOOLEAN       NOT NULL,
+    participant_limit  INTEGER       NOT NULL,
+    request_moderation BOOLEAN       NOT NULL,
+    category_id        BIGINT        NOT NULL,
+    created_on         TIMESTAMP(6)  NOT NULL,
+    event_date         TIMESTAMP(6)  NOT NULL,
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    initiator_id       BIGINT        NOT NULL,
+    published_on       TIMESTAMP(6),
+    state              VARCHAR(20)   NOT NULL CHECK (state IN ('PENDING', 'PUBLISHED', 'CANCELED')),
+    title              VARCHAR(120)  NOT NULL,
+    annotation         VARCHAR(2000) NOT NULL,
+    description        VARCHAR(7000) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE requests (
+    created      TIMESTAMP(6) NOT NULL,
+    event_id     BIGINT       NOT NULL,
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    requester_id BIGINT       NOT NULL,
+    status       VARCHAR(20)  NOT NULL CHECK (status IN ('PENDING', 'CONFIRMED', 'REJECTED', 'CANCELED')),
+    PRIMARY KEY (id),
+    CONSTRAINT uq_request UNIQUE (event_id, requester_id)
+);
+
+CREATE TABLE users (
+    id    BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name  VARCHAR(250) NOT NULL,
+    email VARCHAR(254) NOT NULL UNIQUE,
+    PRIMARY KEY (id)
+);
+
+ALTER TABLE compilation_events
+    ADD CONSTRAINT FKaotb0v4s78i5ulvmifbd1fl07 FOREIGN KEY (event_id) REFERENCES events;
+
+ALTER TABLE compilation_events
+    ADD CONSTRAINT FKa2vg2r2op6iuf9q4kp41ryim6 FOREIGN KEY (compilation_id) REFERENCES compilations;
+
+ALTER TABLE events
+    ADD CONSTRAINT FKo6mla8j1p5bokt4dxrlmgwc28 FOREIGN KEY (category_id) REFERENCES categories;
+
+ALTER TABLE events
+    ADD CONSTRAINT FKgsyp7tc40dhju9fq5i767kyun FOREIGN KEY (initiator_id) REFERENCES users;
+
+ALTER TABLE requests
+    ADD CONSTRAINT FKm7vtr0204t3xcymbx4sa9t1ot FOREIGN KEY (event_id) REFERENCES events;
+
+ALTER TABLE requests
+    ADD CONSTRAINT FKeoax2t4j9i61p9lmon3009tr4 FOREIGN KEY (requester_id) REFERENCES users;
@@ -0,0 +1,13 @@
+-- Public search only ever reads published events, filtered and sorted by date.
+CREATE INDEX idx_events_published_date ON events (event_date) WHERE state = 'PUBLISHED';
+
+-- Admin search by state and date range.
+CREATE INDEX idx_events_state_date ON events (state, event_date);
+
+-- Events of a user and the foreign keys checked on user and category deletes.
+CREATE INDEX idx_events_initiator ON events (initiator_id);
+CREATE INDEX idx_events_category ON events (category_id);
+
+-- Confirmed counts per event; uq_request already leads with event_id for plain listings.
+CREATE INDEX idx_requests_event_status ON requests (event_id, status);
+CREATE INDEX idx_requests_requester ON requests (requester_id);
@@ -0,0 +1,14 @@
+-- Read model of public compilation pages, refreshed on every change of a compilation or its events.
+CREATE TABLE compilation_views (
+    id           BIGINT       NOT NULL,
+    title        VARCHAR(50)  NOT NULL,
+    pinned       BOOLEAN      NOT NULL,
+    events       JSONB        NOT NULL,
+    refreshed_on TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_compilation_views_pinned ON compilation_views (pinned, id);
+
+-- Compilations containing a changed event.
+CREATE INDEX idx_compilation_events_event ON compilation_events (event_id);
@@ -0,0 +1,94 @@
+package ru.practicum.ewm;
+
+import com.sun.net.httpserver.HttpServer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.web.client.RestClient;
+import ru.practicum.ewm.compilation.dto.CompilationDto;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Starts the main service on a database the first release left behind: the schema Hibernate
+ * schema update created, and no migration history. The stats server is a stub that knows no hits.
+ */
+class LegacySchemaUpgradeTest {
+
+    @TempDir
+    private static Path directory;
+
+    private static EmbeddedPostgres postgres;
+    private static HttpServer stats;
+    private static ConfigurableApplicationContext service;
+    private static RestClient client;
+
+    @BeforeAll
+    static void startOnLegacyDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("legacy/schema.sql"));
+        }
+        stats = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stats.createContext("/", exchange -> {
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(exchange.getRequestURI().getPath().startsWith("/hit") ? 201 : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        stats.start();
+        service = new SpringApplicationBuilder(EwmServiceApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--stats-server.url=http://localhost:" + stats.getAddress().getPort(),
+                        "--stats.spool.directory=" + directory.resolve("spool"));
+        int port = ((ServletWebServerApplicationContext) service).getWebServer().getPort();
+        client = RestClient.create("http://localhost:" + port);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        if (service != null) {
+            service.close();
+        }
+        if (stats != null) {
+            stats.stop(0);
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void laterMigrationsAreAppliedAndValidated() {
+        JdbcTemplate jdbc = new JdbcTemplate(postgres.getPostgresDatabase());
+        assertEquals(List.of("1", "2", "3"), jdbc.queryForList(
+                "SELECT version FROM flyway_schema_history WHERE success ORDER BY installed_rank", String.class));
+
+        CompilationDto compilation = client.get()
+                .uri("/compilations/{id}", 1)
+                .retrieve()
+                .body(CompilationDto.class);
+        assertEquals("Summer", compilation.getTitle());
+        assertEquals(1, compilation.getEvents().size());
+        assertEquals("Open air", compilation.getEvents().get(0).getTitle());
+        assertEquals(0L, compilation.getEvents().get(0).getViews());
+    }
+}
@@ -0,0 +1,202 @@
+package ru.practicum.ewm;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.ewm.event.model.Event;
+import ru.practicum.ewm.event.model.EventState;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.event.repository.EventSpecifications;
+import ru.practicum.ewm.request.model.RequestStatus;
+import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Plans every query of the event and request repositories against the migrated schema with
+ * sequential scans disabled; a query still planned as a sequential scan has no index to use.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RepositoryQueryPlanTest.Recording.class)
+class RepositoryQueryPlanTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private ParticipationRequestRepository requestRepository;
+
+    @Autowired
+    private StatementRecorder recorder;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @Test
+    void eventQueriesUseIndexes() {
+        assertIndexed(() -> eventRepository.existsByCategoryId(1L));
+        assertIndexed(() -> eventRepository.findWithDetailsById(1L));
+        assertIndexed(() -> eventRepository.findAllByIdIn(Set.of(1L, 2L)));
+        assertIndexed(() -> eventRepository.findAllByInitiatorId(1L, PageRequest.of(0, 10, Sort.by("id"))));
+    }
+
+    @Test
+    void publicSearchUsesPublishedIndex() {
+        assertIndexed(() -> eventRepository.findSlice(EventSpecifications.isPublished()
+                        .and(EventSpecifications.textSearch("jazz"))
+                        .and(EventSpecifications.paid(false))
+                        .and(EventSpecifications.startAfter(NOW)),
+                PageRequest.of(0, 10, Sort.by("eventDate"))));
+        assertIndexed(() -> eventRepository.findSlice(EventSpecifications.isPublished()
+                        .and(EventSpecifications.hasCategories(List.of(1L, 2L)))
+                        .and(EventSpecifications.startAfter(NOW))
+                        .and(EventSpecifications.endBefore(NOW.plusMonths(1))),
+                PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void adminSearchUsesIndexes() {
+        assertIndexed(() -> eventRepository.findSlice(adminFilter(List.of(1L), null, null), PageRequest.of(0, 10)));
+        assertIndexed(() -> eventRepository.findSlice(
+                adminFilter(null, List.of(EventState.PENDING), null).and(EventSpecifications.startAfter(NOW)),
+                PageRequest.of(0, 10)));
+        assertIndexed(() -> eventRepository.findSlice(adminFilter(null, null, List.of(3L)), PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void requestQueriesUseIndexes() {
+        assertIndexed(() -> requestRepository.existsByRequesterIdAndEventId(1L, 2L));
+        assertIndexed(() -> requestRepository.countByEventIdAndStatus(1L, RequestStatus.CONFIRMED));
+        assertIndexed(() -> requestRepository.countByEventIdInAndStatus(List.of(1L, 2L), RequestStatus.CONFIRMED));
+        assertIndexed(() -> requestRepository.findAllByRequesterId(1L));
+        assertIndexed(() -> requestRepository.findAllByEventId(1L));
+        assertIndexed(() -> requestRepository.findAllByIdIn(List.of(1L, 2L)));
+    }
+
+    private static Specification<Event> adminFilter(List<Long> users, List<EventState> states, List<Long> categories) {
+        return EventSpecifications.hasUsers(users)
+                .and(EventSpecifications.hasStates(states))
+                .and(EventSpecifications.hasCategories(categories));
+    }
+
+    private void assertIndexed(Runnable query) {
+        recorder.statements.clear();
+        query.run();
+        assertFalse(recorder.statements.isEmpty(), "no statement executed");
+        for (QueryInfo statement : recorder.statements) {
+            String plan = explain(statement);
+            assertFalse(plan.contains("Seq Scan"), () -> statement.getQuery() + "\n" + plan);
+        }
+    }
+
+    private static String explain(QueryInfo statement) {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            try (Statement settings = connection.createStatement()) {
+                settings.execute("SET enable_seqscan = off");
+            }
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.getQuery())) {
+                for (List<ParameterSetOperation> parameters : statement.getParametersList()) {
+                    for (ParameterSetOperation parameter : parameters) {
+                        parameter.getMethod().invoke(explain, parameter.getArgs());
+                    }
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("Could not explain " + statement.getQuery(), ex);
+        }
+    }
+
+    static class StatementRecorder implements QueryExecutionListener {
+
+        private final List<QueryInfo> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            queryInfoList.stream()
+                    .filter(query -> query.getQuery().stripLeading().toLowerCase().startsWith("select"))
+                    .forEach(statements::add);
+        }
+    }
+
+    @TestConfiguration
+    static class Recording {
+
+        @Bean
+        StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+
+        @Bean
+        static BeanPostProcessor recordingDataSource(ObjectProvider<StatementRecorder> recorder) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource
+                            ? ProxyDataSourceBuilder.create(dataSource).listener(recorder.getObject()).build()
+                            : bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ru.practicum.ewm.compilation.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.compilation.dto.CompilationDto;
+import ru.practicum.ewm.compilation.model.CompilationView;
+import ru.practicum.ewm.compilation.repository.CompilationRepository;
+import ru.practicum.ewm.compilation.repository.CompilationViewRepository;
+import ru.practicum.ewm.event.dto.EventShortDto;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
+import ru.practicum.ewm.stats.StatsService;
+import ru.practicum.ewm.stats.ViewCountReplica;
+import ru.practicum.ewm.util.CountEstimates;
+import ru.practicum.ewm.util.ReadOnlyTransactions;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CompilationServiceImplTest {
+
+    @Mock
+    private CompilationRepository compilationRepository;
+
+    @Mock
+    private CompilationViewRepository viewRepository;
+
+    @Mock
+    private EventRepository eventRepository;
+
+    @Mock
+    private ParticipationRequestRepository requestRepository;
+
+    @Mock
+    private StatsService statsService;
+
+    @Mock
+    private ViewCountReplica viewCountReplica;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ReadOnlyTransactions readOnlyTransactions;
+
+    @Mock
+    private CountEstimates countEstimates;
+
+    private boolean inTransaction;
+
+    @Test
+    void snapshotGetsCurrentViewsFromStatsOutsideTheTransaction() {
+        CompilationServiceImpl service = new CompilationServiceImpl(compilationRepository, viewRepository,
+                eventRepository, new CompilationRenderer(requestRepository, statsService, viewCountReplica),
+                eventPublisher, readOnlyTransactions, countEstimates);
+        ReflectionTestUtils.setField(service, "readModel", true);
+        when(readOnlyTransactions.execute(any())).thenAnswer(invocation -> {
+            inTransaction = true;
+            try {
+                return ((Supplier<?>) invocation.getArgument(0)).get();
+            } finally {
+                inTransaction = false;
+            }
+        });
+        EventShortDto snapshotted = EventShortDto.builder().id(7L).title("Concert").views(5L).build();
+        CompilationView view = new CompilationView(1L, "Weekend", true, List.of(snapshotted), LocalDateTime.now());
+        when(viewRepository.findById(1L)).thenReturn(Optional.of(view));
+        when(viewCountReplica.views(anyCollection())).thenReturn(Optional.empty());
+        when(statsService.getViews(eq(List.of("/events/7")), any(), any())).thenAnswer(invocation -> {
+            assertFalse(inTransaction, "stats were called inside the transaction");
+            return Map.of("/events/7", 12L);
+        });
+
+        CompilationDto compilation = service.getCompilation(1L);
+
+        assertEquals(12L, compilation.getEvents().get(0).getViews());
+        assertEquals("Concert", compilation.getEvents().get(0).getTitle());
+        assertEquals(5L, snapshotted.getViews());
+    }
+}
@@ -0,0 +1,218 @@
+package ru.practicum.ewm.event;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.RestClient;
+import ru.practicum.ewm.EwmServiceApplication;
+import ru.practicum.ewm.event.dto.EventFullDto;
+import ru.practicum.ewm.event.dto.EventShortDto;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Holds the stats server's answer to a view lookup and checks that the event read waiting for it
+ * has already given its pooled connection back, and that events detached from their session
+ * with open session in view disabled still map completely.
+ */
+class EventReadConnectionTest {
+
+    @TempDir
+    private static Path directory;
+
+    private static EmbeddedPostgres postgres;
+    private static HttpServer stats;
+    private static ConfigurableApplicationContext service;
+    private static RestClient client;
+    private static HikariPoolMXBean pool;
+
+    private static volatile CountDownLatch entered;
+    private static volatile CountDownLatch release;
+
+    @BeforeAll
+    static void start() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        stats = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stats.setExecutor(Executors.newCachedThreadPool());
+        stats.createContext("/", EventReadConnectionTest::answer);
+        stats.start();
+        service = new SpringApplicationBuilder(EwmServiceApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--stats-server.url=http://localhost:" + stats.getAddress().getPort(),
+                        "--stats-server.read-timeout=30s",
+                        "--stats.spool.directory=" + directory.resolve("spool"),
+                        "--fan-out.deadline=30s");
+        int port = ((ServletWebServerApplicationContext) service).getWebServer().getPort();
+        client = RestClient.create("http://localhost:" + port);
+        pool = pool(service.getBean(DataSource.class));
+
+        JdbcTemplate jdbc = new JdbcTemplate(postgres.getPostgresDatabase());
+        jdbc.update("INSERT INTO users (name, email) VALUES ('Ann', 'ann@mail.ru')");
+        jdbc.update("INSERT INTO categories (name) VALUES ('Concerts')");
+        for (String title : List.of("Open air", "Jazz night")) {
+            jdbc.update("INSERT INTO events (lat, lon, paid, participant_limit, request_moderation, category_id, " +
+                            "created_on, event_date, initiator_id, published_on, state, title, annotation, description) " +
+                            "VALUES (55.7, 37.6, false, 0, true, 1, ?, ?, 1, ?, 'PUBLISHED', ?, ?, ?)",
+                    LocalDateTime.now().minusDays(2), LocalDateTime.now().plusDays(10), LocalDateTime.now().minusDays(1),
+                    title, "Annotation of " + title, "Description of " + title);
+        }
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        if (service != null) {
+            service.close();
+        }
+        if (stats != null) {
+            stats.stop(0);
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void holdViewLookups() {
+        entered = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void releaseViewLookups() {
+        release.countDown();
+    }
+
+    @Test
+    void publicEventReleasesItsConnectionBeforeWaitingForViews() throws Exception {
+        EventFullDto event = whileLookingUpViews(() -> client.get()
+                .uri("/events/{id}", 1)
+                .retrieve()
+                .body(EventFullDto.class));
+
+        assertEquals(7L, event.getViews());
+        assertEquals("Open air", event.getTitle());
+        assertEquals("Concerts", event.getCategory().getName());
+        assertEquals("Ann", event.getInitiator().getName());
+        assertEquals(0L, event.getConfirmedRequests());
+    }
+
+    @Test
+    void publicEventsReleaseTheirConnectionBeforeWaitingForViews() throws Exception {
+        List<EventShortDto> events = whileLookingUpViews(() -> client.get()
+                .uri("/events?sort=EVENT_DATE")
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<EventShortDto>>() {}));
+
+        assertEquals(2, events.size());
+        for (EventShortDto event : events) {
+            assertEquals(7L, event.getViews());
+            assertEquals("Concerts", event.getCategory().getName());
+            assertEquals("Ann", event.getInitiator().getName());
+        }
+    }
+
+    @Test
+    void adminSearchReleasesItsConnectionBeforeWaitingForViews() throws Exception {
+        List<EventFullDto> events = whileLookingUpViews(() -> client.get()
+                .uri("/admin/events?states=PUBLISHED")
+                .retrieve()
+                .body(new ParameterizedTypeReference<List<EventFullDto>>() {}));
+
+        assertEquals(2, events.size());
+        for (EventFullDto event : events) {
+            assertEquals(7L, event.getViews());
+            assertEquals("Concerts", event.getCategory().getName());
+            assertEquals("Ann", event.getInitiator().getName());
+        }
+    }
+
+    /**
+     * Sends the request, waits until its view lookup reaches the stats server and, while that
+     * lookup is held, for no connection to be in use.
+     */
+    private static <T> T whileLookingUpViews(Supplier<T> request) throws Exception {
+        CompletableFuture<T> response = CompletableFuture.supplyAsync(request);
+        assertTrue(entered.await(10, TimeUnit.SECONDS), "view lookup did not reach the stats server");
+
+        // background jobs may take a connection briefly, a request pinning one would hold it throughout
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (pool.getActiveConnections() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.getActiveConnections());
+        assertFalse(response.isDone());
+
+        release.countDown();
+        return response.get(10, TimeUnit.SECONDS);
+    }
+
+    private static HikariPoolMXBean pool(DataSource dataSource) throws SQLException {
+        return dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+    }
+
+    /**
+     * Takes hits and answers {@code GET /stats} with 7 views of every requested uri once released.
+     */
+    private static void answer(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String body = "[]";
+        int status = 200;
+        if (path.startsWith("/hit")) {
+            status = 201;
+        } else if (path.equals("/stats")) {
+            entered.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            List<String> stats = new ArrayList<>();
+            for (String parameter : exchange.getRequestURI().getRawQuery().split("&")) {
+                if (parameter.startsWith("uris=")) {
+                    String uri = URLDecoder.decode(parameter.substring("uris=".length()), StandardCharsets.UTF_8);
+                    stats.add("{\"app\":\"ewm-main-service\",\"uri\":\"" + uri + "\",\"hits\":7}");
+                }
+            }
+            body = "[" + String.join(",", stats) + "]";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -1,32 +1,60 @@
 package ru.practicum.ewm.event.service;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.mock.web.MockHttpServletRequest;
 import ru.practicum.ewm.category.model.Category;
 import ru.practicum.ewm.category.repository.CategoryRepository;
+import ru.practicum.ewm.event.dto.EventFullDto;
+import ru.practicum.ewm.event.dto.EventShortDto;
 import ru.practicum.ewm.event.dto.NewEventDto;
 import ru.practicum.ewm.event.dto.UpdateEventAdminRequest;
 import ru.practicum.ewm.event.dto.LocationDto;
 import ru.practicum.ewm.event.model.AdminStateAction;
 import ru.practicum.ewm.event.model.Event;
 import ru.practicum.ewm.event.model.EventState;
+import ru.practicum.ewm.event.model.Location;
 import ru.practicum.ewm.event.repository.EventRepository;
 import ru.practicum.ewm.exception.BadRequestException;
 import ru.practicum.ewm.exception.ConflictException;
+import ru.practicum.ewm.exception.NotFoundException;
+import ru.practicum.ewm.request.model.RequestStatus;
+import ru.practicum.ewm.request.repository.EventRequestCount;
 import ru.practicum.ewm.request.repository.ParticipationRequestRepository;
 import ru.practicum.ewm.stats.StatsService;
+import ru.practicum.ewm.stats.ViewCountReplica;
 import ru.practicum.ewm.user.model.User;
 import ru.practicum.ewm.user.repository.UserRepository;
+import ru.practicum.ewm.util.CountEstimates;
 import ru.practicum.ewm.util.DateTimeUtils;
+import ru.practicum.ewm.util.FanOutFactory;
+import ru.practicum.ewm.util.ReadOnlyTransactions;
+import ru.practicum.statsdto.EndpointHit;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -49,9 +77,29 @@ class EventServiceImplTest {
     @Mock
     private StatsService statsService;
 
+    @Mock
+    private ViewCountReplica viewCountReplica;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ReadOnlyTransactions readOnlyTransactions;
+
+    @Mock
+    private CountEstimates countEstimates;
+
+    @Spy
+    private FanOutFactory fanOutFactory = new FanOutFactory(Duration.ofMillis(300));
+
     @InjectMocks
     private EventServiceImpl eventService;
 
+    @AfterEach
+    void tearDown() {
+        fanOutFactory.shutdown();
+    }
+
     @Test
     void addEventShouldFailWhenDateIsTooSoon() {
         long userId = 1L;
@@ -97,6 +145,121 @@ class EventServiceImplTest {
                 () -> eventService.searchAdminEvents(null, java.util.List.of("WRONG_STATE"), null, null, null, 0, 10));
     }
 
+    @Test
+    void publicEventViewsIncludeTheCurrentHit() {
+        AtomicBoolean sent = new AtomicBoolean();
+        readPublished(buildPublished(1L));
+        when(statsService.toHit(any())).thenReturn(new EndpointHit());
+        doAnswer(invocation -> {
+            Thread.sleep(50);
+            sent.set(true);
+            return null;
+        }).when(statsService).hit(any(EndpointHit.class));
+        when(statsService.getViews(eq(List.of("/events/1")), any(), any()))
+                .thenAnswer(invocation -> Map.of("/events/1", sent.get() ? 5L : 4L));
+        when(requestRepository.countByEventIdInAndStatus(List.of(1L), RequestStatus.CONFIRMED))
+                .thenReturn(List.of(new EventRequestCount(1L, 2L)));
+
+        EventFullDto dto = eventService.getPublicEvent(1L, new MockHttpServletRequest("GET", "/events/1"));
+
+        assertEquals(5L, dto.getViews());
+        assertEquals(2L, dto.getConfirmedRequests());
+    }
+
+    @Test
+    void publicEventViewsAreZeroWhenTheLookupFails() {
+        readPublished(buildPublished(1L));
+        when(statsService.getViews(any(), any(), any())).thenThrow(new IllegalStateException("stats server is down"));
+
+        EventFullDto dto = eventService.getPublicEvent(1L, new MockHttpServletRequest("GET", "/events/1"));
+
+        assertEquals(0L, dto.getViews());
+        assertEquals(0L, dto.getConfirmedRequests());
+    }
+
+    @Test
+    void publicEventViewsAreZeroWhenTheLookupIsLate() {
+        CountDownLatch never = new CountDownLatch(1);
+        readPublished(buildPublished(1L));
+        when(statsService.getViews(any(), any(), any())).thenAnswer(invocation -> {
+            never.await(10, TimeUnit.SECONDS);
+            return Map.of("/events/1", 5L);
+        });
+        long started = System.nanoTime();
+
+        EventFullDto dto = eventService.getPublicEvent(1L, new MockHttpServletRequest("GET", "/events/1"));
+
+        assertEquals(0L, dto.getViews());
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started) < 5);
+    }
+
+    @Test
+    void unpublishedEventIsNotFound() {
+        Event pending = buildPublished(1L);
+        pending.setState(EventState.PENDING);
+        inTransaction();
+        when(eventRepository.findWithDetailsById(1L)).thenReturn(Optional.of(pending));
+
+        assertThrows(NotFoundException.class,
+                () -> eventService.getPublicEvent(1L, new MockHttpServletRequest("GET", "/events/1")));
+    }
+
+    @Test
+    void publicEventsAreSortedByViewsAndFull() {
+        Event full = buildPublished(1L);
+        full.setParticipantLimit(2);
+        List<Event> events = List.of(full, buildPublished(2L), buildPublished(3L));
+        inTransaction();
+        when(eventRepository.findSlice(any(), any())).thenReturn(new SliceImpl<>(events));
+        when(viewCountReplica.views(Set.of(1L, 2L, 3L))).thenReturn(Optional.empty());
+        when(statsService.getViews(any(), any(), any()))
+                .thenReturn(Map.of("/events/1", 9L, "/events/2", 3L, "/events/3", 7L));
+        when(requestRepository.countByEventIdInAndStatus(any(), eq(RequestStatus.CONFIRMED)))
+                .thenReturn(List.of(new EventRequestCount(1L, 2L), new EventRequestCount(3L, 1L)));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/events");
+
+        List<EventShortDto> all = eventService.getPublicEvents(null, null, null, null, null, false,
+                "VIEWS", 0, 10, request);
+        assertEquals(List.of(1L, 3L, 2L), all.stream().map(EventShortDto::getId).toList());
+        assertEquals(List.of(9L, 7L, 3L), all.stream().map(EventShortDto::getViews).toList());
+
+        List<EventShortDto> available = eventService.getPublicEvents(null, null, null, null, null, true,
+                "VIEWS", 0, 10, request);
+        assertEquals(List.of(3L, 2L), available.stream().map(EventShortDto::getId).toList());
+        assertEquals(1L, available.get(0).getConfirmedRequests());
+    }
+
+    private void readPublished(Event event) {
+        inTransaction();
+        when(eventRepository.findWithDetailsById(event.getId())).thenReturn(Optional.of(event));
+        when(viewCountReplica.views(Set.of(event.getId()))).thenReturn(Optional.empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void inTransaction() {
+        when(readOnlyTransactions.execute(any())).thenAnswer(invocation ->
+                ((Supplier<Object>) invocation.getArgument(0)).get());
+    }
+
+    private Event buildPublished(long id) {
+        return Event.builder()
+                .id(id)
+                .annotation("Annotation of event " + id)
+                .description("Description of event " + id)
+                .category(buildCategory(2L))
+                .eventDate(LocalDateTime.now().plusDays(7))
+                .location(new Location(55.0f, 37.0f))
+                .paid(false)
+                .participantLimit(0)
+                .requestModeration(true)
+                .title("Event " + id)
+                .createdOn(LocalDateTime.now().minusDays(1))
+                .publishedOn(LocalDateTime.now().minusHours(1))
+                .state(EventState.PUBLISHED)
+                .initiator(buildUser(1L))
+                .build();
+    }
+
     private User buildUser(long id) {
         return User.builder()
                 .id(id)
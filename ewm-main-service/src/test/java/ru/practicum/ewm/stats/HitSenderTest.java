@@ -0,0 +1,154 @@
+package ru.practicum.ewm.stats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsdto.EndpointHit;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class HitSenderTest {
+
+    @TempDir
+    private Path directory;
+
+    private final StatsClient statsClient = mock(StatsClient.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private HitSender sender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        HitSpoolProperties properties = new HitSpoolProperties();
+        properties.setDirectory(directory);
+        properties.setSegmentSize(4096);
+        properties.setBatchSize(3);
+        sender = new HitSender(statsClient, properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sender.stop();
+    }
+
+    @Test
+    void hitsAreSpooledWhileServerIsDownAndReplayedAfter() {
+        doThrow(new ResourceAccessException("Connection refused")).when(statsClient).hit(any());
+        doAnswer(invocation -> List.of(new StatsClient.FailedBatch(invocation.getArgument(0),
+                new ResourceAccessException("Connection refused")))).when(statsClient).hitAll(anyList());
+        for (int i = 0; i < 7; i++) {
+            sender.send(hit(i));
+        }
+        sender.replay();
+        // only the first hit tried the server, the rest went straight to the spool
+        verify(statsClient, times(1)).hit(any());
+        assertEquals(7.0, registry.get("ewm.stats.spool.depth").gauge().value());
+
+        List<String> delivered = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<EndpointHit> batch = invocation.getArgument(0);
+            batch.forEach(hit -> delivered.add(hit.getUri()));
+            return List.of();
+        }).when(statsClient).hitAll(anyList());
+        sender.replay();
+
+        assertEquals(List.of("/events/0", "/events/1", "/events/2", "/events/3", "/events/4", "/events/5",
+                "/events/6"), delivered);
+        assertEquals(0.0, registry.get("ewm.stats.spool.depth").gauge().value());
+        assertEquals(7.0, registry.get("ewm.stats.spool.replayed").counter().count());
+
+        doNothing().when(statsClient).hit(any());
+        sender.send(hit(7));
+        verify(statsClient, times(2)).hit(any());
+    }
+
+    @Test
+    void onlyHitsOfFailedShardsAreRetried() {
+        spool(5);
+        List<String> delivered = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<EndpointHit> batch = invocation.getArgument(0);
+            List<EndpointHit> failed = batch.stream().filter(hit -> hit.getUri().equals("/events/1")).toList();
+            batch.stream().filter(hit -> !failed.contains(hit)).forEach(hit -> delivered.add(hit.getUri()));
+            return failed.isEmpty() ? List.of() : List.of(new StatsClient.FailedBatch(failed,
+                    new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+        }).when(statsClient).hitAll(anyList());
+        sender.replay();
+
+        // the first batch was taken but for /events/1, which went back to the end of the spool
+        assertEquals(List.of("/events/0", "/events/2"), delivered);
+        assertEquals(3.0, registry.get("ewm.stats.spool.depth").gauge().value());
+
+        sender.replay();
+        sender.replay();
+        assertEquals(List.of("/events/0", "/events/2", "/events/3", "/events/4"), delivered);
+        assertEquals(1.0, registry.get("ewm.stats.spool.depth").gauge().value());
+        assertEquals(4.0, registry.get("ewm.stats.spool.replayed").counter().count());
+    }
+
+    @Test
+    void rejectedBatchIsResentHitByHit() {
+        spool(3);
+        doAnswer(invocation -> List.of(new StatsClient.FailedBatch(invocation.getArgument(0),
+                new HttpClientErrorException(HttpStatus.BAD_REQUEST)))).when(statsClient).hitAll(anyList());
+        List<String> delivered = new ArrayList<>();
+        doAnswer(invocation -> {
+            EndpointHit hit = invocation.getArgument(0);
+            if (hit.getUri().equals("/events/1")) {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+            }
+            delivered.add(hit.getUri());
+            return null;
+        }).when(statsClient).hit(any());
+        sender.replay();
+
+        assertEquals(List.of("/events/0", "/events/2"), delivered);
+        assertEquals(0.0, registry.get("ewm.stats.spool.depth").gauge().value());
+        assertEquals(2.0, registry.get("ewm.stats.spool.replayed").counter().count());
+        assertEquals(1.0, registry.get("ewm.stats.spool.rejected").counter().count());
+    }
+
+    @Test
+    void invalidHitsAreNotSpooled() {
+        doThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST)).when(statsClient).hit(any());
+
+        assertThrows(HttpClientErrorException.class, () -> sender.send(hit(0)));
+        assertEquals(0.0, registry.get("ewm.stats.spool.depth").gauge().value());
+    }
+
+    /**
+     * Puts hits 0 to {@code count - 1} in the spool while the server is down.
+     */
+    private void spool(int count) {
+        doThrow(new ResourceAccessException("Connection refused")).when(statsClient).hit(any());
+        for (int i = 0; i < count; i++) {
+            sender.send(hit(i));
+        }
+        assertEquals(count, registry.get("ewm.stats.spool.depth").gauge().value());
+        doNothing().when(statsClient).hit(any());
+    }
+
+    private static EndpointHit hit(int i) {
+        return new EndpointHit(null, "ewm-main-service", "/events/" + i, "10.0.0.1", "2024-05-01 12:00:00", null);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.ewm.stats;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.statsdto.EndpointHit;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitSpoolTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void deliveredHitsAreNotReplayedAfterRestart() throws Exception {
+        try (HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 1024 * 1024)) {
+            IntStream.range(0, 200).forEach(i -> spool.append(hit(i)));
+            List<HitSpool.Spooled> batch = spool.peek(150);
+            assertEquals(uris(0, 150), batch.stream().map(spooled -> spooled.hit().getUri()).toList());
+            assertEquals("Mozilla/5.0", batch.get(0).hit().getUserAgent());
+            assertNull(batch.get(1).hit().getUserAgent());
+            spool.commit(batch.get(batch.size() - 1));
+            assertEquals(50, spool.depth());
+        }
+
+        try (HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 1024 * 1024)) {
+            assertEquals(50, spool.depth());
+            spool.append(hit(200));
+            List<HitSpool.Spooled> rest = spool.peek(1000);
+            assertEquals(uris(150, 201), rest.stream().map(spooled -> spooled.hit().getUri()).toList());
+            spool.commit(rest.get(rest.size() - 1));
+            assertTrue(spool.isEmpty());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".spool")).count());
+        }
+    }
+
+    @Test
+    void fullSpoolDropsItsOldestHits() throws Exception {
+        try (HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 3 * SEGMENT_SIZE)) {
+            IntStream.range(0, 1000).forEach(i -> spool.append(hit(i)));
+
+            List<HitSpool.Spooled> kept = spool.peek(1000);
+            assertTrue(spool.dropped() > 0);
+            assertEquals(1000, spool.dropped() + spool.depth());
+            assertEquals(spool.depth(), kept.size());
+            assertEquals("/events/999", kept.get(kept.size() - 1).hit().getUri());
+            assertEquals("/events/" + spool.dropped(), kept.get(0).hit().getUri());
+        }
+    }
+
+    @Test
+    void tornRecordEndsTheSegment() throws Exception {
+        try (HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 1024 * 1024)) {
+            IntStream.range(0, 3).forEach(i -> spool.append(hit(i)));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".spool")).findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        // corrupt the payload of the last record
+        int last = 0;
+        for (int position = 0, length; (length = readInt(bytes, position)) > 0; position += 8 + length) {
+            last = position;
+        }
+        bytes[last + 20] ^= 1;
+        Files.write(segment, bytes);
+
+        try (HitSpool spool = new HitSpool(directory, SEGMENT_SIZE, 1024 * 1024)) {
+            assertEquals(uris(0, 2), spool.peek(10).stream().map(spooled -> spooled.hit().getUri()).toList());
+        }
+    }
+
+    private static EndpointHit hit(int i) {
+        return new EndpointHit(null, "ewm-main-service", "/events/" + i, "10.0.0." + i % 256, "2024-05-01 12:00:00",
+                i % 2 == 0 ? "Mozilla/5.0" : null);
+    }
+
+    private static List<String> uris(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "/events/" + i).toList();
+    }
+
+    private static int readInt(byte[] bytes, int position) {
+        return (bytes[position] & 0xFF) << 24 | (bytes[position + 1] & 0xFF) << 16
+                | (bytes[position + 2] & 0xFF) << 8 | bytes[position + 3] & 0xFF;
+    }
+}
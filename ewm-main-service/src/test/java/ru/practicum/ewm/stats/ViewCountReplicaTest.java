@@ -0,0 +1,164 @@
+package ru.practicum.ewm.stats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.event.repository.EventRepository;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsdto.ViewChanges;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ViewCountReplicaTest {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final StatsClient statsClient = mock(StatsClient.class);
+    private final EventRepository eventRepository = mock(EventRepository.class);
+    private final ViewReplicationProperties properties = new ViewReplicationProperties();
+    private ViewCountReplica replica;
+
+    @BeforeEach
+    void setUp() {
+        properties.setPageSize(PAGE_SIZE);
+        properties.setMaxStaleness(Duration.ofMinutes(1));
+        replica = new ViewCountReplica(statsClient, eventRepository, properties, new SimpleMeterRegistry());
+        when(statsClient.shardCount()).thenReturn(1);
+    }
+
+    @Test
+    void nothingIsServedBeforeTheFirstSync() {
+        assertEquals(Optional.empty(), replica.views(List.of(1L)));
+    }
+
+    @Test
+    void resyncLoadsTheCountsOfEveryEventId() {
+        head(0, "a", 5);
+        when(eventRepository.findMaxId()).thenReturn(3L);
+        when(statsClient.getStats(eq(ViewChanges.COUNTED_SINCE), any(), eq(List.of("/events/1", "/events/2",
+                "/events/3")), eq(true)))
+                .thenReturn(List.of(stat("/events/1", 4), stat("/events/3", 2), stat("/events", 9)));
+        when(statsClient.getChanges(0, "a", 5L, PAGE_SIZE)).thenReturn(page(5, false));
+
+        replica.poll();
+
+        assertEquals(Optional.of(Map.of(1L, 4L, 3L, 2L)), replica.views(List.of(1L, 2L, 3L)));
+        verify(statsClient).getChanges(0, "a", 5L, PAGE_SIZE);
+    }
+
+    @Test
+    void changesAreFollowedWithACursorPerShard() {
+        when(statsClient.shardCount()).thenReturn(2);
+        head(0, "a", 5);
+        head(1, "b", 9);
+        when(statsClient.getChanges(0, "a", 5L, PAGE_SIZE)).thenReturn(page(6, true, stat("/events/1", 3)));
+        when(statsClient.getChanges(0, "a", 6L, PAGE_SIZE)).thenReturn(page(7, false, stat("/events/2", 1)));
+        when(statsClient.getChanges(1, "b", 9L, PAGE_SIZE)).thenReturn(page(10, false, stat("/events/3", 2)));
+        when(statsClient.getChanges(0, "a", 7L, PAGE_SIZE)).thenReturn(page(8, false, stat("/events/1", 4)));
+        when(statsClient.getChanges(1, "b", 10L, PAGE_SIZE)).thenReturn(page(10, false));
+
+        replica.poll();
+        assertEquals(Optional.of(Map.of(1L, 3L, 2L, 1L, 3L, 2L)), replica.views(List.of(1L, 2L, 3L)));
+
+        replica.poll();
+        assertEquals(Optional.of(Map.of(1L, 4L, 2L, 1L, 3L, 2L)), replica.views(List.of(1L, 2L, 3L)));
+        verify(statsClient).getChanges(0, "a", 7L, PAGE_SIZE);
+        verify(statsClient).getChanges(1, "b", 10L, PAGE_SIZE);
+        // no full reload within the resync interval
+        verify(statsClient, times(1)).getChanges(0, null, null, 0);
+    }
+
+    @Test
+    void epochResetReloadsAllCounts() {
+        head(0, "a", 5);
+        when(statsClient.getChanges(0, "a", 5L, PAGE_SIZE)).thenReturn(page(6, false, stat("/events/1", 3)));
+        replica.poll();
+        assertEquals(Optional.of(Map.of(1L, 3L)), replica.views(List.of(1L, 2L)));
+
+        // the stats server restarted: its feed has a new epoch and the old cursor is unknown to it
+        when(statsClient.getChanges(0, "a", 6L, PAGE_SIZE)).thenReturn(ViewChanges.builder()
+                .epoch("b")
+                .cursor(2L)
+                .reset(true)
+                .stats(List.of())
+                .build());
+        head(0, "b", 2);
+        when(eventRepository.findMaxId()).thenReturn(2L);
+        when(statsClient.getStats(any(), any(), eq(List.of("/events/1", "/events/2")), eq(true)))
+                .thenReturn(List.of(stat("/events/2", 1)));
+        replica.poll();
+
+        assertEquals(Optional.of(Map.of(2L, 1L)), replica.views(List.of(1L, 2L)));
+        verify(statsClient, times(2)).getChanges(0, null, null, 0);
+
+        when(statsClient.getChanges(0, "b", 2L, PAGE_SIZE)).thenReturn(page(3, false, stat("/events/1", 1)));
+        replica.poll();
+        assertEquals(Optional.of(Map.of(1L, 1L, 2L, 1L)), replica.views(List.of(1L, 2L)));
+    }
+
+    @Test
+    void staleCountsAreNotServed() throws Exception {
+        properties.setMaxStaleness(Duration.ofMillis(100));
+        head(0, "a", 5);
+        when(statsClient.getChanges(0, "a", 5L, PAGE_SIZE)).thenReturn(page(6, false, stat("/events/1", 3)));
+        replica.poll();
+        assertEquals(Optional.of(Map.of(1L, 3L)), replica.views(List.of(1L)));
+
+        // a failed poll does not count as a sync
+        when(statsClient.getChanges(0, "a", 6L, PAGE_SIZE)).thenThrow(new IllegalStateException("stats server is down"));
+        Thread.sleep(150);
+        replica.poll();
+        assertEquals(Optional.empty(), replica.views(List.of(1L)));
+
+        doReturn(page(6, false)).when(statsClient).getChanges(0, "a", 6L, PAGE_SIZE);
+        replica.poll();
+        assertEquals(Optional.of(Map.of(1L, 3L)), replica.views(List.of(1L)));
+    }
+
+    @Test
+    void failedResyncKeepsServingNothing() {
+        when(statsClient.getChanges(0, null, null, 0)).thenThrow(new IllegalStateException("stats server is down"));
+
+        replica.poll();
+
+        assertEquals(Optional.empty(), replica.views(List.of(1L)));
+        verify(statsClient, never()).getChanges(anyInt(), anyString(), anyLong(), anyInt());
+    }
+
+    private void head(int shard, String epoch, long cursor) {
+        when(statsClient.getChanges(shard, null, null, 0)).thenReturn(ViewChanges.builder()
+                .epoch(epoch)
+                .cursor(cursor)
+                .stats(List.of())
+                .build());
+    }
+
+    private static ViewChanges page(long cursor, boolean more, ViewStats... stats) {
+        return ViewChanges.builder()
+                .cursor(cursor)
+                .more(more)
+                .stats(List.of(stats))
+                .build();
+    }
+
+    private static ViewStats stat(String uri, long hits) {
+        return new ViewStats("ewm-main-service", uri, hits);
+    }
+}
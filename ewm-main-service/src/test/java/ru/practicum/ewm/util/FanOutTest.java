@@ -0,0 +1,144 @@
+package ru.practicum.ewm.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FanOutTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(300);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch never = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void joinsResults() {
+        try (FanOut fanOut = open()) {
+            CompletableFuture<Integer> first = fanOut.fork(() -> 1);
+            CompletableFuture<Integer> second = fanOut.fork(() -> 2);
+
+            assertEquals(1, fanOut.join(first, 0, "First"));
+            assertEquals(2, fanOut.join(second, 0, "Second"));
+        }
+    }
+
+    @Test
+    void lateTaskYieldsItsFallbackAtTheDeadline() {
+        try (FanOut fanOut = open()) {
+            CompletableFuture<List<Long>> late = fanOut.fork(() -> await(List.of(1L)));
+            long started = System.nanoTime();
+
+            assertEquals(List.of(), fanOut.join(late, List.of(), "Late"));
+            assertTrue(elapsed(started) >= TIMEOUT.toMillis() - 50);
+            assertTrue(elapsed(started) < 5 * TIMEOUT.toMillis());
+            assertTrue(late.isCancelled());
+        }
+    }
+
+    @Test
+    void failedTaskYieldsItsFallback() {
+        try (FanOut fanOut = open()) {
+            CompletableFuture<Long> failed = fanOut.fork(() -> {
+                throw new IllegalStateException("stats server is down");
+            });
+
+            assertEquals(0L, fanOut.join(failed, 0L, "Failed"));
+        }
+    }
+
+    @Test
+    void deadlineIsSharedByAllJoins() {
+        try (FanOut fanOut = open()) {
+            CompletableFuture<Long> first = fanOut.fork(() -> await(1L));
+            CompletableFuture<Long> second = fanOut.fork(() -> await(2L));
+            long started = System.nanoTime();
+
+            assertEquals(0L, fanOut.join(first, 0L, "First"));
+            assertEquals(0L, fanOut.join(second, 0L, "Second"));
+            assertTrue(elapsed(started) < 2 * TIMEOUT.toMillis());
+        }
+    }
+
+    @Test
+    void forkAfterWaitsForTheFirstTaskEvenIfItFails() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean firstDone = new AtomicBoolean();
+        try (FanOut fanOut = open()) {
+            CompletableFuture<Void> first = fanOut.fork(() -> {
+                awaitQuietly(release);
+                firstDone.set(true);
+                throw new IllegalStateException("hit was not sent");
+            });
+            CompletableFuture<Boolean> second = fanOut.forkAfter(first, firstDone::get);
+
+            Thread.sleep(50);
+            assertFalse(second.isDone());
+            release.countDown();
+            assertTrue(fanOut.join(second, false, "Second"));
+        }
+    }
+
+    @Test
+    void closeWaitsForUnfinishedTasksOnlyUntilTheDeadline() {
+        AtomicBoolean finished = new AtomicBoolean();
+        long started = System.nanoTime();
+        CompletableFuture<Long> late;
+        try (FanOut fanOut = open()) {
+            fanOut.fork(() -> {
+                sleep(50);
+                finished.set(true);
+            });
+            late = fanOut.fork(() -> await(1L));
+        }
+
+        assertTrue(finished.get());
+        assertTrue(late.isCancelled());
+        assertTrue(elapsed(started) < 5 * TIMEOUT.toMillis());
+    }
+
+    private FanOut open() {
+        return new FanOut(executor, TIMEOUT.toNanos());
+    }
+
+    private <T> T await(T value) {
+        awaitQuietly(never);
+        return value;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long elapsed(long started) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,97 @@
+-- Database of the first release: the schema Hibernate schema update created, and no migration history.
+
+create table categories (
+    id bigint generated by default as identity,
+    name varchar(50) not null,
+    primary key (id),
+    constraint uq_category_name unique (name)
+);
+
+create table compilation_events (
+    compilation_id bigint not null,
+    event_id bigint not null,
+    primary key (compilation_id, event_id)
+);
+
+create table compilations (
+    pinned boolean not null,
+    id bigint generated by default as identity,
+    title varchar(50) not null,
+    primary key (id)
+);
+
+create table events (
+    lat float4 not null,
+    lon float4 not null,
+    paid boolean not null,
+    participant_limit integer not null,
+    request_moderation boolean not null,
+    category_id bigint not null,
+    created_on timestamp(6) not null,
+    event_date timestamp(6) not null,
+    id bigint generated by default as identity,
+    initiator_id bigint not null,
+    published_on timestamp(6),
+    state varchar(20) not null check (state in ('PENDING','PUBLISHED','CANCELED')),
+    title varchar(120) not null,
+    annotation varchar(2000) not null,
+    description varchar(7000) not null,
+    primary key (id)
+);
+
+create table requests (
+    created timestamp(6) not null,
+    event_id bigint not null,
+    id bigint generated by default as identity,
+    requester_id bigint not null,
+    status varchar(20) not null check (status in ('PENDING','CONFIRMED','REJECTED','CANCELED')),
+    primary key (id),
+    constraint uq_request unique (event_id, requester_id)
+);
+
+create table users (
+    id bigint generated by default as identity,
+    name varchar(250) not null,
+    email varchar(254) not null unique,
+    primary key (id)
+);
+
+alter table if exists compilation_events
+   add constraint FKaotb0v4s78i5ulvmifbd1fl07
+   foreign key (event_id)
+   references events;
+
+alter table if exists compilation_events
+   add constraint FKa2vg2r2op6iuf9q4kp41ryim6
+   foreign key (compilation_id)
+   references compilations;
+
+alter table if exists events
+   add constraint FKo6mla8j1p5bokt4dxrlmgwc28
+   foreign key (category_id)
+   references categories;
+
+alter table if exists events
+   add constraint FKgsyp7tc40dhju9fq5i767kyun
+   foreign key (initiator_id)
+   references users;
+
+alter table if exists requests
+   add constraint FKm7vtr0204t3xcymbx4sa9t1ot
+   foreign key (event_id)
+   references events;
+
+alter table if exists requests
+   add constraint FKeoax2t4j9i61p9lmon3009tr4
+   foreign key (requester_id)
+   references users;
+
+insert into users (name, email) values ('Initiator', 'initiator@example.com');
+insert into categories (name) values ('Concerts');
+insert into events (annotation, description, title, category_id, initiator_id, created_on, event_date,
+                    published_on, lat, lon, paid, participant_limit, request_moderation, state) values
+    ('Open air concert in the park', 'Open air concert in the park, bring a blanket', 'Open air', 1, 1,
+     '2024-05-01 10:00:00', '2030-06-01 19:00:00', '2024-05-02 10:00:00', 55.75, 37.62, false, 0, true,
+     'PUBLISHED');
+insert into compilations (title, pinned) values ('Summer', true);
+insert into compilation_events (compilation_id, event_id) values (1, 1);
@@ -0,0 +1,155 @@
+package ru.practicum.statsclient;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.UriShards;
+import ru.practicum.statsdto.ViewChanges;
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Non-blocking {@link StatsClient}: requests are sent on subscription and no thread waits for the
+ * response, so a caller can keep many of them in flight. Hits and stats are routed between the
+ * shards and long uri lists posted to {@code /stats/query} the same way.
+ */
+@Slf4j
+public class ReactiveStatsClient {
+
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int DEFAULT_QUERY_THRESHOLD = 50;
+    private static final int DEFAULT_QUERY_CHUNK_SIZE = 2000;
+
+    private final List<WebClient> shards;
+    private final int queryThreshold;
+    private final int queryChunkSize;
+
+    public ReactiveStatsClient(WebClient server) {
+        this(List.of(server), DEFAULT_QUERY_THRESHOLD, DEFAULT_QUERY_CHUNK_SIZE);
+    }
+
+    public ReactiveStatsClient(List<WebClient> shards, int queryThreshold, int queryChunkSize) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one stats server is required");
+        }
+        if (queryChunkSize < 1) {
+            throw new IllegalArgumentException("Query chunk size must be positive");
+        }
+        this.shards = List.copyOf(shards);
+        this.queryThreshold = queryThreshold;
+        this.queryChunkSize = queryChunkSize;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public Mono<Void> hit(EndpointHit hit) {
+        return shards.get(UriShards.shardOf(hit.getUri(), shards.size())).post()
+                .uri("/hit")
+                .bodyValue(hit)
+                .retrieve()
+                .toBodilessEntity()
+                .doOnSubscribe(subscription -> log.debug("Sending hit to stats service: {}", hit))
+                .then();
+    }
+
+    public Mono<List<ViewStats>> getStats(LocalDateTime start,
+                                          LocalDateTime end,
+                                          List<String> uris,
+                                          boolean unique) {
+
+        // a uri repeated across chunks would be counted twice
+        List<String> distinct = uris == null ? null : List.copyOf(new LinkedHashSet<>(uris));
+        Map<Integer, List<String>> byShard = new TreeMap<>();
+        if (uris == null || uris.isEmpty() || shards.size() == 1) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                byShard.put(shard, distinct);
+            }
+        } else {
+            for (String uri : distinct) {
+                byShard.computeIfAbsent(UriShards.shardOf(uri, shards.size()), shard -> new ArrayList<>()).add(uri);
+            }
+        }
+        List<Mono<List<ViewStats>>> requests = new ArrayList<>();
+        byShard.forEach((shard, shardUris) -> {
+            if (shardUris == null || shardUris.size() <= queryChunkSize) {
+                requests.add(getStats(shard, shardUris, start, end, unique));
+                return;
+            }
+            for (int from = 0; from < shardUris.size(); from += queryChunkSize) {
+                int to = Math.min(from + queryChunkSize, shardUris.size());
+                requests.add(getStats(shard, shardUris.subList(from, to), start, end, unique));
+            }
+        });
+        if (requests.size() == 1) {
+            return requests.get(0);
+        }
+        return Flux.merge(requests)
+                .collectList()
+                .map(results -> StatsClient.merge(results, unique));
+    }
+
+    /**
+     * Changefeed page of one shard; epochs and cursors of different shards are unrelated.
+     */
+    public Mono<ViewChanges> getChanges(int shard, String epoch, Long after, int limit) {
+        return shards.get(shard).get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/stats/changes")
+                        .queryParamIfPresent("epoch", Optional.ofNullable(epoch))
+                        .queryParamIfPresent("after", Optional.ofNullable(after))
+                        .queryParam("limit", limit)
+                        .build())
+                .retrieve()
+                .bodyToMono(ViewChanges.class);
+    }
+
+    private Mono<List<ViewStats>> getStats(int shard,
+                                           List<String> uris,
+                                           LocalDateTime start,
+                                           LocalDateTime end,
+                                           boolean unique) {
+        WebClient server = shards.get(shard);
+        String startStr = FORMATTER.format(start);
+        String endStr = FORMATTER.format(end);
+
+        if (uris != null && uris.size() > queryThreshold) {
+            return server.post()
+                    .uri("/stats/query")
+                    .bodyValue(StatsQuery.of(startStr, endStr, uris, unique))
+                    .retrieve()
+                    .bodyToMono(new ParameterizedTypeReference<>() {});
+        }
+
+        return server.get()
+                .uri(uriBuilder -> {
+                    var builder = uriBuilder
+                            .path("/stats")
+                            .queryParam("start", startStr)
+                            .queryParam("end", endStr)
+                            .queryParam("unique", unique);
+
+                    if (uris != null && !uris.isEmpty()) {
+                        builder.queryParam("uris", uris.toArray());
+                    }
+                    return builder.build();
+                })
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<>() {});
+    }
+}
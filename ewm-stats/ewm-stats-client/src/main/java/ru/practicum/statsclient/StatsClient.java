@@ -1,46 +1,216 @@
 package ru.practicum.statsclient;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.UriShards;
+import ru.practicum.statsdto.ViewChanges;
 import ru.practicum.statsdto.ViewStats;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Client of the stats server shards. Every uri belongs to one shard ({@link UriShards}): hits are
+ * sent to the owner of their uri, stats are gathered in parallel from the owners of the requested
+ * uris, or from every shard when no uris are given, and merged. Long uri lists are sent in the
+ * body of {@code POST /stats/query} and, past the chunk size, split into parallel requests.
+ */
 @Slf4j
-@Component
-@RequiredArgsConstructor
-public class StatsClient {
+public class StatsClient implements AutoCloseable {
 
     private static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    private final RestClient restClient;
+    private static final int DEFAULT_QUERY_THRESHOLD = 50;
+    private static final int DEFAULT_QUERY_CHUNK_SIZE = 2000;
+
+    private final List<RestClient> shards;
+    private final int queryThreshold;
+    private final int queryChunkSize;
+    private final ExecutorService executor;
+
+    public StatsClient(List<RestClient> shards) {
+        this(shards, DEFAULT_QUERY_THRESHOLD, DEFAULT_QUERY_CHUNK_SIZE);
+    }
+
+    public StatsClient(List<RestClient> shards, int queryThreshold, int queryChunkSize) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one stats server is required");
+        }
+        if (queryChunkSize < 1) {
+            throw new IllegalArgumentException("Query chunk size must be positive");
+        }
+        this.shards = List.copyOf(shards);
+        this.queryThreshold = queryThreshold;
+        this.queryChunkSize = queryChunkSize;
+        ContextSnapshotFactory snapshots = ContextSnapshotFactory.builder().build();
+        this.executor = ContextExecutorService.wrap(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stats-shard-", 0).factory()),
+                snapshots::captureAll);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
 
     public void hit(EndpointHit hit) {
         log.debug("Sending hit to stats service: {}", hit);
 
-        restClient.post()
+        shards.get(UriShards.shardOf(hit.getUri(), shards.size())).post()
                 .uri("/hit")
                 .body(hit)
                 .retrieve()
                 .toBodilessEntity();
     }
 
+    /**
+     * Sends hits in batches, one per owning shard, and returns the batches that failed. Batches
+     * taken by other shards stay there, so only the returned hits should be retried.
+     */
+    public List<FailedBatch> hitAll(List<EndpointHit> hits) {
+        Map<Integer, List<EndpointHit>> byShard = new TreeMap<>();
+        for (EndpointHit hit : hits) {
+            byShard.computeIfAbsent(UriShards.shardOf(hit.getUri(), shards.size()), shard -> new ArrayList<>())
+                    .add(hit);
+        }
+        List<FailedBatch> failed = new ArrayList<>();
+        byShard.forEach((shard, batch) -> {
+            try {
+                shards.get(shard).post()
+                        .uri("/hit/batch")
+                        .body(batch)
+                        .retrieve()
+                        .toBodilessEntity();
+            } catch (RuntimeException ex) {
+                log.debug("Shard {} did not take {} hits: {}", shard, batch.size(), ex.getMessage());
+                failed.add(new FailedBatch(batch, ex));
+            }
+        });
+        return failed;
+    }
+
     public List<ViewStats> getStats(LocalDateTime start,
                                     LocalDateTime end,
                                     List<String> uris,
                                     boolean unique) {
 
+        // a uri repeated across chunks would be counted twice
+        List<String> distinct = uris == null ? null : List.copyOf(new LinkedHashSet<>(uris));
+        Map<Integer, List<String>> byShard = new TreeMap<>();
+        if (uris == null || uris.isEmpty() || shards.size() == 1) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                byShard.put(shard, distinct);
+            }
+        } else {
+            for (String uri : distinct) {
+                byShard.computeIfAbsent(UriShards.shardOf(uri, shards.size()), shard -> new ArrayList<>()).add(uri);
+            }
+        }
+        List<Request> requests = new ArrayList<>();
+        byShard.forEach((shard, shardUris) -> {
+            if (shardUris == null || shardUris.size() <= queryChunkSize) {
+                requests.add(new Request(shard, shardUris));
+                return;
+            }
+            for (int from = 0; from < shardUris.size(); from += queryChunkSize) {
+                int to = Math.min(from + queryChunkSize, shardUris.size());
+                requests.add(new Request(shard, shardUris.subList(from, to)));
+            }
+        });
+        if (requests.size() == 1) {
+            return getStats(requests.get(0), start, end, unique);
+        }
+
+        List<CompletableFuture<List<ViewStats>>> parts = requests.stream()
+                .map(request -> CompletableFuture.supplyAsync(() -> getStats(request, start, end, unique), executor))
+                .toList();
+        List<List<ViewStats>> results = new ArrayList<>(parts.size());
+        for (CompletableFuture<List<ViewStats>> part : parts) {
+            results.add(join(part));
+        }
+        return merge(results, unique);
+    }
+
+    /**
+     * Changefeed page of one shard; epochs and cursors of different shards are unrelated.
+     */
+    public ViewChanges getChanges(int shard, String epoch, Long after, int limit) {
+        return shards.get(shard).get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/stats/changes")
+                        .queryParamIfPresent("epoch", Optional.ofNullable(epoch))
+                        .queryParamIfPresent("after", Optional.ofNullable(after))
+                        .queryParam("limit", limit)
+                        .build())
+                .retrieve()
+                .body(ViewChanges.class);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Stats of several shards as one list, most viewed first. An app and uri pair comes from one
+     * shard only, as its hits are all stored there, so both plain and unique counts are exact. If a
+     * pair still shows up twice, e.g. with hits left behind by a change of the shard list, plain
+     * counts are added up, while for unique counts the larger one is kept: the same ip may have
+     * been counted on both shards. A pair approximate on either shard stays approximate.
+     */
+    static List<ViewStats> merge(List<List<ViewStats>> parts, boolean unique) {
+        Map<List<String>, ViewStats> merged = new LinkedHashMap<>();
+        for (List<ViewStats> part : parts) {
+            if (part == null) {
+                continue;
+            }
+            for (ViewStats stat : part) {
+                merged.merge(List.of(stat.getApp(), stat.getUri()), stat, (left, right) -> new ViewStats(
+                        left.getApp(),
+                        left.getUri(),
+                        unique ? Math.max(left.getHits(), right.getHits()) : left.getHits() + right.getHits(),
+                        Boolean.TRUE.equals(left.getApproximate()) || Boolean.TRUE.equals(right.getApproximate())
+                                ? Boolean.TRUE
+                                : null));
+            }
+        }
+        List<ViewStats> result = new ArrayList<>(merged.values());
+        result.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    private List<ViewStats> getStats(Request request, LocalDateTime start, LocalDateTime end, boolean unique) {
+        RestClient shard = shards.get(request.shard());
+        List<String> uris = request.uris();
         String startStr = FORMATTER.format(start);
         String endStr = FORMATTER.format(end);
 
-        var spec = restClient.get()
+        if (uris != null && uris.size() > queryThreshold) {
+            return shard.post()
+                    .uri("/stats/query")
+                    .body(StatsQuery.of(startStr, endStr, uris, unique))
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<>() {});
+        }
+
+        var spec = shard.get()
                 .uri(uriBuilder -> {
                     var builder = uriBuilder
                             .path("/stats")
@@ -57,4 +227,28 @@ public class StatsClient {
         return spec.retrieve()
                 .body(new ParameterizedTypeReference<>() {});
     }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            // callers handle the client exceptions of a single server, not their wrapper
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Hits of one shard that {@link #hitAll} could not deliver, with the error the shard gave.
+     */
+    public record FailedBatch(List<EndpointHit> hits, RuntimeException error) {
+    }
+
+    /**
+     * Uris asked of one shard in one request, {@code null} for all of them.
+     */
+    private record Request(int shard, List<String> uris) {
+    }
 }
@@ -1,17 +1,84 @@
 package ru.practicum.statsclient.config;
 
-import org.springframework.beans.factory.annotation.Value;
+import io.micrometer.common.KeyValue;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.observation.ClientRequestObservationContext;
+import org.springframework.http.client.observation.DefaultClientRequestObservationConvention;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import ru.practicum.statsclient.ReactiveStatsClient;
+import ru.practicum.statsclient.StatsClient;
 
 @Configuration
+@EnableConfigurationProperties(StatsServerProperties.class)
 public class StatsClientConfig {
 
+    /**
+     * Shard clients are built from the auto-configured builder so outbound calls are observed as
+     * {@code http.client.requests} and carry the current trace context to the stats servers.
+     */
     @Bean
-    public RestClient statsRestClient(@Value("${stats-server.url}") String baseUrl) {
-        return RestClient.builder()
-                .baseUrl(baseUrl)
-                .build();
+    public StatsClient statsClient(RestClient.Builder builder, StatsServerProperties properties) {
+        ClientHttpRequestFactorySettings timeouts = ClientHttpRequestFactorySettings.DEFAULTS
+                .withConnectTimeout(properties.getConnectTimeout())
+                .withReadTimeout(properties.getReadTimeout());
+        return new StatsClient(properties.shardUrls().stream()
+                .map(url -> builder.clone()
+                        .baseUrl(url)
+                        .requestFactory(ClientHttpRequestFactories.get(timeouts))
+                        .observationConvention(new StatsClientObservationConvention())
+                        .build())
+                .toList(),
+                properties.getQueryThreshold(),
+                properties.getQueryChunkSize());
+    }
+
+    /**
+     * Same as {@link #statsClient} for {@link ReactiveStatsClient}.
+     */
+    @Bean
+    public ReactiveStatsClient reactiveStatsClient(WebClient.Builder builder, StatsServerProperties properties) {
+        return new ReactiveStatsClient(properties.shardUrls().stream()
+                .map(url -> builder.clone()
+                        .baseUrl(url)
+                        .observationConvention(new ReactiveStatsClientObservationConvention())
+                        .build())
+                .toList(),
+                properties.getQueryThreshold(),
+                properties.getQueryChunkSize());
+    }
+
+    /**
+     * Stats requests are built without a uri template, which would leave the {@code uri} tag as
+     * {@code none}. The paths of the stats API are fixed, so the path alone is a safe tag value.
+     */
+    private static class StatsClientObservationConvention extends DefaultClientRequestObservationConvention {
+
+        @Override
+        protected KeyValue uri(ClientRequestObservationContext context) {
+            if (context.getUriTemplate() == null && context.getCarrier() != null) {
+                return KeyValue.of("uri", context.getCarrier().getURI().getPath());
+            }
+            return super.uri(context);
+        }
+    }
+
+    /**
+     * The same for {@link WebClient} requests.
+     */
+    private static class ReactiveStatsClientObservationConvention
+            extends org.springframework.web.reactive.function.client.DefaultClientRequestObservationConvention {
+
+        @Override
+        protected KeyValue uri(org.springframework.web.reactive.function.client.ClientRequestObservationContext context) {
+            if (context.getUriTemplate() == null && context.getRequest() != null) {
+                return KeyValue.of("uri", context.getRequest().url().getPath());
+            }
+            return super.uri(context);
+        }
     }
 }
@@ -0,0 +1,46 @@
+package ru.practicum.statsclient.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats-server")
+public class StatsServerProperties {
+
+    private String url = "http://localhost:9090";
+
+    /**
+     * Urls of the shards in the order of their {@code stats.shard.index}; {@code url} is the only
+     * shard when empty. Changing the list moves uris between shards, existing hits are not moved.
+     */
+    private List<String> shards = new ArrayList<>();
+
+    /**
+     * Stats of more uris than this are asked for with {@code POST /stats/query} instead of a url
+     * listing them all.
+     */
+    private int queryThreshold = 50;
+
+    /**
+     * Largest number of uris sent to one server in a single request; larger sets are split and the
+     * parts requested in parallel.
+     */
+    private int queryChunkSize = 2000;
+
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Longest wait for a response, so an overloaded stats server cannot hold up requests.
+     */
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    public List<String> shardUrls() {
+        return shards.isEmpty() ? List.of(url) : shards;
+    }
+}
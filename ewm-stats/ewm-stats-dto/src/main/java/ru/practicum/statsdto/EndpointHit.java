@@ -2,6 +2,7 @@ package ru.practicum.statsdto;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -16,6 +17,8 @@ import lombok.Setter;
 @AllArgsConstructor
 public class EndpointHit {
 
+    public static final int MAX_USER_AGENT_LENGTH = 512;
+
     private Long id;
 
     @NotBlank
@@ -29,4 +32,10 @@ public class EndpointHit {
 
     @NotNull
     private String timestamp;
+
+    /**
+     * User agent of the visitor if known. Only used to filter out crawlers, it is not stored.
+     */
+    @Size(max = MAX_USER_AGENT_LENGTH)
+    private String userAgent;
 }
@@ -0,0 +1,138 @@
+package ru.practicum.statsdto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Body of {@code POST /stats/query}, the form of {@code GET /stats} for uri sets too large for a
+ * url. Uris are listed in {@code uris}, runs of numbered ones like {@code /events/1..500} may be
+ * given as {@code ranges}; without either, stats of all uris are returned.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsQuery {
+
+    private static final Pattern NUMBERED = Pattern.compile("(.*/)(\\d{1,18})");
+
+    /**
+     * Shortest run of consecutive ids sent as a range rather than listed.
+     */
+    private static final int MIN_RANGE = 4;
+
+    @NotNull
+    private String start;
+
+    @NotNull
+    private String end;
+
+    private List<String> uris;
+
+    @Valid
+    private List<UriRange> ranges;
+
+    private boolean unique;
+
+    /**
+     * The query for {@code uris}, with runs of consecutive ids under one prefix folded into ranges.
+     */
+    public static StatsQuery of(String start, String end, List<String> uris, boolean unique) {
+        List<String> listed = new ArrayList<>();
+        Map<String, TreeSet<Long>> numbered = new TreeMap<>();
+        for (String uri : uris) {
+            Matcher matcher = NUMBERED.matcher(uri);
+            if (matcher.matches() && (matcher.group(2).length() == 1 || matcher.group(2).charAt(0) != '0')) {
+                numbered.computeIfAbsent(matcher.group(1), prefix -> new TreeSet<>())
+                        .add(Long.parseLong(matcher.group(2)));
+            } else {
+                listed.add(uri);
+            }
+        }
+        List<UriRange> ranges = new ArrayList<>();
+        numbered.forEach((prefix, ids) -> {
+            List<Long> run = new ArrayList<>();
+            for (Long id : ids) {
+                if (!run.isEmpty() && id != run.get(run.size() - 1) + 1) {
+                    fold(prefix, run, listed, ranges);
+                    run.clear();
+                }
+                run.add(id);
+            }
+            fold(prefix, run, listed, ranges);
+        });
+        return new StatsQuery(start, end, listed, ranges, unique);
+    }
+
+    /**
+     * All uris asked for, listed and in ranges, or an empty set for all uris.
+     *
+     * @throws IllegalArgumentException if there are more than {@code limit}
+     */
+    public Set<String> allUris(int limit) {
+        Set<String> result = new LinkedHashSet<>();
+        if (uris != null) {
+            result.addAll(uris);
+        }
+        if (ranges != null) {
+            for (UriRange range : ranges) {
+                if (range.getTo() < range.getFrom()) {
+                    throw new IllegalArgumentException("Range " + range.getPrefix() + range.getFrom()
+                            + ".." + range.getTo() + " is empty");
+                }
+                if (range.getTo() - range.getFrom() >= limit) {
+                    throw new IllegalArgumentException("At most " + limit + " uris can be queried at once");
+                }
+                for (long id = range.getFrom(); id <= range.getTo(); id++) {
+                    result.add(range.getPrefix() + id);
+                }
+            }
+        }
+        if (result.size() > limit) {
+            throw new IllegalArgumentException("At most " + limit + " uris can be queried at once");
+        }
+        return result;
+    }
+
+    private static void fold(String prefix, List<Long> run, List<String> listed, List<UriRange> ranges) {
+        if (run.size() >= MIN_RANGE) {
+            ranges.add(new UriRange(prefix, run.get(0), run.get(run.size() - 1)));
+        } else {
+            run.forEach(id -> listed.add(prefix + id));
+        }
+    }
+
+    /**
+     * Uris {@code prefix + id} for every id from {@code from} to {@code to} inclusive.
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UriRange {
+
+        @NotBlank
+        private String prefix;
+
+        private long from;
+
+        private long to;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.statsdto;
+
+/**
+ * Placement of uris on stats server shards. Clients route hits by it and shards check it, so
+ * every hit of a uri, and with it every ip counted for the uri, is kept on one shard.
+ */
+public final class UriShards {
+
+    private UriShards() {
+    }
+
+    /**
+     * Index of the shard owning {@code uri} among {@code shardCount} shards. The result only
+     * depends on the uri and the count, it is the same in every process.
+     */
+    public static int shardOf(String uri, int shardCount) {
+        if (shardCount <= 1) {
+            return 0;
+        }
+        // String.hashCode is specified, the finalizer of murmur3 spreads close uris like
+        // /events/41 and /events/42 over all shards
+        int hash = uri.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shardCount);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.statsdto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A page of the view count changefeed: current unique view counts of every uri hit since
+ * {@code cursor} of the previous page.
+ *
+ * <p>{@code epoch} identifies the stats server run the cursor belongs to. When it changes, or the
+ * requested cursor is older than the retained history, {@code reset} is set and the consumer has to
+ * reload all counts before continuing from the returned cursor.</p>
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViewChanges {
+
+    /**
+     * Start of the range the counts are taken over; a full reload by a consumer has to use it too.
+     */
+    public static final LocalDateTime COUNTED_SINCE = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private String epoch;
+    private Long cursor;
+    private boolean reset;
+    private boolean more;
+    private List<ViewStats> stats;
+}
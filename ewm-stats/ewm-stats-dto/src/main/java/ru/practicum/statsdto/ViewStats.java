@@ -1,5 +1,6 @@
 package ru.practicum.statsdto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -16,4 +17,15 @@ public class ViewStats {
     private String app;
     private String uri;
     private Long hits;
+
+    /**
+     * Set when part of the count comes from daily rollups of expired hits and is not exact: unique
+     * counts of several days are summed, and days only partly inside the range count whole.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean approximate;
+
+    public ViewStats(String app, String uri, Long hits) {
+        this(app, uri, hits, null);
+    }
 }
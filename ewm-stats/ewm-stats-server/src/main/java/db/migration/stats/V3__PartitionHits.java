@@ -0,0 +1,153 @@
+package db.migration.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.List;
+
+/**
+ * Turns the hits table into the range-partitioned, dictionary-encoded one: the plain string-keyed
+ * table of V1, as well as the layouts schema update left behind in the versions in between.
+ *
+ * <p>Existing hits are copied into the default partition; HitPartitionManager moves them into
+ * partitions of their own on startup. String-keyed rollups are encoded the same way.</p>
+ */
+@Slf4j
+public class V3__PartitionHits extends BaseJavaMigration {
+
+    private static final String CREATE_PARENT =
+            "CREATE TABLE hits (" +
+                    "id BIGINT NOT NULL DEFAULT nextval('hits_id_seq'), " +
+                    "app_id INTEGER NOT NULL, " +
+                    "uri_id INTEGER NOT NULL, " +
+                    "ip INET NOT NULL, " +
+                    "\"timestamp\" TIMESTAMP NOT NULL, " +
+                    "PRIMARY KEY (id, \"timestamp\")" +
+                    ") PARTITION BY RANGE (\"timestamp\")";
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void migrate(Context context) {
+        jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        convertLegacyTable();
+        convertIpColumn("hits");
+        encodeLegacyRollups();
+    }
+
+    private void convertLegacyTable() {
+        String kind = jdbcTemplate.query("SELECT relkind FROM pg_class WHERE oid = to_regclass('hits')",
+                rs -> rs.next() ? rs.getString(1) : null);
+        boolean legacy = kind != null && (!"p".equals(kind) || hasColumn("hits", "uri"));
+        if ("p".equals(kind) && !legacy) {
+            return;
+        }
+        if (legacy) {
+            log.info("Converting legacy hits table into a partitioned dictionary-encoded one");
+            // partitions of an older partitioned table would clash with the names of the new ones
+            for (String partition : partitions()) {
+                jdbcTemplate.execute(String.format("ALTER TABLE %s RENAME TO %s_legacy", partition, partition));
+            }
+            jdbcTemplate.execute("ALTER TABLE hits RENAME TO hits_legacy");
+            // a table created by schema update owns hits_id_seq as an identity, which cannot be handed over
+            jdbcTemplate.execute("ALTER TABLE hits_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS");
+            jdbcTemplate.execute("ALTER TABLE IF EXISTS hits_default RENAME TO hits_default_legacy");
+            jdbcTemplate.execute("DROP INDEX IF EXISTS idx_hits_uri_timestamp, idx_hits_timestamp");
+        }
+
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS hits_id_seq");
+        jdbcTemplate.execute(CREATE_PARENT);
+        jdbcTemplate.execute("ALTER SEQUENCE hits_id_seq OWNED BY hits.id");
+        jdbcTemplate.execute("CREATE TABLE hits_default PARTITION OF hits DEFAULT");
+        jdbcTemplate.execute("CREATE INDEX idx_hits_uri_timestamp ON hits (uri_id, \"timestamp\")");
+        jdbcTemplate.execute("CREATE INDEX idx_hits_timestamp ON hits USING brin (\"timestamp\")");
+
+        if (!legacy) {
+            return;
+        }
+        convertIpColumn("hits_legacy");
+        int copied;
+        if (hasColumn("hits_legacy", "uri")) {
+            internLegacyValues("hits_legacy");
+            copied = jdbcTemplate.update("INSERT INTO hits (id, app_id, uri_id, ip, \"timestamp\") " +
+                    "SELECT h.id, a.id, u.id, h.ip, h.\"timestamp\" FROM hits_legacy h " +
+                    "JOIN apps a ON a.name = h.app " +
+                    "JOIN uris u ON u.path = h.uri");
+        } else {
+            // a plain table created by schema update from the current entity is already encoded
+            copied = jdbcTemplate.update("INSERT INTO hits (id, app_id, uri_id, ip, \"timestamp\") " +
+                    "SELECT id, app_id, uri_id, ip, \"timestamp\" FROM hits_legacy");
+        }
+        jdbcTemplate.execute("SELECT setval('hits_id_seq', COALESCE(MAX(id), 0) + 1, false) FROM hits");
+        jdbcTemplate.execute("DROP TABLE hits_legacy CASCADE");
+        log.info("Moved {} hits into the partitioned table", copied);
+    }
+
+    private void convertIpColumn(String table) {
+        String type = jdbcTemplate.query("SELECT data_type FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = ? AND column_name = 'ip'",
+                rs -> rs.next() ? rs.getString(1) : null, table);
+        if (type == null || "inet".equals(type)) {
+            return;
+        }
+        // casts row by row, a value that is no ip literal becomes null instead of aborting the conversion
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION pg_temp.try_inet(value TEXT) RETURNS INET AS $$ " +
+                "BEGIN RETURN CAST(trim(value) AS INET); " +
+                "EXCEPTION WHEN invalid_text_representation THEN RETURN NULL; END " +
+                "$$ LANGUAGE plpgsql IMMUTABLE");
+        Integer invalid = jdbcTemplate.queryForObject(String.format(
+                "SELECT COUNT(*) FROM %s WHERE pg_temp.try_inet(ip) IS NULL", table), Integer.class);
+        if (invalid != null && invalid > 0) {
+            log.warn("{} values of {}.ip are no ip literals, they are folded into 0.0.0.0", invalid, table);
+        }
+        jdbcTemplate.execute(String.format("ALTER TABLE %s ALTER COLUMN ip TYPE inet " +
+                "USING COALESCE(pg_temp.try_inet(ip), '0.0.0.0')", table));
+        // same normalization as at ingest: IPv4-mapped IPv6 addresses count as their IPv4 form
+        jdbcTemplate.update(String.format("UPDATE %s SET ip = '0.0.0.0'::inet + (ip - '::ffff:0.0.0.0'::inet) " +
+                "WHERE family(ip) = 6 AND ip << '::ffff:0.0.0.0/96'", table));
+        log.info("Converted {}.ip to inet, {} unparsable values replaced", table, invalid);
+    }
+
+    private void encodeLegacyRollups() {
+        if (!hasColumn("hit_rollups", "uri")) {
+            return;
+        }
+        internLegacyValues("hit_rollups");
+        jdbcTemplate.execute("ALTER TABLE hit_rollups " +
+                "ADD COLUMN IF NOT EXISTS app_id INTEGER, ADD COLUMN IF NOT EXISTS uri_id INTEGER");
+        jdbcTemplate.update("UPDATE hit_rollups r SET app_id = a.id, uri_id = u.id FROM apps a, uris u " +
+                "WHERE a.name = r.app AND u.path = r.uri");
+        jdbcTemplate.execute("ALTER TABLE hit_rollups " +
+                "DROP CONSTRAINT IF EXISTS uq_hit_rollup, " +
+                "DROP COLUMN app, " +
+                "DROP COLUMN uri, " +
+                "ALTER COLUMN app_id SET NOT NULL, " +
+                "ALTER COLUMN uri_id SET NOT NULL, " +
+                "ADD CONSTRAINT uq_hit_rollup UNIQUE (app_id, uri_id, day)");
+        log.info("Dictionary-encoded legacy hit rollups");
+    }
+
+    private void internLegacyValues(String table) {
+        jdbcTemplate.update(String.format("INSERT INTO apps (name) SELECT DISTINCT app FROM %s " +
+                "ON CONFLICT (name) DO NOTHING", table));
+        jdbcTemplate.update(String.format("INSERT INTO uris (path) SELECT DISTINCT uri FROM %s " +
+                "ON CONFLICT (path) DO NOTHING", table));
+    }
+
+    private boolean hasColumn(String table, String column) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = ? AND column_name = ?)",
+                Boolean.class, table, column);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'hits'::regclass AND c.relname LIKE 'hits\\_p%' " +
+                "ORDER BY c.relname", String.class);
+    }
+}
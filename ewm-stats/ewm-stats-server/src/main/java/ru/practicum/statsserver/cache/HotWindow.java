@@ -0,0 +1,304 @@
+package ru.practicum.statsserver.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.VisitorHits;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The most recent hits kept in memory, so reads of the last {@code stats.hot-window.window} do not
+ * go to the store.
+ *
+ * <p>Hits are recorded once stored and grouped per uri into slots of {@code slot} seconds, each
+ * holding primitive arrays of second offsets and {@link IpAddresses#visitorKey visitor keys}. Uris
+ * are spread over striped locks, so concurrent ingestion rarely contends and readers only lock to
+ * take a snapshot of the slots they need. Visitor keys are kept exactly, so unique counts answered
+ * from memory match the store's.</p>
+ *
+ * <p>The window is complete from {@link #coveredSince()}: the later of the startup and the window
+ * length ago, moved forward when {@code max-hits} is exceeded. Hits dated earlier are not kept.</p>
+ *
+ * <p>Only hits stored through this server are recorded, so the window assumes it is the single
+ * writer of its store. Several servers sharing one database must disable it. The reactive profile
+ * writes past it and always runs without it.</p>
+ */
+@Slf4j
+@Component
+public class HotWindow {
+
+    private static final int STRIPES = 64;
+    private static final int INITIAL_SLOT_CAPACITY = 16;
+
+    private final boolean enabled;
+    private final long slotSeconds;
+    private final long windowSeconds;
+    private final long maxHits;
+    private final Clock clock;
+    private final Stripe[] stripes;
+    private final Map<String, String> apps = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Start of the complete part of the window, never before the startup.
+     */
+    private volatile long trimmedTo;
+
+    @Autowired
+    public HotWindow(HotWindowProperties properties, MeterRegistry registry, Environment environment) {
+        this(properties, registry, Clock.systemDefaultZone(), !environment.matchesProfiles("reactive"));
+    }
+
+    HotWindow(HotWindowProperties properties, MeterRegistry registry, Clock clock) {
+        this(properties, registry, clock, true);
+    }
+
+    private HotWindow(HotWindowProperties properties, MeterRegistry registry, Clock clock, boolean singleWriter) {
+        if (properties.isEnabled() && !singleWriter) {
+            log.warn("Hot window disabled, hits written through the reactive stack would bypass it");
+        }
+        this.enabled = properties.isEnabled() && singleWriter;
+        this.slotSeconds = properties.getSlot().toSeconds();
+        this.windowSeconds = properties.getWindow().toSeconds();
+        this.maxHits = properties.getMaxHits();
+        this.clock = clock;
+        if (slotSeconds <= 0 || properties.getSlot().toNanosPart() != 0) {
+            throw new IllegalArgumentException("Hot window slot must be a whole number of seconds");
+        }
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        // hits of the slot the server starts in may already be stored without being recorded here
+        this.trimmedTo = alignUp(now());
+        Gauge.builder("stats.hot_window.hits", size, AtomicLong::get)
+                .description("Hits kept in memory for recent windows")
+                .register(registry);
+        Gauge.builder("stats.hot_window.covered", this,
+                        window -> window.enabled ? now() - window.coveredSince() : 0)
+                .description("Seconds back from now answered from memory")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Epoch second from which every stored hit is also in memory, {@link Long#MAX_VALUE} if the
+     * window is disabled.
+     */
+    public long coveredSince() {
+        return enabled ? Math.max(trimmedTo, alignUp(now() - windowSeconds)) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Adds hits that were just stored.
+     */
+    public void record(Collection<HitRecord> stored) {
+        if (!enabled) {
+            return;
+        }
+        long since = coveredSince();
+        for (HitRecord hit : stored) {
+            long epoch = epoch(hit.timestamp());
+            if (epoch < since) {
+                continue;
+            }
+            String app = apps.computeIfAbsent(hit.app(), name -> name);
+            long visitor = IpAddresses.visitorKey(hit.ip());
+            long slot = Math.floorDiv(epoch, slotSeconds);
+            Stripe stripe = stripe(hit.uri());
+            synchronized (stripe) {
+                stripe.uris.computeIfAbsent(hit.uri(), uri -> new TreeMap<>())
+                        .computeIfAbsent(slot, number -> new Slot())
+                        .add(app, (int) (epoch - slot * slotSeconds), visitor);
+            }
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * Hits of {@code uris}, or of all uris if none are given, dated in {@code [from, to)} in epoch
+     * seconds, with the same grouping as {@link ru.practicum.statsserver.storage.HitStore#getVisitorHits}.
+     * Empty if {@code from} is before {@link #coveredSince()}, which may have moved past it since the
+     * caller looked.
+     */
+    public Optional<List<VisitorHits>> getVisitorHits(long from, long to, Collection<String> uris, long bucketSeconds) {
+        if (from < coveredSince()) {
+            return Optional.empty();
+        }
+        if (from >= to) {
+            return Optional.of(List.of());
+        }
+        Map<String, List<SlotView>> snapshots = new HashMap<>();
+        long firstSlot = Math.floorDiv(from, slotSeconds);
+        long lastSlot = Math.floorDiv(to - 1, slotSeconds);
+        if (uris == null || uris.isEmpty()) {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.uris.forEach((uri, slots) -> snapshot(uri, slots, firstSlot, lastSlot, snapshots));
+                }
+            }
+        } else {
+            for (String uri : uris) {
+                Stripe stripe = stripe(uri);
+                synchronized (stripe) {
+                    NavigableMap<Long, Slot> slots = stripe.uris.get(uri);
+                    if (slots != null) {
+                        snapshot(uri, slots, firstSlot, lastSlot, snapshots);
+                    }
+                }
+            }
+        }
+
+        // coverage only moves forward: still covered now, no slot of the snapshot was evicted before it was taken
+        if (from < coveredSince()) {
+            return Optional.empty();
+        }
+
+        List<VisitorHits> result = new ArrayList<>();
+        snapshots.forEach((uri, views) -> {
+            Map<VisitorKey, long[]> counts = new HashMap<>();
+            for (SlotView view : views) {
+                long base = view.number() * slotSeconds;
+                for (int i = 0; i < view.size(); i++) {
+                    long epoch = base + view.offsets()[i];
+                    if (epoch < from || epoch >= to) {
+                        continue;
+                    }
+                    VisitorKey key = new VisitorKey(Math.floorDiv(epoch, bucketSeconds), view.apps()[i],
+                            view.visitors()[i]);
+                    counts.computeIfAbsent(key, k -> new long[1])[0]++;
+                }
+            }
+            counts.forEach((key, hits) ->
+                    result.add(new VisitorHits(key.bucket(), key.app(), uri, key.visitor(), hits[0])));
+        });
+        return Optional.of(result);
+    }
+
+    /**
+     * Drops slots that fell out of the window, and shortens the window from its old end while it
+     * holds more than {@code max-hits}. Slots are dropped one slot after they stop being covered,
+     * so reads that checked the coverage just before are not cut short.
+     */
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.SECONDS)
+    public void evict() {
+        if (!enabled) {
+            return;
+        }
+        if (size.get() > maxHits) {
+            NavigableMap<Long, Long> perSlot = new TreeMap<>();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.uris.values().forEach(slots ->
+                            slots.forEach((number, slot) -> perSlot.merge(number, (long) slot.size, Long::sum)));
+                }
+            }
+            long kept = size.get();
+            for (Map.Entry<Long, Long> slot : perSlot.entrySet()) {
+                if (kept <= maxHits) {
+                    break;
+                }
+                kept -= slot.getValue();
+                trimmedTo = Math.max(trimmedTo, (slot.getKey() + 1) * slotSeconds);
+            }
+        }
+        long dropBefore = Math.floorDiv(coveredSince(), slotSeconds) - 1;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<NavigableMap<Long, Slot>> uris = stripe.uris.values().iterator();
+                while (uris.hasNext()) {
+                    NavigableMap<Long, Slot> slots = uris.next();
+                    NavigableMap<Long, Slot> old = slots.headMap(dropBefore, false);
+                    old.values().forEach(slot -> size.addAndGet(-slot.size));
+                    old.clear();
+                    if (slots.isEmpty()) {
+                        uris.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    private void snapshot(String uri, NavigableMap<Long, Slot> slots, long firstSlot, long lastSlot,
+                          Map<String, List<SlotView>> snapshots) {
+        for (Map.Entry<Long, Slot> entry : slots.subMap(firstSlot, true, lastSlot, true).entrySet()) {
+            Slot slot = entry.getValue();
+            // the arrays are only appended to or replaced, so entries below size stay valid unlocked
+            snapshots.computeIfAbsent(uri, key -> new ArrayList<>())
+                    .add(new SlotView(entry.getKey(), slot.size, slot.apps, slot.offsets, slot.visitors));
+        }
+    }
+
+    private Stripe stripe(String uri) {
+        return stripes[Math.floorMod(uri.hashCode(), STRIPES)];
+    }
+
+    private long alignUp(long epoch) {
+        return Math.ceilDiv(epoch, slotSeconds) * slotSeconds;
+    }
+
+    private long now() {
+        return epoch(LocalDateTime.now(clock));
+    }
+
+    private static long epoch(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static final class Stripe {
+
+        final Map<String, NavigableMap<Long, Slot>> uris = new HashMap<>();
+    }
+
+    /**
+     * Hits of one uri within one slot, in arrival order.
+     */
+    private static final class Slot {
+
+        String[] apps = new String[INITIAL_SLOT_CAPACITY];
+        int[] offsets = new int[INITIAL_SLOT_CAPACITY];
+        long[] visitors = new long[INITIAL_SLOT_CAPACITY];
+        int size;
+
+        void add(String app, int offset, long visitor) {
+            if (size == offsets.length) {
+                apps = Arrays.copyOf(apps, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                visitors = Arrays.copyOf(visitors, size * 2);
+            }
+            apps[size] = app;
+            offsets[size] = offset;
+            visitors[size] = visitor;
+            size++;
+        }
+    }
+
+    private record SlotView(long number, int size, String[] apps, int[] offsets, long[] visitors) {
+    }
+
+    private record VisitorKey(long bucket, String app, long visitor) {
+    }
+}
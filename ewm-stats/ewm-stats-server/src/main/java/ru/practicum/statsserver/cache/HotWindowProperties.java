@@ -0,0 +1,35 @@
+package ru.practicum.statsserver.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.hot-window")
+public class HotWindowProperties {
+
+    /**
+     * Only hits stored through this server are seen, so no other server may write to the same
+     * database. Ignored with the reactive profile, which runs without the window.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How far back stored hits are also kept in memory. After a restart the window fills up
+     * again as hits come in.
+     */
+    private Duration window = Duration.ofHours(6);
+
+    /**
+     * Granularity hits are grouped and evicted at, a whole number of seconds.
+     */
+    private Duration slot = Duration.ofMinutes(1);
+
+    /**
+     * Hits kept in memory before the window is shortened from its old end, about 16 bytes each.
+     */
+    private long maxHits = 5_000_000;
+}
@@ -0,0 +1,508 @@
+package ru.practicum.statsserver.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.HitStore;
+import ru.practicum.statsserver.storage.VisitorHits;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stats of given uris assembled from cached time buckets of {@code stats.cache.bucket}, so windows
+ * ending now and starting anywhere reuse what earlier ones loaded.
+ *
+ * <p>A window is split at bucket boundaries. Buckets before the current one are closed: they are
+ * kept per uri until a late hit lands in one of them. The current bucket is reused for
+ * {@code open-bucket-ttl}, and the stretch between {@code start} and the first boundary is kept per
+ * start, as callers repeat their starts. Buckets hold the hit count and the sorted visitor keys of
+ * every app, so unique counts of a window are exact unions rather than sums. Windows without uris,
+ * starting more than {@code max-window} ago or reaching back before {@link HitStore#visitorHitsSince()}
+ * are not cached but counted by the store. Uris are dropped least recently asked for first once
+ * more than {@code max-uris} are cached or their estimated size exceeds {@code max-bytes}.</p>
+ *
+ * <p>Whatever is loaded from within the {@link HotWindow} is read from memory rather than the store,
+ * including the current bucket, which is then always up to date.</p>
+ */
+@Component
+public class StatsCache {
+
+    private static final int MAX_STARTS_PER_URI = 8;
+    // rough heap cost of a cached uri, of a Visitors entry with its list slot, and of a visitor key
+    private static final long URI_BYTES = 256;
+    private static final long VISITORS_BYTES = 64;
+    private static final long KEY_BYTES = 8;
+
+    private final HitStore store;
+    private final HotWindow hot;
+    private final boolean enabled;
+    private final Duration bucket;
+    private final long bucketSeconds;
+    private final long openTtlSeconds;
+    private final Duration maxWindow;
+    private final int maxUris;
+    private final long maxBytes;
+    private final Clock clock;
+    private final Map<String, UriCache> uris = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> sizes = new HashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+
+    private long lateHits;
+    private volatile long bytes;
+
+    @Autowired
+    public StatsCache(HitStore store, HotWindow hot, StatsCacheProperties properties, MeterRegistry registry) {
+        this(store, hot, properties, registry, Clock.systemDefaultZone());
+    }
+
+    StatsCache(HitStore store, HotWindow hot, StatsCacheProperties properties, MeterRegistry registry, Clock clock) {
+        this.store = store;
+        this.hot = hot;
+        this.enabled = properties.isEnabled();
+        this.bucket = properties.getBucket();
+        this.bucketSeconds = bucket.toSeconds();
+        this.openTtlSeconds = properties.getOpenBucketTtl().toSeconds();
+        this.maxWindow = properties.getMaxWindow();
+        this.maxUris = properties.getMaxUris();
+        this.maxBytes = properties.getMaxBytes();
+        this.clock = clock;
+        if (bucketSeconds <= 0 || bucket.toNanosPart() != 0) {
+            throw new IllegalArgumentException("Cache bucket must be a whole number of seconds");
+        }
+        this.hits = counter(registry, "hit");
+        this.misses = counter(registry, "miss");
+        this.bypasses = counter(registry, "bypass");
+        Gauge.builder("stats.cache.bytes", this, cache -> cache.bytes)
+                .description("Estimated memory taken by cached buckets")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public List<ViewStats> getStats(LocalDateTime start,
+                                    LocalDateTime end,
+                                    List<String> uris,
+                                    boolean unique) {
+        if (!enabled || uris == null || uris.isEmpty() || start.isBefore(store.visitorHitsSince())
+                || start.isBefore(LocalDateTime.now(clock).minus(maxWindow))) {
+            bypasses.increment();
+            // empty unless the window covers start, the store has every hit anyway
+            return hot.getVisitorHits(epoch(start), epoch(end) + 1, uris, bucketSeconds)
+                    .map(rows -> combine(group(rows), unique))
+                    .orElseGet(() -> store.getStats(start, end, uris, unique));
+        }
+        Set<String> requested = new LinkedHashSet<>(uris);
+        Window window = new Window(epoch(start), epoch(end) + 1, epoch(LocalDateTime.now(clock)));
+
+        long generation;
+        Map<String, UriCache> cached = new HashMap<>();
+        synchronized (this.uris) {
+            generation = lateHits;
+            for (String uri : requested) {
+                cached.put(uri, this.uris.getOrDefault(uri, UriCache.EMPTY));
+            }
+        }
+        Assembly assembly = new Assembly(requested, cached);
+        if (window.hasHead()) {
+            assembly.head(window);
+        }
+        if (window.hasBuckets()) {
+            assembly.buckets(window);
+        }
+        if (window.hasClosedRest()) {
+            assembly.uncached(window.closedRestFrom(), window.closedEnd());
+        }
+        if (window.hasOpen()) {
+            if (window.reachesNow() && window.openFrom() < hot.coveredSince()) {
+                assembly.open(window);
+            } else {
+                assembly.uncached(Math.max(window.start, window.openFrom()), window.end);
+            }
+        }
+
+        if (!assembly.updated.isEmpty()) {
+            synchronized (this.uris) {
+                if (generation == lateHits) {
+                    assembly.updated.forEach(this::put);
+                    evict();
+                }
+            }
+        }
+        (assembly.loaded ? misses : hits).increment();
+        return combine(assembly.pieces, unique);
+    }
+
+    /**
+     * Takes hits once they are stored, so a reload sees them: adds them to the hot window and
+     * drops the closed buckets of their uris if they are dated before the current bucket.
+     */
+    public void record(Collection<HitRecord> stored) {
+        // before invalidating, or a load in between could cache buckets lacking the hits
+        hot.record(stored);
+        if (!enabled) {
+            return;
+        }
+        long current = Math.floorDiv(epoch(LocalDateTime.now(clock)), bucketSeconds);
+        synchronized (uris) {
+            for (HitRecord hit : stored) {
+                if (Math.floorDiv(epoch(hit.timestamp()), bucketSeconds) < current) {
+                    remove(hit.uri());
+                    // loads started before the hit was stored must not be cached
+                    lateHits++;
+                }
+            }
+        }
+    }
+
+    private void put(String uri, UriCache cache) {
+        uris.put(uri, cache);
+        long size = size(cache);
+        Long previous = sizes.put(uri, size);
+        bytes += size - (previous == null ? 0 : previous);
+    }
+
+    private void remove(String uri) {
+        uris.remove(uri);
+        Long size = sizes.remove(uri);
+        if (size != null) {
+            bytes -= size;
+        }
+    }
+
+    private void evict() {
+        while (!uris.isEmpty() && (uris.size() > maxUris || bytes > maxBytes)) {
+            remove(uris.keySet().iterator().next());
+        }
+    }
+
+    private static long size(UriCache cache) {
+        long size = URI_BYTES;
+        for (List<Visitors> visitors : cache.buckets().values()) {
+            size += size(visitors);
+        }
+        for (List<Visitors> visitors : cache.starts().values()) {
+            size += size(visitors);
+        }
+        if (cache.open() != null) {
+            size += size(cache.open().visitors());
+        }
+        return size;
+    }
+
+    private static long size(List<Visitors> visitors) {
+        long size = 0;
+        for (Visitors entry : visitors) {
+            size += VISITORS_BYTES + KEY_BYTES * entry.keys().length;
+        }
+        return size;
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("stats.cache.requests")
+                .description("Stats requests by whether they were served from cached buckets alone")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static long epoch(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime time(long epoch) {
+        return LocalDateTime.ofEpochSecond(epoch, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Counts of one uri and app: total hits and the sorted distinct visitor keys.
+     */
+    private record Visitors(String app, long hits, long[] keys) {
+    }
+
+    private record Open(long bucket, long loadedAt, List<Visitors> visitors) {
+    }
+
+    /**
+     * What is cached for a uri: closed buckets {@code [from, to)} with the non-empty ones in
+     * {@code buckets}, the stretches from recent starts to the next boundary, and the current bucket.
+     */
+    private record UriCache(long from,
+                            long to,
+                            NavigableMap<Long, List<Visitors>> buckets,
+                            Map<Long, List<Visitors>> starts,
+                            Open open) {
+
+        static final UriCache EMPTY = new UriCache(0, 0, new TreeMap<>(), Map.of(), null);
+
+        boolean covers(long first, long last) {
+            return from < to && from <= first && last <= to;
+        }
+    }
+
+    /**
+     * A query window {@code [start, end)} in epoch seconds, split around bucket boundaries.
+     */
+    private final class Window {
+
+        final long start;
+        final long end;
+        final long now;
+        final long current;
+        final long first;
+        final long last;
+
+        Window(long start, long end, long now) {
+            this.start = start;
+            this.end = end;
+            this.now = now;
+            this.current = Math.floorDiv(now, bucketSeconds);
+            this.first = Math.ceilDiv(start, bucketSeconds);
+            this.last = Math.min(Math.floorDiv(end, bucketSeconds), current);
+        }
+
+        long openFrom() {
+            return current * bucketSeconds;
+        }
+
+        long closedEnd() {
+            return Math.min(end, openFrom());
+        }
+
+        long closedRestFrom() {
+            return first <= last ? last * bucketSeconds : start;
+        }
+
+        boolean hasHead() {
+            return start < first * bucketSeconds && first <= last;
+        }
+
+        boolean hasBuckets() {
+            return first < last;
+        }
+
+        boolean hasClosedRest() {
+            return start < closedEnd() && closedRestFrom() < closedEnd();
+        }
+
+        boolean hasOpen() {
+            return end > openFrom();
+        }
+
+        /**
+         * Whether the window covers the current bucket from its start up to about now, the case
+         * served from the briefly cached bucket.
+         */
+        boolean reachesNow() {
+            return start <= openFrom() && end <= openFrom() + bucketSeconds && end + openTtlSeconds >= now;
+        }
+    }
+
+    /**
+     * Pieces of the counts of every requested uri, loading whatever the cache lacks.
+     */
+    private final class Assembly {
+
+        final Set<String> requested;
+        final Map<String, UriCache> cached;
+        final Map<String, UriCache> updated = new HashMap<>();
+        final Map<String, List<Visitors>> pieces = new HashMap<>();
+        boolean loaded;
+
+        Assembly(Set<String> requested, Map<String, UriCache> cached) {
+            this.requested = requested;
+            this.cached = cached;
+        }
+
+        void head(Window window) {
+            List<String> missing = requested.stream()
+                    .filter(uri -> !current(uri).starts().containsKey(window.start))
+                    .toList();
+            Map<String, List<Visitors>> fetched = missing.isEmpty()
+                    ? Map.of()
+                    : group(load(window.start, window.first * bucketSeconds, missing));
+            for (String uri : requested) {
+                UriCache cache = current(uri);
+                List<Visitors> head = cache.starts().get(window.start);
+                if (head == null) {
+                    head = fetched.getOrDefault(uri, List.of());
+                    Map<Long, List<Visitors>> starts = new LinkedHashMap<>(cache.starts());
+                    starts.put(window.start, head);
+                    while (starts.size() > MAX_STARTS_PER_URI) {
+                        starts.remove(starts.keySet().iterator().next());
+                    }
+                    update(uri, new UriCache(cache.from(), cache.to(), cache.buckets(), starts, cache.open()));
+                }
+                add(uri, head);
+            }
+        }
+
+        void buckets(Window window) {
+            // uris lacking the same bucket ranges are loaded together
+            Map<List<Long>, List<String>> ranges = new LinkedHashMap<>();
+            for (String uri : requested) {
+                UriCache cache = current(uri);
+                if (cache.covers(window.first, window.last)) {
+                    continue;
+                }
+                if (cache.from() >= cache.to()) {
+                    ranges.computeIfAbsent(List.of(window.first, window.last), r -> new ArrayList<>()).add(uri);
+                    continue;
+                }
+                if (window.first < cache.from()) {
+                    ranges.computeIfAbsent(List.of(window.first, cache.from()), r -> new ArrayList<>()).add(uri);
+                }
+                if (window.last > cache.to()) {
+                    ranges.computeIfAbsent(List.of(cache.to(), window.last), r -> new ArrayList<>()).add(uri);
+                }
+            }
+            ranges.forEach((range, uris) -> {
+                Map<String, NavigableMap<Long, List<Visitors>>> fetched =
+                        groupByBucket(load(range.get(0) * bucketSeconds, range.get(1) * bucketSeconds, uris));
+                for (String uri : uris) {
+                    UriCache cache = current(uri);
+                    NavigableMap<Long, List<Visitors>> buckets = new TreeMap<>(cache.buckets());
+                    buckets.putAll(fetched.getOrDefault(uri, new TreeMap<>()));
+                    boolean empty = cache.from() >= cache.to();
+                    update(uri, new UriCache(empty ? range.get(0) : Math.min(cache.from(), range.get(0)),
+                            empty ? range.get(1) : Math.max(cache.to(), range.get(1)),
+                            buckets, cache.starts(), cache.open()));
+                }
+            });
+            for (String uri : requested) {
+                current(uri).buckets().subMap(window.first, window.last).values().forEach(visitors -> add(uri, visitors));
+            }
+        }
+
+        void open(Window window) {
+            long since = window.now - openTtlSeconds;
+            List<String> stale = requested.stream()
+                    .filter(uri -> {
+                        Open open = current(uri).open();
+                        return open == null || open.bucket() != window.current || open.loadedAt() < since;
+                    })
+                    .toList();
+            if (!stale.isEmpty()) {
+                Map<String, List<Visitors>> fetched =
+                        group(load(window.openFrom(), window.openFrom() + bucketSeconds, stale));
+                for (String uri : stale) {
+                    UriCache cache = current(uri);
+                    update(uri, new UriCache(cache.from(), cache.to(), cache.buckets(), cache.starts(),
+                            new Open(window.current, window.now, fetched.getOrDefault(uri, List.of()))));
+                }
+            }
+            for (String uri : requested) {
+                add(uri, current(uri).open().visitors());
+            }
+        }
+
+        void uncached(long from, long to) {
+            group(load(from, to, List.copyOf(requested))).forEach(this::add);
+        }
+
+        private List<VisitorHits> load(long from, long to, List<String> uris) {
+            long covered = Math.max(from, Math.min(to, hot.coveredSince()));
+            List<VisitorHits> rows = new ArrayList<>();
+            if (covered < to) {
+                Optional<List<VisitorHits>> recent = hot.getVisitorHits(covered, to, uris, bucketSeconds);
+                if (recent.isPresent()) {
+                    rows.addAll(recent.get());
+                } else {
+                    // the window moved past covered meanwhile, the store has all of it
+                    covered = to;
+                }
+            }
+            if (from < covered) {
+                // only reads of the store count as loads for the metrics
+                loaded = true;
+                rows.addAll(store.getVisitorHits(time(from), time(covered), uris, bucket));
+            }
+            return rows;
+        }
+
+        private UriCache current(String uri) {
+            UriCache cache = updated.get(uri);
+            return cache != null ? cache : cached.get(uri);
+        }
+
+        private void update(String uri, UriCache cache) {
+            updated.put(uri, cache);
+        }
+
+        private void add(String uri, List<Visitors> visitors) {
+            pieces.computeIfAbsent(uri, key -> new ArrayList<>()).addAll(visitors);
+        }
+    }
+
+    private static List<ViewStats> combine(Map<String, List<Visitors>> pieces, boolean unique) {
+        List<ViewStats> result = new ArrayList<>();
+        pieces.forEach((uri, visitors) -> visitors.stream()
+                .collect(Collectors.groupingBy(Visitors::app, LinkedHashMap::new, Collectors.toList()))
+                .forEach((app, counts) -> {
+                    long total = unique
+                            ? distinct(counts)
+                            : counts.stream().mapToLong(Visitors::hits).sum();
+                    if (total > 0) {
+                        result.add(new ViewStats(app, uri, total));
+                    }
+                }));
+        result.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    private static Map<String, List<Visitors>> group(List<VisitorHits> rows) {
+        Map<String, List<Visitors>> result = new HashMap<>();
+        rows.stream()
+                .collect(Collectors.groupingBy(VisitorHits::uri, Collectors.groupingBy(VisitorHits::app)))
+                .forEach((uri, byApp) -> result.put(uri, byApp.entrySet().stream()
+                        .map(entry -> new Visitors(entry.getKey(),
+                                entry.getValue().stream().mapToLong(VisitorHits::hits).sum(),
+                                entry.getValue().stream().mapToLong(VisitorHits::visitor).distinct().sorted().toArray()))
+                        .toList()));
+        return result;
+    }
+
+    private static Map<String, NavigableMap<Long, List<Visitors>>> groupByBucket(List<VisitorHits> rows) {
+        Map<String, NavigableMap<Long, List<Visitors>>> result = new HashMap<>();
+        rows.stream()
+                .collect(Collectors.groupingBy(VisitorHits::bucket))
+                .forEach((bucket, bucketRows) -> group(bucketRows).forEach((uri, visitors) ->
+                        result.computeIfAbsent(uri, key -> new TreeMap<>()).put(bucket, visitors)));
+        return result;
+    }
+
+    private static long distinct(List<Visitors> counts) {
+        if (counts.size() == 1) {
+            return counts.get(0).keys().length;
+        }
+        long[] keys = counts.stream().flatMapToLong(visitors -> Arrays.stream(visitors.keys())).toArray();
+        Arrays.sort(keys);
+        long distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                distinct++;
+            }
+        }
+        return distinct;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.statsserver.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.cache")
+public class StatsCacheProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Length of the buckets query windows are aligned to, a whole number of seconds.
+     */
+    private Duration bucket = Duration.ofHours(1);
+
+    /**
+     * How long counts of the current bucket are reused; views asked for up to now may miss the
+     * hits of this last stretch.
+     */
+    private Duration openBucketTtl = Duration.ofSeconds(2);
+
+    /**
+     * Number of uris whose closed buckets are kept, least recently asked for are dropped first.
+     */
+    private int maxUris = 100_000;
+
+    /**
+     * Estimated memory the cached buckets may take, least recently asked for uris are dropped first.
+     */
+    private long maxBytes = 256L * 1024 * 1024;
+
+    /**
+     * Windows starting further back are counted by the store in one aggregate query instead of
+     * being loaded visitor by visitor.
+     */
+    private Duration maxWindow = Duration.ofDays(31);
+}
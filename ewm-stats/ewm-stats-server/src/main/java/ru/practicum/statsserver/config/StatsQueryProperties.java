@@ -0,0 +1,17 @@
+package ru.practicum.statsserver.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.query")
+public class StatsQueryProperties {
+
+    /**
+     * Most uris one {@code POST /stats/query} may ask for, counting those in ranges; larger sets
+     * are split by the client.
+     */
+    private int maxUris = 100_000;
+}
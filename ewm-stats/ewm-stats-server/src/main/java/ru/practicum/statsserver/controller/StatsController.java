@@ -2,22 +2,35 @@ package ru.practicum.statsserver.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.ViewChanges;
 import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.config.StatsQueryProperties;
+import ru.practicum.statsserver.ingest.BufferFullException;
+import ru.practicum.statsserver.shard.MisdirectedHitException;
 import ru.practicum.statsserver.service.StatsServiceImpl;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import static ru.practicum.statsserver.service.StatsServiceImpl.FORMATTER;
+
+@Profile("!reactive")
 @RestController
 @RequiredArgsConstructor
 public class StatsController {
 
     private final StatsServiceImpl service;
+    private final StatsQueryProperties queryProperties;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -25,6 +38,18 @@ public class StatsController {
         service.saveHit(hit);
     }
 
+    /**
+     * Hits delivered late in one request, e.g. by a client replaying its spool. Rejected as a whole
+     * if any of them belongs to another shard, or with 400 if any is invalid: the element constraint
+     * is checked by Spring's built-in method validation, which a class-level {@code @Validated} would
+     * replace with a proxy throwing 500s.
+     */
+    @PostMapping("/hit/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void hits(@RequestBody List<@Valid EndpointHit> hits) {
+        service.saveHits(hits);
+    }
+
     @GetMapping("/stats")
     public List<ViewStats> getStats(
             @RequestParam
@@ -43,6 +68,32 @@ public class StatsController {
         return service.getStats(start, end, uris, unique);
     }
 
+    /**
+     * {@code GET /stats} with the uris in the body, for sets that would not fit in a url.
+     */
+    @PostMapping("/stats/query")
+    public List<ViewStats> query(@RequestBody @Valid StatsQuery query) {
+        LocalDateTime start = parseTime(query.getStart());
+        LocalDateTime end = parseTime(query.getEnd());
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("End must be after start");
+        }
+        Set<String> uris = query.allUris(queryProperties.getMaxUris());
+
+        return service.getStats(start, end, uris.isEmpty() ? null : List.copyOf(uris), query.isUnique());
+    }
+
+    /**
+     * Changefeed of unique view counts, polled by consumers keeping a local copy. Without
+     * {@code after} only the current epoch and cursor are returned.
+     */
+    @GetMapping("/stats/changes")
+    public ViewChanges getChanges(@RequestParam(required = false) String epoch,
+                                  @RequestParam(required = false) Long after,
+                                  @RequestParam(defaultValue = "1000") int limit) {
+        return service.getChanges(epoch, after, limit);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Map<String, Object> handleIllegalArgument(IllegalArgumentException ex) {
@@ -53,4 +104,33 @@ public class StatsController {
                 "timestamp", LocalDateTime.now().toString()
         );
     }
+
+    @ExceptionHandler(MisdirectedHitException.class)
+    public ResponseEntity<Map<String, Object>> handleMisdirectedHit(MisdirectedHitException ex) {
+        return ResponseEntity.status(MisdirectedHitException.STATUS).body(Map.of(
+                "status", MisdirectedHitException.STATUS,
+                "error", "Misdirected Request",
+                "message", ex.getMessage(),
+                "timestamp", LocalDateTime.now().toString()
+        ));
+    }
+
+    @ExceptionHandler(BufferFullException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Map<String, Object> handleBufferFull(BufferFullException ex) {
+        return Map.of(
+                "status", HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "error", "Service Unavailable",
+                "message", ex.getMessage(),
+                "timestamp", LocalDateTime.now().toString()
+        );
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        try {
+            return LocalDateTime.parse(value, FORMATTER);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Time must be in the yyyy-MM-dd HH:mm:ss format: " + value);
+        }
+    }
 }
@@ -0,0 +1,21 @@
+package ru.practicum.statsserver.feed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.feed")
+public class FeedProperties {
+
+    /**
+     * Number of most recently changed uris remembered; consumers further behind get a reset.
+     */
+    private int capacity = 100_000;
+
+    /**
+     * Upper bound of uris returned in one page of changes.
+     */
+    private int maxPageSize = 1000;
+}
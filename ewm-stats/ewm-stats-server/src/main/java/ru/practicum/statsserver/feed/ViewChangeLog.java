@@ -0,0 +1,83 @@
+package ru.practicum.statsserver.feed;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Sequence of uris whose counts changed, each uri kept once at the position of its latest change.
+ *
+ * <p>Only committed hits are recorded, so counts read for a page of changes already include them.
+ * The log lives in memory; a restart starts a new epoch and consumers reload everything.</p>
+ */
+@Component
+@EnableConfigurationProperties(FeedProperties.class)
+public class ViewChangeLog {
+
+    private final String epoch = UUID.randomUUID().toString();
+    private final int capacity;
+    private final NavigableMap<Long, String> bySequence = new TreeMap<>();
+    private final Map<String, Long> byUri = new HashMap<>();
+
+    private long sequence;
+    private long truncatedBefore;
+
+    public ViewChangeLog(FeedProperties properties) {
+        this.capacity = properties.getCapacity();
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    public synchronized long head() {
+        return sequence;
+    }
+
+    public synchronized void record(Collection<String> uris) {
+        for (String uri : uris) {
+            long position = ++sequence;
+            Long previous = byUri.put(uri, position);
+            if (previous != null) {
+                bySequence.remove(previous);
+            }
+            bySequence.put(position, uri);
+        }
+        while (bySequence.size() > capacity) {
+            Map.Entry<Long, String> oldest = bySequence.pollFirstEntry();
+            byUri.remove(oldest.getValue());
+            truncatedBefore = oldest.getKey();
+        }
+    }
+
+    /**
+     * Uris changed after {@code after}, oldest change first, or {@code null} when that position is
+     * no longer covered by the log.
+     */
+    public synchronized Page changes(long after, int limit) {
+        if (after < truncatedBefore || after > sequence) {
+            return null;
+        }
+        List<String> uris = new ArrayList<>(Math.min(limit, bySequence.size()));
+        long cursor = after;
+        for (Map.Entry<Long, String> change : bySequence.tailMap(after, false).entrySet()) {
+            if (uris.size() == limit) {
+                return new Page(uris, cursor, true);
+            }
+            uris.add(change.getValue());
+            cursor = change.getKey();
+        }
+        return new Page(uris, sequence, false);
+    }
+
+    public record Page(List<String> uris, long cursor, boolean more) {
+    }
+}
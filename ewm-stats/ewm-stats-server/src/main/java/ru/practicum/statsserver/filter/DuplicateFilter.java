@@ -0,0 +1,134 @@
+package ru.practicum.statsserver.filter;
+
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.time.ZoneOffset;
+import java.util.Map;
+
+/**
+ * Remembers which app, uri and ip combinations were seen recently, in a Bloom filter per window of
+ * hit time.
+ *
+ * <p>A hit is a duplicate if its combination was seen in its own window or the one before, so
+ * repeats less than one window apart are always caught and ones more than two windows apart never
+ * are. Only the two newest windows are kept; hits dated before them are let through. Time is taken
+ * from the hits, so hits delivered late, e.g. from a client's spool, are judged like live ones.
+ * False positives drop a hit seen for the first time at about the configured rate.</p>
+ *
+ * <p>Checking and remembering are separate, so a hit is only remembered once it was stored and a
+ * retry of one that failed to store is not taken for a duplicate. Two requests carrying the same
+ * hit at once may therefore both be let through.</p>
+ */
+final class DuplicateFilter {
+
+    private final long windowSeconds;
+    private final long bits;
+    private final int hashes;
+
+    private long newestWindow = Long.MIN_VALUE;
+    private long[] newest;
+    private long[] previous;
+
+    DuplicateFilter(long windowSeconds, int expectedHits, double falsePositiveRate) {
+        if (windowSeconds <= 0 || expectedHits <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid duplicate filter settings");
+        }
+        this.windowSeconds = windowSeconds;
+        double optimal = -expectedHits * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.bits = Math.max(64, ((long) Math.ceil(optimal) + 63) / 64 * 64);
+        this.hashes = (int) Math.max(1, Math.round(bits / (double) expectedHits * Math.log(2)));
+    }
+
+    /**
+     * Whether the hit repeats a recent remembered one or, when {@code pending} is given, one of the
+     * batch checked before it. {@code pending} maps the hashes of those to their newest window.
+     */
+    synchronized boolean isDuplicate(HitRecord hit, Map<Long, Long> pending) {
+        long window = windowOf(hit);
+        long hash = hash(hit);
+        if (pending != null) {
+            Long batched = pending.get(hash);
+            if (batched != null && Math.abs(batched - window) <= 1) {
+                return true;
+            }
+            pending.merge(hash, window, Math::max);
+        }
+        long[] own = window(window);
+        if (own == null) {
+            return false;
+        }
+        long[] before = window == newestWindow ? previous : null;
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((own[word] & mask) == 0 && (before == null || (before[word] & mask) == 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remembers a stored hit, so later repeats of it are duplicates.
+     */
+    synchronized void remember(HitRecord hit) {
+        long[] own = window(windowOf(hit));
+        if (own == null) {
+            return;
+        }
+        long hash = hash(hit);
+        long h1 = mix(hash);
+        long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            own[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Filter of the given window, rotating to it if it is newer than the newest; null if it is
+     * older than the two kept.
+     */
+    private long[] window(long window) {
+        if (window > newestWindow) {
+            previous = window == newestWindow + 1 ? newest : null;
+            newest = new long[(int) (bits / 64)];
+            newestWindow = window;
+        }
+        if (window == newestWindow) {
+            return newest;
+        }
+        return window == newestWindow - 1 ? previous : null;
+    }
+
+    private long windowOf(HitRecord hit) {
+        return Math.floorDiv(hit.timestamp().toEpochSecond(ZoneOffset.UTC), windowSeconds);
+    }
+
+    private static long hash(HitRecord hit) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, hit.app());
+        hash = hash(hash, hit.uri());
+        return hash ^ mix(IpAddresses.visitorKey(hit.ip()));
+    }
+
+    private static long hash(long hash, String value) {
+        // FNV-1a over the chars, with the length keeping app and uri apart
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ value.length()) * 0x100000001b3L;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        return value ^ value >>> 33;
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.statsserver.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsserver.storage.HitRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drops hits before they are stored: ones matching a {@link HitRule}, then repeats of a recent hit
+ * of the same app, uri and ip found by a {@link DuplicateFilter}. Dropped hits are counted in
+ * {@code stats.filter.dropped} by reason. Hits are only remembered as seen once the caller reports
+ * them {@link #stored}.
+ */
+@Slf4j
+@Component
+public class HitFilter {
+
+    private final boolean enabled;
+    private final List<HitRule> rules = new ArrayList<>();
+    private final List<Counter> ruleCounters = new ArrayList<>();
+    private final DuplicateFilter duplicates;
+    private final Counter duplicateCounter;
+
+    @Autowired
+    public HitFilter(HitFilterProperties properties, ObjectProvider<HitRule> beanRules, MeterRegistry registry) {
+        this(properties, beanRules.orderedStream().toList(), registry);
+    }
+
+    HitFilter(HitFilterProperties properties, List<HitRule> beanRules, MeterRegistry registry) {
+        this.enabled = properties.isEnabled();
+        if (!properties.getBlockedUserAgents().isEmpty()) {
+            rules.add(new UserAgentRule(properties.getBlockedUserAgents()));
+        }
+        if (!properties.getBlockedIps().isEmpty()) {
+            rules.add(new IpRangeRule(properties.getBlockedIps()));
+        }
+        rules.addAll(beanRules);
+        for (HitRule rule : rules) {
+            ruleCounters.add(counter(registry, rule.name()));
+        }
+        long windowSeconds = properties.getDuplicateWindow().toSeconds();
+        this.duplicates = windowSeconds > 0
+                ? new DuplicateFilter(windowSeconds, properties.getExpectedHits(), properties.getFalsePositiveRate())
+                : null;
+        this.duplicateCounter = counter(registry, "duplicate");
+        if (enabled) {
+            log.info("Filtering hits with rules {} and a duplicate window of {}s",
+                    rules.stream().map(HitRule::name).toList(), windowSeconds);
+        }
+    }
+
+    /**
+     * Whether the hit should be stored. {@code record} is the hit as parsed for storing; once it is
+     * stored, pass it to {@link #stored}.
+     */
+    public boolean accepts(EndpointHit hit, HitRecord record) {
+        return accepts(hit, record, null);
+    }
+
+    /**
+     * Starts checking a batch of hits, which also drops repeats within the batch.
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Remembers stored hits, so that later repeats of them are dropped.
+     */
+    public void stored(Collection<HitRecord> records) {
+        if (enabled && duplicates != null) {
+            records.forEach(duplicates::remember);
+        }
+    }
+
+    private boolean accepts(EndpointHit hit, HitRecord record, Map<Long, Long> pending) {
+        if (!enabled) {
+            return true;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).matches(hit)) {
+                ruleCounters.get(i).increment();
+                return false;
+            }
+        }
+        if (duplicates != null && duplicates.isDuplicate(record, pending)) {
+            duplicateCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks the hits of one batch against the remembered ones and each other.
+     */
+    public final class Batch {
+
+        private final Map<Long, Long> pending = new HashMap<>();
+
+        private Batch() {
+        }
+
+        public boolean accepts(EndpointHit hit, HitRecord record) {
+            return HitFilter.this.accepts(hit, record, pending);
+        }
+    }
+
+    private static Counter counter(MeterRegistry registry, String reason) {
+        return Counter.builder("stats.filter.dropped")
+                .description("Hits dropped before being stored")
+                .tag("reason", reason)
+                .register(registry);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.statsserver.filter;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.filter")
+public class HitFilterProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Hits of the same app, uri and ip dated in the same or the previous window are dropped as
+     * duplicates; zero keeps them all.
+     */
+    private Duration duplicateWindow = Duration.ofSeconds(30);
+
+    /**
+     * Distinct app, uri and ip combinations expected per window, sizing the filter of each window
+     * at about two bytes per combination.
+     */
+    private int expectedHits = 1_000_000;
+
+    /**
+     * Share of hits seen for the first time taken for duplicates when a window holds
+     * {@code expected-hits}.
+     */
+    private double falsePositiveRate = 0.001;
+
+    /**
+     * Regular expressions searched for in the user agent, case insensitively.
+     */
+    private List<String> blockedUserAgents = new ArrayList<>();
+
+    /**
+     * Addresses or CIDR ranges like {@code 66.249.64.0/19}.
+     */
+    private List<String> blockedIps = new ArrayList<>();
+}
@@ -0,0 +1,17 @@
+package ru.practicum.statsserver.filter;
+
+import ru.practicum.statsdto.EndpointHit;
+
+/**
+ * Tells hits not worth counting, e.g. of crawlers. Rules declared as beans are applied next to the
+ * ones configured in {@code stats.filter}.
+ */
+public interface HitRule {
+
+    /**
+     * Tag of the {@code stats.filter.dropped} counter of hits this rule drops.
+     */
+    String name();
+
+    boolean matches(EndpointHit hit);
+}
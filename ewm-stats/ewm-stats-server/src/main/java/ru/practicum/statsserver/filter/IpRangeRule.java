@@ -0,0 +1,65 @@
+package ru.practicum.statsserver.filter;
+
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.util.List;
+
+/**
+ * Matches hits from the given addresses or CIDR ranges, IPv4 or IPv6.
+ */
+public class IpRangeRule implements HitRule {
+
+    private final List<Range> ranges;
+
+    public IpRangeRule(List<String> ranges) {
+        this.ranges = ranges.stream().map(IpRangeRule::parse).toList();
+    }
+
+    @Override
+    public String name() {
+        return "ip";
+    }
+
+    @Override
+    public boolean matches(EndpointHit hit) {
+        byte[] address = IpAddresses.parse(hit.getIp()).getAddress();
+        for (Range range : ranges) {
+            if (range.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Range parse(String value) {
+        int slash = value.indexOf('/');
+        byte[] network = IpAddresses.parse(slash < 0 ? value : value.substring(0, slash)).getAddress();
+        int bits = slash < 0 ? network.length * 8 : Integer.parseInt(value.substring(slash + 1).trim());
+        if (bits < 0 || bits > network.length * 8) {
+            throw new IllegalArgumentException("Invalid ip range: " + value);
+        }
+        return new Range(network, bits);
+    }
+
+    private record Range(byte[] network, int bits) {
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int full = bits / 8;
+            for (int i = 0; i < full; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int rest = bits % 8;
+            if (rest == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - rest) & 0xFF;
+            return (address[full] & mask) == (network[full] & mask);
+        }
+    }
+}
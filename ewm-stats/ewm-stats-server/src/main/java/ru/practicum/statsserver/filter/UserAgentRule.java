@@ -0,0 +1,30 @@
+package ru.practicum.statsserver.filter;
+
+import ru.practicum.statsdto.EndpointHit;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Matches hits whose user agent contains one of the patterns. Hits without a user agent never
+ * match.
+ */
+public class UserAgentRule implements HitRule {
+
+    private final Pattern pattern;
+
+    public UserAgentRule(List<String> patterns) {
+        this.pattern = Pattern.compile(String.join("|", patterns.stream().map(p -> "(?:" + p + ")").toList()),
+                Pattern.CASE_INSENSITIVE);
+    }
+
+    @Override
+    public String name() {
+        return "user-agent";
+    }
+
+    @Override
+    public boolean matches(EndpointHit hit) {
+        return hit.getUserAgent() != null && pattern.matcher(hit.getUserAgent()).find();
+    }
+}
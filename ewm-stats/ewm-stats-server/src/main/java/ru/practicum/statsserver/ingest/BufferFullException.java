@@ -0,0 +1,24 @@
+package ru.practicum.statsserver.ingest;
+
+import lombok.Getter;
+
+/**
+ * Hits refused because the ingest buffer stayed full, typically while the store is failing. They
+ * were not logged, so the client can send them again. A batch taken in chunks may have been
+ * accepted in part; {@link #getAccepted()} hits from its start were logged.
+ */
+@Getter
+public class BufferFullException extends RuntimeException {
+
+    private final int accepted;
+
+    public BufferFullException(int hits) {
+        this(hits, 0);
+    }
+
+    public BufferFullException(int hits, int accepted) {
+        super("Ingest buffer is full, " + hits + " hits were not accepted"
+                + (accepted > 0 ? ", " + accepted + " before them were" : ""));
+        this.accepted = accepted;
+    }
+}
@@ -0,0 +1,247 @@
+package ru.practicum.statsserver.ingest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsserver.cache.StatsCache;
+import ru.practicum.statsserver.feed.ViewChangeLog;
+import ru.practicum.statsserver.storage.HitStore;
+import ru.practicum.statsserver.storage.HitRecord;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acknowledges hits as soon as they are appended to the {@link HitLog} and queued in a bounded
+ * ring buffer; a single writer thread group-commits them to the store in batches. Hits left in
+ * the log by a previous run are written by the writer before the new ones, so startup does not
+ * wait for the store.
+ *
+ * <p>While the store is failing, the buffer fills up and new hits are refused with a
+ * {@link BufferFullException} after {@code buffer-timeout}, so clients can retry them later instead
+ * of holding a request thread. Failed batches are retried until shutdown and otherwise stay in the
+ * log for the next start. A batch the store rejects for its data is split up until the hits it
+ * rejects on their own are found; those go to the dead-letter file of the log.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "stats.ingest", name = "buffered", havingValue = "true")
+public class BufferedHitIngestor implements HitIngestor {
+
+    private static final long MAX_RETRY_DELAY = 10_000;
+
+    private final HitStore store;
+    private final ViewChangeLog changeLog;
+    private final StatsCache cache;
+    private final IngestProperties properties;
+    private final HitLog wal;
+    private final BlockingQueue<LoggedHit> buffer;
+    // free places in the buffer, taken before a hit is logged so it is never logged without being queued
+    private final Semaphore slots;
+    private final Thread writer;
+    private final ScheduledExecutorService syncer;
+    private final Timer commits;
+    private final Counter rejected;
+
+    private volatile boolean running = true;
+
+    public BufferedHitIngestor(HitStore store,
+                               ViewChangeLog changeLog,
+                               StatsCache cache,
+                               IngestProperties properties,
+                               MeterRegistry registry) throws IOException {
+        this.store = store;
+        this.changeLog = changeLog;
+        this.cache = cache;
+        this.properties = properties;
+        this.wal = new HitLog(properties.getLogDirectory(), properties.getLogSegmentSize(), properties.getFsync());
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferCapacity());
+        this.slots = new Semaphore(properties.getBufferCapacity());
+        this.commits = Timer.builder("stats.ingest.commits")
+                .description("Batches of buffered hits written to the store")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.rejected = Counter.builder("stats.ingest.rejected")
+                .description("Buffered hits the store rejected, moved to the dead-letter file")
+                .register(registry);
+        Gauge.builder("stats.ingest.buffered", buffer, BlockingQueue::size)
+                .description("Hits acknowledged but not yet written to the store")
+                .register(registry);
+
+        if (properties.getFsync() == FsyncPolicy.INTERVAL) {
+            long interval = properties.getFsyncInterval().toMillis();
+            syncer = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("hit-log-sync").daemon()
+                    .factory());
+            syncer.scheduleAtFixedRate(wal::sync, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+        writer = Thread.ofPlatform().name("hit-writer").daemon().start(this::drain);
+    }
+
+    @Override
+    public Long ingest(HitRecord hit) {
+        reserve(1);
+        enqueue(List.of(hit));
+        return null;
+    }
+
+    /**
+     * Takes the hits in chunks of at most the batch size, so a list longer than the buffer still
+     * fits. If a later chunk is refused, the exception tells how many hits were accepted before it.
+     */
+    @Override
+    public void ingestAll(List<HitRecord> hits) {
+        int chunk = Math.min(properties.getBatchSize(), properties.getBufferCapacity());
+        for (int from = 0; from < hits.size(); from += chunk) {
+            List<HitRecord> part = hits.subList(from, Math.min(from + chunk, hits.size()));
+            try {
+                reserve(part.size());
+            } catch (BufferFullException ex) {
+                throw new BufferFullException(hits.size() - from, from);
+            }
+            enqueue(part);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        running = false;
+        writer.join(properties.getFlushInterval().toMillis() + MAX_RETRY_DELAY);
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        wal.close();
+    }
+
+    private void reserve(int hits) {
+        try {
+            if (!slots.tryAcquire(hits, properties.getBufferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new BufferFullException(hits);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while buffering hits", ex);
+        }
+    }
+
+    private synchronized void enqueue(List<HitRecord> hits) {
+        // appending and queueing under one lock keeps the buffer in log order, so checkpoints never skip a hit
+        for (HitRecord hit : hits) {
+            buffer.add(wal.append(hit));
+        }
+    }
+
+    private void drain() {
+        List<LoggedHit> pending = wal.pending();
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} hits from the ingest log", pending.size());
+            for (int from = 0; from < pending.size(); from += properties.getBatchSize()) {
+                if (!commit(pending.subList(from, Math.min(from + properties.getBatchSize(), pending.size())))) {
+                    return;
+                }
+            }
+        }
+
+        List<LoggedHit> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !buffer.isEmpty()) {
+            try {
+                LoggedHit first = buffer.poll(properties.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, properties.getBatchSize() - 1);
+                slots.release(batch.size());
+                if (!commit(batch)) {
+                    // later batches must not be checkpointed past this one
+                    return;
+                }
+                batch.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the batch, retrying until it succeeds or the ingestor shuts down. A retry only writes
+     * the hits the failed attempt did not get to.
+     *
+     * @return false if it was left in the log for the next start
+     */
+    private boolean commit(List<LoggedHit> batch) {
+        List<LoggedHit> handled = new ArrayList<>(batch.size());
+        List<HitRecord> written = new ArrayList<>(batch.size());
+        long delay = 100;
+        while (true) {
+            try {
+                write(batch.subList(handled.size(), batch.size()), handled, written);
+                wal.checkpoint(batch.get(batch.size() - 1).sequence());
+                if (!written.isEmpty()) {
+                    changeLog.record(written.stream().map(HitRecord::uri).distinct().toList());
+                    cache.record(written);
+                }
+                return true;
+            } catch (RuntimeException ex) {
+                int left = batch.size() - handled.size();
+                if (!running) {
+                    log.warn("Failed to write {} buffered hits while shutting down, leaving them in the log",
+                            left, ex);
+                    return false;
+                }
+                log.warn("Failed to write {} buffered hits, retrying in {} ms", left, delay, ex);
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    // the batch stays in the log and is replayed on the next start
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while writing buffered hits", interrupted);
+                }
+                delay = Math.min(delay * 2, MAX_RETRY_DELAY);
+            }
+        }
+    }
+
+    /**
+     * Saves the hits in order, halving a part the store rejects for its data until the rejected hits
+     * are single ones, which are dead-lettered. Hits saved or dead-lettered are added to
+     * {@code handled}, always a prefix of the batch; any other failure is left to the caller.
+     */
+    private void write(List<LoggedHit> hits, List<LoggedHit> handled, List<HitRecord> written) {
+        List<HitRecord> records = hits.stream()
+                .map(LoggedHit::hit)
+                .toList();
+        try {
+            commits.record(() -> store.saveAll(records));
+        } catch (DataIntegrityViolationException | IllegalArgumentException ex) {
+            if (hits.size() == 1) {
+                log.warn("Store rejected buffered hit {}, moving it to the dead-letter file", hits.get(0), ex);
+                wal.deadLetter(hits.get(0), ex.getMessage());
+                rejected.increment();
+                handled.add(hits.get(0));
+                return;
+            }
+            int middle = hits.size() / 2;
+            write(hits.subList(0, middle), handled, written);
+            write(hits.subList(middle, hits.size()), handled, written);
+            return;
+        }
+        handled.addAll(hits);
+        written.addAll(records);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.statsserver.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsserver.cache.StatsCache;
+import ru.practicum.statsserver.feed.ViewChangeLog;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.HitStore;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.ingest", name = "buffered", havingValue = "false", matchIfMissing = true)
+public class DirectHitIngestor implements HitIngestor {
+
+    private final HitStore store;
+    private final ViewChangeLog changeLog;
+    private final StatsCache cache;
+
+    @Override
+    public Long ingest(HitRecord hit) {
+        Long id = store.save(hit);
+        changeLog.record(List.of(hit.uri()));
+        cache.record(List.of(hit));
+        return id;
+    }
+
+    @Override
+    public void ingestAll(List<HitRecord> hits) {
+        store.saveAll(hits);
+        changeLog.record(hits.stream().map(HitRecord::uri).distinct().toList());
+        cache.record(hits);
+    }
+}
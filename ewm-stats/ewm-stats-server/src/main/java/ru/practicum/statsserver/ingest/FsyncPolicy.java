@@ -0,0 +1,7 @@
+package ru.practicum.statsserver.ingest;
+
+public enum FsyncPolicy {
+    ALWAYS,
+    INTERVAL,
+    NEVER
+}
@@ -0,0 +1,21 @@
+package ru.practicum.statsserver.ingest;
+
+import ru.practicum.statsserver.storage.HitRecord;
+
+import java.util.List;
+
+/**
+ * Entry point for accepted hits, either writing them straight to the store or buffering them.
+ */
+public interface HitIngestor {
+
+    /**
+     * Returns the id of the stored hit, or {@code null} when the hit is only buffered so far.
+     */
+    Long ingest(HitRecord hit);
+
+    /**
+     * Ingests a batch of hits, such as the ones a client spooled while the server was unavailable.
+     */
+    void ingestAll(List<HitRecord> hits);
+}
@@ -0,0 +1,261 @@
+package ru.practicum.statsserver.ingest;
+
+import ru.practicum.statsserver.storage.HitRecord;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of accepted hits split into segment files named after their first sequence number.
+ *
+ * <p>Each record is {@code length, crc32c, payload}; a torn or corrupt tail ends the replay of its
+ * segment and is cut off on open, so records appended later are not hidden behind it. The sequence
+ * of the last hit written to the store is kept in a checkpoint file, and segments entirely below it
+ * are deleted. A crash between a store commit and the checkpoint update replays that batch again,
+ * so delivery is at least once. Hits the store rejected are kept as text lines in a dead-letter
+ * file next to the segments.</p>
+ */
+final class HitLog implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int MAX_RECORD = 64 * 1024;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final FsyncPolicy fsync;
+    private final Path checkpointFile;
+    private final Path deadLetterFile;
+    private final List<LoggedHit> pending = new ArrayList<>();
+    private final Object checkpointLock = new Object();
+
+    private volatile FileChannel channel;
+    private volatile Path activeSegment;
+    private long segmentBytes;
+    private long nextSequence = 1;
+
+    HitLog(Path directory, long segmentSize, FsyncPolicy fsync) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.checkpointFile = directory.resolve("checkpoint");
+        this.deadLetterFile = directory.resolve("dead-letter.log");
+        Files.createDirectories(directory);
+
+        long checkpoint = readCheckpoint();
+        for (Path segment : segments()) {
+            long valid = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+                byte[] payload;
+                while ((payload = read(in)) != null) {
+                    LoggedHit hit = decode(payload);
+                    valid += 8 + payload.length;
+                    nextSequence = Math.max(nextSequence, hit.sequence() + 1);
+                    if (hit.sequence() > checkpoint) {
+                        pending.add(hit);
+                    }
+                }
+            }
+            if (valid < Files.size(segment)) {
+                // appending to a reopened segment has to continue right after its last good record
+                try (FileChannel torn = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    torn.truncate(valid);
+                    torn.force(false);
+                }
+            }
+        }
+        nextSequence = Math.max(nextSequence, checkpoint + 1);
+        openSegment();
+    }
+
+    /**
+     * Hits found in the log on startup that were never checkpointed.
+     */
+    List<LoggedHit> pending() {
+        return pending;
+    }
+
+    synchronized LoggedHit append(HitRecord hit) {
+        long sequence = nextSequence++;
+        byte[] payload = encode(sequence, hit);
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        try {
+            while (record.hasRemaining()) {
+                segmentBytes += channel.write(record);
+            }
+            if (fsync == FsyncPolicy.ALWAYS) {
+                channel.force(false);
+            }
+            if (segmentBytes >= segmentSize) {
+                openSegment();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return new LoggedHit(sequence, hit);
+    }
+
+    void sync() {
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException ex) {
+            // rotated meanwhile, the old segment was forced before closing
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Records that every hit up to {@code sequence} is in the store and drops fully covered segments.
+     */
+    void checkpoint(long sequence) {
+        synchronized (checkpointLock) {
+            try {
+                Path tmp = directory.resolve("checkpoint.tmp");
+                Files.writeString(tmp, Long.toString(sequence), StandardCharsets.US_ASCII);
+                Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+                List<Path> segments = segments();
+                for (int i = 0; i + 1 < segments.size(); i++) {
+                    Path segment = segments.get(i);
+                    if (!segment.equals(activeSegment) && firstSequence(segments.get(i + 1)) - 1 <= sequence) {
+                        Files.deleteIfExists(segment);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Keeps a hit the store rejected, with the reason, in the dead-letter file.
+     */
+    synchronized void deadLetter(LoggedHit hit, String reason) {
+        HitRecord record = hit.hit();
+        String line = String.join("\t", Long.toString(hit.sequence()), record.app(), record.uri(),
+                record.ip().getHostAddress(), record.timestamp().toString(),
+                String.valueOf(reason).replaceAll("\\s+", " ")) + System.lineSeparator();
+        try {
+            Files.writeString(deadLetterFile, line, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    private void openSegment() throws IOException {
+        FileChannel previous = channel;
+        Path segment = directory.resolve(String.format("%020d%s", nextSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        activeSegment = segment;
+        segmentBytes = 0;
+        if (previous != null) {
+            previous.force(false);
+            previous.close();
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(checkpointFile, StandardCharsets.US_ASCII).trim());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(long sequence, HitRecord hit) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(sequence);
+            out.writeUTF(hit.app());
+            out.writeUTF(hit.uri());
+            byte[] ip = hit.ip().getAddress();
+            out.writeByte(ip.length);
+            out.write(ip);
+            out.writeLong(hit.timestamp().toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(hit.timestamp().getNano());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the payload of the next record, or {@code null} at the end of the segment or a torn or
+     * corrupt record.
+     */
+    private static byte[] read(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > MAX_RECORD) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            return (int) crc.getValue() == checksum ? payload : null;
+        } catch (EOFException ex) {
+            return null;
+        }
+    }
+
+    private static LoggedHit decode(byte[] payload) throws IOException {
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+        long sequence = record.readLong();
+        String app = record.readUTF();
+        String uri = record.readUTF();
+        byte[] ip = new byte[record.readUnsignedByte()];
+        record.readFully(ip);
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(record.readLong(), record.readInt(), ZoneOffset.UTC);
+        return new LoggedHit(sequence, new HitRecord(app, uri, InetAddress.getByAddress(ip), timestamp));
+    }
+}
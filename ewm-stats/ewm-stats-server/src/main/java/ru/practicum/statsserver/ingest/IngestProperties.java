@@ -0,0 +1,41 @@
+package ru.practicum.statsserver.ingest;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.ingest")
+public class IngestProperties {
+
+    /**
+     * Acknowledge hits once they are in the local log and write them to the store in the background.
+     */
+    private boolean buffered = false;
+
+    private Path logDirectory = Path.of("data", "ingest");
+
+    private long logSegmentSize = 64L * 1024 * 1024;
+
+    private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+
+    private Duration fsyncInterval = Duration.ofMillis(200);
+
+    private int bufferCapacity = 65536;
+
+    /**
+     * Longest time a hit waits for room in a full buffer before it is refused with 503.
+     */
+    private Duration bufferTimeout = Duration.ofSeconds(1);
+
+    private int batchSize = 1000;
+
+    /**
+     * Longest time an accepted hit waits for more hits before its batch is written.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+}
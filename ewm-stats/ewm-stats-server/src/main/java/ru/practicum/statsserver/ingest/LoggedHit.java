@@ -0,0 +1,6 @@
+package ru.practicum.statsserver.ingest;
+
+import ru.practicum.statsserver.storage.HitRecord;
+
+record LoggedHit(long sequence, HitRecord hit) {
+}
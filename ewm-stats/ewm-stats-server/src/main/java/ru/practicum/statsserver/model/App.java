@@ -0,0 +1,21 @@
+package ru.practicum.statsserver.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "apps", uniqueConstraints = @UniqueConstraint(name = "uq_app_name", columnNames = "name"))
+public class App {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+}
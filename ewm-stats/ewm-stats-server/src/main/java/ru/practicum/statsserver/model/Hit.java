@@ -2,7 +2,10 @@ package ru.practicum.statsserver.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
+import java.net.InetAddress;
 import java.time.LocalDateTime;
 
 @Entity
@@ -18,14 +21,15 @@ public class Hit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, length = 100)
-    private String app;
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
 
-    @Column(nullable = false, length = 200)
-    private String uri;
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
 
-    @Column(nullable = false, length = 50)
-    private String ip;
+    @JdbcTypeCode(SqlTypes.INET)
+    @Column(nullable = false, columnDefinition = "inet")
+    private InetAddress ip;
 
     @Column(nullable = false)
     private LocalDateTime timestamp;
@@ -0,0 +1,36 @@
+package ru.practicum.statsserver.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "hit_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uq_hit_rollup", columnNames = {"app_id", "uri_id", "day"}))
+public class HitRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
+
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private Long hits;
+
+    @Column(name = "unique_ips", nullable = false)
+    private Long uniqueIps;
+}
@@ -0,0 +1,21 @@
+package ru.practicum.statsserver.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "uris", uniqueConstraints = @UniqueConstraint(name = "uq_uri_path", columnNames = "path"))
+public class Uri {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(nullable = false, length = 200)
+    private String path;
+}
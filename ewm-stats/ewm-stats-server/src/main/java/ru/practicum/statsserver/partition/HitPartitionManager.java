@@ -0,0 +1,136 @@
+package ru.practicum.statsserver.partition;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Keeps the {@code hits} table range-partitioned by timestamp: moves hits out of the default
+ * partition on startup, creates upcoming partitions ahead of time and expires old ones according
+ * to the retention policy. The partitioned table itself comes from the schema migrations.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.partitioning", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class HitPartitionManager implements ApplicationRunner {
+
+    private static final String PARTITION_PREFIX = "hits_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String ROLLUP =
+            "INSERT INTO hit_rollups (app_id, uri_id, day, hits, unique_ips) " +
+                    "SELECT app_id, uri_id, CAST(\"timestamp\" AS DATE), COUNT(*), COUNT(DISTINCT ip) " +
+                    "FROM %s " +
+                    "GROUP BY app_id, uri_id, CAST(\"timestamp\" AS DATE) " +
+                    "ON CONFLICT (app_id, uri_id, day) DO UPDATE " +
+                    "SET hits = hit_rollups.hits + EXCLUDED.hits, " +
+                    "unique_ips = hit_rollups.unique_ips + EXCLUDED.unique_ips";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PartitioningProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        adoptDefaultRows();
+        maintain();
+    }
+
+    @Scheduled(cron = "${stats.partitioning.maintenance-cron:0 5 * * * *}")
+    public void maintain() {
+        PartitionInterval interval = properties.getInterval();
+        LocalDate current = interval.floor(LocalDate.now());
+
+        LocalDate lower = current;
+        for (int i = 0; i <= properties.getPremake(); i++) {
+            LocalDate from = lower;
+            transactionTemplate.executeWithoutResult(status -> createPartition(from));
+            lower = interval.next(lower);
+        }
+
+        if (properties.getRetention() > 0) {
+            LocalDate cutoff = interval.minus(current, properties.getRetention());
+            for (String partition : partitionsEndingBy(cutoff)) {
+                transactionTemplate.executeWithoutResult(status -> expire(partition));
+            }
+        }
+    }
+
+    /**
+     * Gives hits copied into the default partition by the schema migration partitions of their own.
+     */
+    private void adoptDefaultRows() {
+        LocalDate first = jdbcTemplate.queryForObject(
+                "SELECT CAST(MIN(\"timestamp\") AS DATE) FROM hits_default", LocalDate.class);
+        if (first == null) {
+            return;
+        }
+        PartitionInterval interval = properties.getInterval();
+        LocalDate current = interval.floor(LocalDate.now());
+        for (LocalDate from = interval.floor(first); from.isBefore(current); from = interval.next(from)) {
+            LocalDate lower = from;
+            transactionTemplate.executeWithoutResult(status -> createPartition(lower));
+        }
+    }
+
+    private void createPartition(LocalDate from) {
+        LocalDate to = properties.getInterval().next(from);
+        String name = PARTITION_PREFIX + SUFFIX.format(from);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+
+        // rows already sitting in the default partition would make the new range overlap, move them out first
+        Boolean stray = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM hits_default " +
+                "WHERE \"timestamp\" >= ? AND \"timestamp\" < ?)", Boolean.class, from.atStartOfDay(), to.atStartOfDay());
+        if (Boolean.TRUE.equals(stray)) {
+            jdbcTemplate.execute("CREATE TEMP TABLE hits_moved (LIKE hits) ON COMMIT DROP");
+            jdbcTemplate.update("WITH moved AS (DELETE FROM hits_default " +
+                    "WHERE \"timestamp\" >= ? AND \"timestamp\" < ? RETURNING *) " +
+                    "INSERT INTO hits_moved SELECT * FROM moved", from.atStartOfDay(), to.atStartOfDay());
+        }
+        jdbcTemplate.execute(String.format("CREATE TABLE %s PARTITION OF hits FOR VALUES FROM ('%s') TO ('%s')",
+                name, from, to));
+        if (Boolean.TRUE.equals(stray)) {
+            jdbcTemplate.update("INSERT INTO hits SELECT * FROM hits_moved");
+        }
+        log.info("Created hits partition {} for [{}, {})", name, from, to);
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'hits'::regclass AND c.relname LIKE 'hits\\_p%' " +
+                "ORDER BY c.relname", String.class);
+    }
+
+    private List<String> partitionsEndingBy(LocalDate cutoff) {
+        return partitions().stream()
+                .filter(name -> {
+                    LocalDate lower = LocalDate.parse(name.substring(PARTITION_PREFIX.length()), SUFFIX);
+                    return !properties.getInterval().next(lower).isAfter(cutoff);
+                })
+                .toList();
+    }
+
+    private void expire(String partition) {
+        if (properties.getRetentionMode() == RetentionMode.ROLLUP) {
+            int rows = jdbcTemplate.update(String.format(ROLLUP, partition));
+            log.info("Rolled up partition {} into {} daily rows", partition, rows);
+        }
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        log.info("Dropped expired hits partition {}", partition);
+    }
+}
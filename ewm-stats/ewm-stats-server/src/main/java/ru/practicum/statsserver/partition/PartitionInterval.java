@@ -0,0 +1,21 @@
+package ru.practicum.statsserver.partition;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum PartitionInterval {
+    DAY,
+    MONTH;
+
+    public LocalDate floor(LocalDate date) {
+        return this == DAY ? date : date.with(TemporalAdjusters.firstDayOfMonth());
+    }
+
+    public LocalDate next(LocalDate lowerBound) {
+        return this == DAY ? lowerBound.plusDays(1) : lowerBound.plusMonths(1);
+    }
+
+    public LocalDate minus(LocalDate lowerBound, int intervals) {
+        return this == DAY ? lowerBound.minusDays(intervals) : lowerBound.minusMonths(intervals);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.statsserver.partition;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.partitioning")
+public class PartitioningProperties {
+
+    private boolean enabled = true;
+
+    private PartitionInterval interval = PartitionInterval.MONTH;
+
+    /**
+     * Number of future partitions kept ready ahead of the current one.
+     */
+    private int premake = 3;
+
+    /**
+     * Number of whole intervals of raw hits to keep; 0 keeps everything.
+     */
+    private int retention = 0;
+
+    private RetentionMode retentionMode = RetentionMode.ROLLUP;
+
+    /**
+     * Whether expired partitions survive as daily rollups that reads add to their counts.
+     */
+    public boolean hasRollups() {
+        return enabled && retention > 0 && retentionMode == RetentionMode.ROLLUP;
+    }
+
+    /**
+     * Start of the oldest partition still kept; hits before it are rolled up or gone.
+     */
+    public LocalDateTime retainedSince() {
+        return interval.minus(interval.floor(LocalDate.now()), retention).atStartOfDay();
+    }
+
+    /**
+     * Whether a bound of the range falls inside a rolled up day, which reads then count whole.
+     */
+    public boolean cutsRolledUpDay(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime retained = retainedSince();
+        return start.isBefore(retained) && !start.toLocalTime().equals(LocalTime.MIDNIGHT)
+                || end.isBefore(retained) && !end.toLocalTime().equals(LocalTime.MIDNIGHT);
+    }
+
+    /**
+     * Last rolled up day a range ending at the given time reaches into; one ending at midnight
+     * does not reach into that day.
+     */
+    public static LocalDate lastRolledUpDay(LocalDateTime end) {
+        return end.toLocalTime().equals(LocalTime.MIDNIGHT) ? end.toLocalDate().minusDays(1) : end.toLocalDate();
+    }
+}
@@ -0,0 +1,6 @@
+package ru.practicum.statsserver.partition;
+
+public enum RetentionMode {
+    DROP,
+    ROLLUP
+}
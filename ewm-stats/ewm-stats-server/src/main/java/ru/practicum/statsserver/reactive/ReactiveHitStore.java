@@ -0,0 +1,143 @@
+package ru.practicum.statsserver.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.partition.PartitioningProperties;
+import ru.practicum.statsserver.storage.HitRecord;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Non-blocking counterpart of the JPA store over the same tables, including the daily rollups of
+ * compacted partitions. App and uri ids are interned the same way as by the blocking dictionary.
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveHitStore {
+
+    private static final String INSERT =
+            "INSERT INTO hits (app_id, uri_id, ip, \"timestamp\") " +
+                    "VALUES (:app, :uri, CAST(:ip AS inet), :timestamp) RETURNING id";
+
+    private static final String INSERT_ALL =
+            "INSERT INTO hits (app_id, uri_id, ip, \"timestamp\") " +
+                    "SELECT app_id, uri_id, CAST(ip AS inet), \"timestamp\" " +
+                    "FROM unnest(:apps, :uris, :ips, :timestamps) AS h (app_id, uri_id, ip, \"timestamp\")";
+
+    private static final String STATS =
+            "SELECT a.name AS app, u.path AS uri, CAST(SUM(c.hits) AS bigint) AS hits, " +
+                    "BOOL_OR(c.approximate) AS approximate " +
+                    "FROM (%s) c " +
+                    "JOIN apps a ON a.id = c.app_id " +
+                    "JOIN uris u ON u.id = c.uri_id " +
+                    "GROUP BY a.name, u.path " +
+                    "ORDER BY hits DESC";
+
+    private static final String URI_FILTER = " AND uri_id IN (SELECT id FROM uris WHERE path = ANY(:uris))";
+
+    private final DatabaseClient client;
+    private final PartitioningProperties partitioning;
+
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+
+    public Mono<Long> save(HitRecord hit) {
+        return Mono.zip(appId(hit.app()), uriId(hit.uri()))
+                .flatMap(ids -> client.sql(INSERT)
+                        .bind("app", ids.getT1())
+                        .bind("uri", ids.getT2())
+                        .bind("ip", hit.ip().getHostAddress())
+                        .bind("timestamp", hit.timestamp())
+                        .map(row -> row.get("id", Long.class))
+                        .one());
+    }
+
+    /**
+     * Stores the hits in one statement, so either all of them are stored or none. Their apps and
+     * uris are interned first; an id left unused by a failed insert is harmless.
+     */
+    public Mono<Void> saveAll(List<HitRecord> hits) {
+        if (hits.isEmpty()) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(hits)
+                .concatMap(hit -> Mono.zip(appId(hit.app()), uriId(hit.uri())))
+                .collectList()
+                .flatMap(ids -> client.sql(INSERT_ALL)
+                        .bind("apps", ids.stream().map(Tuple2::getT1).toArray(Integer[]::new))
+                        .bind("uris", ids.stream().map(Tuple2::getT2).toArray(Integer[]::new))
+                        .bind("ips", hits.stream().map(hit -> hit.ip().getHostAddress()).toArray(String[]::new))
+                        .bind("timestamps", hits.stream().map(HitRecord::timestamp).toArray(LocalDateTime[]::new))
+                        .then());
+    }
+
+    public Flux<ViewStats> getStats(LocalDateTime start,
+                                    LocalDateTime end,
+                                    List<String> uris,
+                                    boolean unique) {
+
+        boolean hasUris = uris != null && !uris.isEmpty();
+        String filter = hasUris ? URI_FILTER : "";
+        String counts = "SELECT app_id, uri_id, " + (unique ? "COUNT(DISTINCT ip)" : "COUNT(*)") + " AS hits, " +
+                "false AS approximate " +
+                "FROM hits WHERE \"timestamp\" BETWEEN :start AND :end" + filter + " GROUP BY app_id, uri_id";
+        boolean rollups = partitioning.hasRollups();
+        if (rollups) {
+            // per day and flagged approximate under the same conditions as in the blocking store
+            boolean approximate = unique || partitioning.cutsRolledUpDay(start, end);
+            counts += " UNION ALL SELECT app_id, uri_id, SUM(" + (unique ? "unique_ips" : "hits") + "), " +
+                    approximate + " " +
+                    "FROM hit_rollups WHERE day BETWEEN :startDay AND :endDay" + filter + " GROUP BY app_id, uri_id";
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(STATS.formatted(counts))
+                .bind("start", start)
+                .bind("end", end);
+        if (rollups) {
+            spec = spec.bind("startDay", start.toLocalDate())
+                    .bind("endDay", PartitioningProperties.lastRolledUpDay(end));
+        }
+        if (hasUris) {
+            spec = spec.bind("uris", uris.toArray(String[]::new));
+        }
+        return spec.map(row -> new ViewStats(row.get("app", String.class),
+                        row.get("uri", String.class),
+                        row.get("hits", Long.class),
+                        Boolean.TRUE.equals(row.get("approximate", Boolean.class)) ? Boolean.TRUE : null))
+                .all();
+    }
+
+    private Mono<Integer> appId(String name) {
+        return intern("apps", "name", name, appIds);
+    }
+
+    private Mono<Integer> uriId(String path) {
+        return intern("uris", "path", path, uriIds);
+    }
+
+    private Mono<Integer> intern(String table, String column, String value, Map<String, Integer> cache) {
+        Integer cached = cache.get(value);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return client.sql("INSERT INTO " + table + " (" + column + ") VALUES (:value) " +
+                        "ON CONFLICT (" + column + ") DO NOTHING")
+                .bind("value", value)
+                .then()
+                .then(client.sql("SELECT id FROM " + table + " WHERE " + column + " = :value")
+                        .bind("value", value)
+                        .map(row -> row.get("id", Integer.class))
+                        .one())
+                .doOnNext(id -> cache.put(value, id));
+    }
+}
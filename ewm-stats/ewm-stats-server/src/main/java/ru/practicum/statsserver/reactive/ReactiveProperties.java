@@ -0,0 +1,20 @@
+package ru.practicum.statsserver.reactive;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.reactive")
+public class ReactiveProperties {
+
+    /**
+     * Maximum number of R2DBC connections, the same as the default Hikari pool of the servlet stack.
+     */
+    private int poolSize = 10;
+
+    private Duration maxIdleTime = Duration.ofMinutes(10);
+}
@@ -0,0 +1,117 @@
+package ru.practicum.statsserver.reactive;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.StatsQuery;
+import ru.practicum.statsdto.ViewChanges;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.config.StatsQueryProperties;
+import ru.practicum.statsserver.shard.MisdirectedHitException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static ru.practicum.statsserver.service.StatsServiceImpl.FORMATTER;
+
+/**
+ * The API of {@link ru.practicum.statsserver.controller.StatsController} served by WebFlux.
+ */
+@Profile("reactive")
+@RestController
+@RequiredArgsConstructor
+public class ReactiveStatsController {
+
+    private final ReactiveStatsService service;
+    private final StatsQueryProperties queryProperties;
+
+    @PostMapping("/hit")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Void> hit(@RequestBody @Valid EndpointHit hit) {
+        return service.saveHit(hit).then();
+    }
+
+    @PostMapping("/hit/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Void> hits(@RequestBody List<@Valid EndpointHit> hits) {
+        return service.saveHits(hits);
+    }
+
+    @GetMapping("/stats")
+    public Mono<List<ViewStats>> getStats(
+            @RequestParam
+            @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+            LocalDateTime start,
+            @RequestParam
+            @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+            LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique) {
+
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("End must be after start");
+        }
+
+        return service.getStats(start, end, uris, unique);
+    }
+
+    /**
+     * {@code GET /stats} with the uris in the body, for sets that would not fit in a url.
+     */
+    @PostMapping("/stats/query")
+    public Mono<List<ViewStats>> query(@RequestBody @Valid StatsQuery query) {
+        LocalDateTime start = parseTime(query.getStart());
+        LocalDateTime end = parseTime(query.getEnd());
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("End must be after start");
+        }
+        Set<String> uris = query.allUris(queryProperties.getMaxUris());
+
+        return service.getStats(start, end, uris.isEmpty() ? null : List.copyOf(uris), query.isUnique());
+    }
+
+    @GetMapping("/stats/changes")
+    public Mono<ViewChanges> getChanges(@RequestParam(required = false) String epoch,
+                                        @RequestParam(required = false) Long after,
+                                        @RequestParam(defaultValue = "1000") int limit) {
+        return service.getChanges(epoch, after, limit);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, Object> handleIllegalArgument(IllegalArgumentException ex) {
+        return Map.of(
+                "status", HttpStatus.BAD_REQUEST.value(),
+                "error", "Bad Request",
+                "message", ex.getMessage(),
+                "timestamp", LocalDateTime.now().toString()
+        );
+    }
+
+    @ExceptionHandler(MisdirectedHitException.class)
+    public ResponseEntity<Map<String, Object>> handleMisdirectedHit(MisdirectedHitException ex) {
+        return ResponseEntity.status(MisdirectedHitException.STATUS).body(Map.of(
+                "status", MisdirectedHitException.STATUS,
+                "error", "Misdirected Request",
+                "message", ex.getMessage(),
+                "timestamp", LocalDateTime.now().toString()
+        ));
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        try {
+            return LocalDateTime.parse(value, FORMATTER);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Time must be in the yyyy-MM-dd HH:mm:ss format: " + value);
+        }
+    }
+}
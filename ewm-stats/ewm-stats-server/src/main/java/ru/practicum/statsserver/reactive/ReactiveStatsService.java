@@ -0,0 +1,107 @@
+package ru.practicum.statsserver.reactive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.ViewChanges;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.feed.FeedProperties;
+import ru.practicum.statsserver.feed.ViewChangeLog;
+import ru.practicum.statsserver.filter.HitFilter;
+import ru.practicum.statsserver.service.StatsServiceImpl;
+import ru.practicum.statsserver.shard.MisdirectedHitException;
+import ru.practicum.statsserver.shard.ShardProperties;
+import ru.practicum.statsserver.storage.HitRecord;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ru.practicum.statsserver.service.StatsService} on top of {@link ReactiveHitStore}. Hits
+ * are written directly, the buffered ingestion of the servlet stack is not used; a batch is
+ * stored whole or not at all.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveStatsService {
+
+    private final ReactiveHitStore store;
+    private final ViewChangeLog changeLog;
+    private final FeedProperties feedProperties;
+    private final ShardProperties shard;
+    private final HitFilter filter;
+
+    public Mono<EndpointHit> saveHit(EndpointHit dto) {
+        if (!shard.owns(dto.getUri())) {
+            return Mono.error(new MisdirectedHitException(dto.getUri(), shard));
+        }
+        HitRecord hit = StatsServiceImpl.toRecord(dto);
+        if (!filter.accepts(dto, hit)) {
+            return Mono.just(dto);
+        }
+
+        return store.save(hit)
+                .map(id -> {
+                    filter.stored(List.of(hit));
+                    changeLog.record(List.of(hit.uri()));
+                    dto.setId(id);
+                    return dto;
+                });
+    }
+
+    public Mono<Void> saveHits(List<EndpointHit> dtos) {
+        for (EndpointHit dto : dtos) {
+            if (!shard.owns(dto.getUri())) {
+                return Mono.error(new MisdirectedHitException(dto.getUri(), shard));
+            }
+        }
+        HitFilter.Batch batch = filter.batch();
+        List<HitRecord> hits = new ArrayList<>(dtos.size());
+        for (EndpointHit dto : dtos) {
+            HitRecord hit = StatsServiceImpl.toRecord(dto);
+            if (batch.accepts(dto, hit)) {
+                hits.add(hit);
+            }
+        }
+        List<String> uris = hits.stream().map(HitRecord::uri).distinct().toList();
+        return store.saveAll(hits)
+                .then(Mono.fromRunnable(() -> {
+                    filter.stored(hits);
+                    changeLog.record(uris);
+                }));
+    }
+
+    public Mono<List<ViewStats>> getStats(LocalDateTime start,
+                                          LocalDateTime end,
+                                          List<String> uris,
+                                          boolean unique) {
+        return store.getStats(start, end, uris, unique).collectList();
+    }
+
+    public Mono<ViewChanges> getChanges(String epoch, Long after, int limit) {
+        ViewChangeLog.Page page = after != null && changeLog.epoch().equals(epoch)
+                ? changeLog.changes(after, Math.min(limit, feedProperties.getMaxPageSize()))
+                : null;
+        if (page == null) {
+            return Mono.just(ViewChanges.builder()
+                    .epoch(changeLog.epoch())
+                    .cursor(changeLog.head())
+                    .reset(after != null)
+                    .stats(List.of())
+                    .build());
+        }
+        Mono<List<ViewStats>> stats = page.uris().isEmpty()
+                ? Mono.just(List.of())
+                : getStats(ViewChanges.COUNTED_SINCE, LocalDateTime.now(), page.uris(), true);
+        return stats.map(counts -> ViewChanges.builder()
+                .epoch(changeLog.epoch())
+                .cursor(page.cursor())
+                .more(page.more())
+                .stats(counts)
+                .build());
+    }
+}
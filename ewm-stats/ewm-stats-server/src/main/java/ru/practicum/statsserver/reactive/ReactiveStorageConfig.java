@@ -0,0 +1,54 @@
+package ru.practicum.statsserver.reactive;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.net.URI;
+
+/**
+ * R2DBC access for the reactive profile. The pool connects to the database of
+ * {@code spring.datasource}, whose schema and partitions are still maintained by the JPA side.
+ *
+ * <p>The pool is not a bean: a {@code ConnectionFactory} bean makes the {@code DataSource}
+ * auto-configuration back off, and the JPA side needs it.</p>
+ */
+@Profile("reactive")
+@Configuration
+public class ReactiveStorageConfig implements DisposableBean {
+
+    private ConnectionPool pool;
+
+    @Bean
+    public DatabaseClient databaseClient(DataSourceProperties dataSource, ReactiveProperties properties) {
+        // jdbc:postgresql://host:port/database?options, the jdbc only options are dropped
+        URI url = URI.create(dataSource.determineUrl().substring("jdbc:".length()));
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.builder()
+                .option(ConnectionFactoryOptions.DRIVER, url.getScheme())
+                .option(ConnectionFactoryOptions.HOST, url.getHost())
+                .option(ConnectionFactoryOptions.PORT, url.getPort() == -1 ? 5432 : url.getPort())
+                .option(ConnectionFactoryOptions.DATABASE, url.getPath().substring(1))
+                .option(ConnectionFactoryOptions.USER, dataSource.determineUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, dataSource.determinePassword())
+                .build();
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(properties.getPoolSize())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .build());
+        return DatabaseClient.create(pool);
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null) {
+            pool.dispose();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package ru.practicum.statsserver.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.statsserver.model.App;
+
+import java.util.Optional;
+
+public interface AppRepository extends JpaRepository<App, Integer> {
+
+    Optional<App> findByName(String name);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO apps (name) VALUES (:name) ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(String name);
+}
@@ -0,0 +1,7 @@
+package ru.practicum.statsserver.repository;
+
+/**
+ * Aggregated hits of a dictionary-encoded (app, uri) pair.
+ */
+public record HitCount(Integer appId, Integer uriId, Long hits) {
+}
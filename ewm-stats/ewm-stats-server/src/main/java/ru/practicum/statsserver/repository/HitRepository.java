@@ -3,43 +3,43 @@ package ru.practicum.statsserver.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import ru.practicum.statsdto.ViewStats;
 import ru.practicum.statsserver.model.Hit;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface HitRepository extends JpaRepository<Hit, Long> {
 
-    @Query("SELECT new ru.practicum.statsdto.ViewStats(h.app, h.uri, COUNT(h)) " +
+    @Query("SELECT new ru.practicum.statsserver.repository.HitCount(h.appId, h.uriId, COUNT(h)) " +
             "FROM Hit h " +
             "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
+            "GROUP BY h.appId, h.uriId " +
             "ORDER BY COUNT(h) DESC")
-    List<ViewStats> getStats(LocalDateTime start, LocalDateTime end);
+    List<HitCount> getStats(LocalDateTime start, LocalDateTime end);
 
-    @Query("SELECT new ru.practicum.statsdto.ViewStats(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
+    @Query("SELECT new ru.practicum.statsserver.repository.HitCount(h.appId, h.uriId, COUNT(DISTINCT h.ip)) " +
             "FROM Hit h " +
             "WHERE h.timestamp BETWEEN :start AND :end " +
-            "GROUP BY h.app, h.uri " +
+            "GROUP BY h.appId, h.uriId " +
             "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<ViewStats> getStatsUnique(LocalDateTime start, LocalDateTime end);
+    List<HitCount> getStatsUnique(LocalDateTime start, LocalDateTime end);
 
-    @Query("SELECT new ru.practicum.statsdto.ViewStats(h.app, h.uri, COUNT(h)) " +
+    @Query("SELECT new ru.practicum.statsserver.repository.HitCount(h.appId, h.uriId, COUNT(h)) " +
             "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
+            "WHERE h.timestamp BETWEEN :start AND :end AND h.uriId IN :uriIds " +
+            "GROUP BY h.appId, h.uriId " +
             "ORDER BY COUNT(h) DESC")
-    List<ViewStats> getStatsByUris(LocalDateTime start,
-                                   LocalDateTime end,
-                                   @Param("uris") List<String> uris);
+    List<HitCount> getStatsByUris(LocalDateTime start,
+                                  LocalDateTime end,
+                                  @Param("uriIds") Collection<Integer> uriIds);
 
-    @Query("SELECT new ru.practicum.statsdto.ViewStats(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
+    @Query("SELECT new ru.practicum.statsserver.repository.HitCount(h.appId, h.uriId, COUNT(DISTINCT h.ip)) " +
             "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN :start AND :end AND h.uri IN :uris " +
-            "GROUP BY h.app, h.uri " +
+            "WHERE h.timestamp BETWEEN :start AND :end AND h.uriId IN :uriIds " +
+            "GROUP BY h.appId, h.uriId " +
             "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<ViewStats> getStatsUniqueByUris(LocalDateTime start,
-                                         LocalDateTime end,
-                                         @Param("uris") List<String> uris);
+    List<HitCount> getStatsUniqueByUris(LocalDateTime start,
+                                        LocalDateTime end,
+                                        @Param("uriIds") Collection<Integer> uriIds);
 }
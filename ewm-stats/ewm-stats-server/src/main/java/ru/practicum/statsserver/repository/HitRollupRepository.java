@@ -0,0 +1,41 @@
+package ru.practicum.statsserver.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.statsserver.model.HitRollup;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface HitRollupRepository extends JpaRepository<HitRollup, Long> {
+
+    @Query("SELECT new ru.practicum.statsserver.repository.HitCount(r.appId, r.uriId, SUM(r.hits)) " +
+            "FROM HitRollup r " +
+            "WHERE r.day BETWEEN :start AND :end " +
+            "GROUP BY r.appId, r.uriId")
+    List<HitCount> getStats(LocalDate start, LocalDate end);
+
+    @Query("SELECT new ru.practicum.statsserver.repository.HitCount(r.appId, r.uriId, SUM(r.uniqueIps)) " +
+            "FROM HitRollup r " +
+            "WHERE r.day BETWEEN :start AND :end " +
+            "GROUP BY r.appId, r.uriId")
+    List<HitCount> getStatsUnique(LocalDate start, LocalDate end);
+
+    @Query("SELECT new ru.practicum.statsserver.repository.HitCount(r.appId, r.uriId, SUM(r.hits)) " +
+            "FROM HitRollup r " +
+            "WHERE r.day BETWEEN :start AND :end AND r.uriId IN :uriIds " +
+            "GROUP BY r.appId, r.uriId")
+    List<HitCount> getStatsByUris(LocalDate start,
+                                  LocalDate end,
+                                  @Param("uriIds") Collection<Integer> uriIds);
+
+    @Query("SELECT new ru.practicum.statsserver.repository.HitCount(r.appId, r.uriId, SUM(r.uniqueIps)) " +
+            "FROM HitRollup r " +
+            "WHERE r.day BETWEEN :start AND :end AND r.uriId IN :uriIds " +
+            "GROUP BY r.appId, r.uriId")
+    List<HitCount> getStatsUniqueByUris(LocalDate start,
+                                        LocalDate end,
+                                        @Param("uriIds") Collection<Integer> uriIds);
+}
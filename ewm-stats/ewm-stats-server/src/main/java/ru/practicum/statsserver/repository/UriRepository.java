@@ -0,0 +1,23 @@
+package ru.practicum.statsserver.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.statsserver.model.Uri;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UriRepository extends JpaRepository<Uri, Integer> {
+
+    Optional<Uri> findByPath(String path);
+
+    List<Uri> findAllByPathIn(Collection<String> paths);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO uris (path) VALUES (:path) ON CONFLICT (path) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(String path);
+}
@@ -1,6 +1,7 @@
 package ru.practicum.statsserver.service;
 
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.ViewChanges;
 import ru.practicum.statsdto.ViewStats;
 
 import java.time.LocalDateTime;
@@ -10,8 +11,12 @@ public interface StatsService {
 
     EndpointHit saveHit(EndpointHit hit);
 
+    void saveHits(List<EndpointHit> hits);
+
     List<ViewStats> getStats(LocalDateTime start,
                              LocalDateTime end,
                              List<String> uris,
                              boolean unique);
+
+    ViewChanges getChanges(String epoch, Long after, int limit);
 }
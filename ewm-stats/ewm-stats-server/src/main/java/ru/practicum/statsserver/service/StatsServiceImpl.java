@@ -1,59 +1,121 @@
 package ru.practicum.statsserver.service;
 
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.ViewChanges;
 import ru.practicum.statsdto.ViewStats;
-import ru.practicum.statsserver.model.Hit;
-import ru.practicum.statsserver.repository.HitRepository;
+import ru.practicum.statsserver.cache.StatsCache;
+import ru.practicum.statsserver.feed.FeedProperties;
+import ru.practicum.statsserver.feed.ViewChangeLog;
+import ru.practicum.statsserver.filter.HitFilter;
+import ru.practicum.statsserver.ingest.BufferFullException;
+import ru.practicum.statsserver.ingest.HitIngestor;
+import ru.practicum.statsserver.shard.MisdirectedHitException;
+import ru.practicum.statsserver.shard.ShardProperties;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.util.IpAddresses;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
+@Observed(name = "stats.service")
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
 
     public static final DateTimeFormatter FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    private final HitRepository repository;
+    private final HitIngestor ingestor;
+    private final StatsCache cache;
+    private final ViewChangeLog changeLog;
+    private final FeedProperties feedProperties;
+    private final ShardProperties shard;
+    private final HitFilter filter;
 
     @Override
-    @Transactional
     public EndpointHit saveHit(EndpointHit dto) {
-        Hit entity = Hit.builder()
-                .app(dto.getApp())
-                .uri(dto.getUri())
-                .ip(dto.getIp())
-                .timestamp(LocalDateTime.parse(dto.getTimestamp(), FORMATTER))
-                .build();
-
-        entity = repository.save(entity);
-
-        dto.setId(entity.getId());
+        if (!shard.owns(dto.getUri())) {
+            throw new MisdirectedHitException(dto.getUri(), shard);
+        }
+        HitRecord hit = toRecord(dto);
+        if (filter.accepts(dto, hit)) {
+            dto.setId(ingestor.ingest(hit));
+            filter.stored(List.of(hit));
+        }
         return dto;
     }
 
+    @Override
+    public void saveHits(List<EndpointHit> hits) {
+        // a batch is taken whole or not at all, so the client can retry it elsewhere
+        for (EndpointHit hit : hits) {
+            if (!shard.owns(hit.getUri())) {
+                throw new MisdirectedHitException(hit.getUri(), shard);
+            }
+        }
+        HitFilter.Batch batch = filter.batch();
+        List<HitRecord> accepted = new ArrayList<>(hits.size());
+        for (EndpointHit dto : hits) {
+            HitRecord hit = toRecord(dto);
+            if (batch.accepts(dto, hit)) {
+                accepted.add(hit);
+            }
+        }
+        if (!accepted.isEmpty()) {
+            try {
+                ingestor.ingestAll(accepted);
+            } catch (BufferFullException ex) {
+                // the part taken before the buffer filled up counts as a repeat when the client retries
+                filter.stored(accepted.subList(0, ex.getAccepted()));
+                throw ex;
+            }
+            filter.stored(accepted);
+        }
+    }
+
     @Override
     public List<ViewStats> getStats(LocalDateTime start,
                                     LocalDateTime end,
                                     List<String> uris,
                                     boolean unique) {
+        return cache.getStats(start, end, uris, unique);
+    }
 
-        boolean hasUris = uris != null && !uris.isEmpty();
-
-        if (!hasUris && !unique) {
-            return repository.getStats(start, end);
-        } else if (!hasUris) {
-            return repository.getStatsUnique(start, end);
-        } else if (!unique) {
-            return repository.getStatsByUris(start, end, uris);
-        } else {
-            return repository.getStatsUniqueByUris(start, end, uris);
+    @Override
+    public ViewChanges getChanges(String epoch, Long after, int limit) {
+        ViewChangeLog.Page page = after != null && changeLog.epoch().equals(epoch)
+                ? changeLog.changes(after, Math.min(limit, feedProperties.getMaxPageSize()))
+                : null;
+        if (page == null) {
+            // unknown position, the consumer reloads everything and continues from the head
+            return ViewChanges.builder()
+                    .epoch(changeLog.epoch())
+                    .cursor(changeLog.head())
+                    .reset(after != null)
+                    .stats(List.of())
+                    .build();
         }
+        // the whole history is past the cache's max-window, so the store counts it in one aggregate query
+        List<ViewStats> stats = page.uris().isEmpty()
+                ? List.of()
+                : cache.getStats(ViewChanges.COUNTED_SINCE, LocalDateTime.now(), page.uris(), true);
+        return ViewChanges.builder()
+                .epoch(changeLog.epoch())
+                .cursor(page.cursor())
+                .more(page.more())
+                .stats(stats)
+                .build();
+    }
+
+    public static HitRecord toRecord(EndpointHit dto) {
+        return new HitRecord(dto.getApp(),
+                dto.getUri(),
+                IpAddresses.parse(dto.getIp()),
+                LocalDateTime.parse(dto.getTimestamp(), FORMATTER));
     }
 }
@@ -0,0 +1,17 @@
+package ru.practicum.statsserver.shard;
+
+/**
+ * A hit sent to a shard that does not own its uri. Storing it would split the ips of the uri over
+ * two shards and the merged unique counts would no longer be exact.
+ */
+public class MisdirectedHitException extends RuntimeException {
+
+    /**
+     * 421 Misdirected Request, not among the constants of {@link org.springframework.http.HttpStatus}.
+     */
+    public static final int STATUS = 421;
+
+    public MisdirectedHitException(String uri, ShardProperties shard) {
+        super("Uri " + uri + " does not belong to shard " + shard.getIndex() + " of " + shard.getCount());
+    }
+}
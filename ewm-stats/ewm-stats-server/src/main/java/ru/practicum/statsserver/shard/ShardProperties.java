@@ -0,0 +1,24 @@
+package ru.practicum.statsserver.shard;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import ru.practicum.statsdto.UriShards;
+
+/**
+ * Position of this server among the shards listed in {@code stats-server.shards} of the clients.
+ * A single server owns every uri.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.shard")
+public class ShardProperties {
+
+    private int index = 0;
+
+    private int count = 1;
+
+    public boolean owns(String uri) {
+        return UriShards.shardOf(uri, count) == index;
+    }
+}
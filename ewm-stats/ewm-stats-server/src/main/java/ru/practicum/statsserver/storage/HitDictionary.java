@@ -0,0 +1,121 @@
+package ru.practicum.statsserver.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsserver.model.App;
+import ru.practicum.statsserver.model.Uri;
+import ru.practicum.statsserver.repository.AppRepository;
+import ru.practicum.statsserver.repository.UriRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interning cache over the {@code apps} and {@code uris} lookup tables. Both tables only grow,
+ * so entries are cached for the lifetime of the server.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.storage", name = "type", havingValue = "jpa", matchIfMissing = true)
+public class HitDictionary {
+
+    private final AppRepository appRepository;
+    private final UriRepository uriRepository;
+
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> appNames = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+    private final Map<Integer, String> uriPaths = new ConcurrentHashMap<>();
+
+    public int appId(String name) {
+        Integer id = appIds.get(name);
+        if (id == null) {
+            appRepository.insertIfAbsent(name);
+            id = appRepository.findByName(name).orElseThrow().getId();
+            cacheApp(id, name);
+        }
+        return id;
+    }
+
+    public int uriId(String path) {
+        Integer id = uriIds.get(path);
+        if (id == null) {
+            uriRepository.insertIfAbsent(path);
+            id = uriRepository.findByPath(path).orElseThrow().getId();
+            cacheUri(id, path);
+        }
+        return id;
+    }
+
+    /**
+     * Resolves known uris to their ids without creating new entries.
+     */
+    public List<Integer> findUriIds(Collection<String> paths) {
+        List<Integer> ids = new ArrayList<>(paths.size());
+        List<String> missing = new ArrayList<>();
+        for (String path : paths) {
+            Integer id = uriIds.get(path);
+            if (id != null) {
+                ids.add(id);
+            } else {
+                missing.add(path);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Uri uri : uriRepository.findAllByPathIn(missing)) {
+                cacheUri(uri.getId(), uri.getPath());
+                ids.add(uri.getId());
+            }
+        }
+        return ids;
+    }
+
+    public String appName(int id) {
+        String name = appNames.get(id);
+        if (name == null) {
+            App app = appRepository.findById(id).orElseThrow();
+            cacheApp(app.getId(), app.getName());
+            name = app.getName();
+        }
+        return name;
+    }
+
+    public String uriPath(int id) {
+        String path = uriPaths.get(id);
+        if (path == null) {
+            loadUris(Set.of(id));
+            path = uriPaths.get(id);
+        }
+        return path;
+    }
+
+    /**
+     * Loads all not yet cached uris with one query, used before mapping a batch of results.
+     */
+    public void loadUris(Collection<Integer> ids) {
+        List<Integer> missing = ids.stream()
+                .filter(id -> !uriPaths.containsKey(id))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            for (Uri uri : uriRepository.findAllById(missing)) {
+                cacheUri(uri.getId(), uri.getPath());
+            }
+        }
+    }
+
+    private void cacheApp(Integer id, String name) {
+        appIds.put(name, id);
+        appNames.put(id, name);
+    }
+
+    private void cacheUri(Integer id, String path) {
+        uriIds.put(path, id);
+        uriPaths.put(id, path);
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.statsserver.storage;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+
+/**
+ * A single hit as accepted by the server, independent of how a store encodes it.
+ */
+public record HitRecord(String app, String uri, InetAddress ip, LocalDateTime timestamp) {
+}
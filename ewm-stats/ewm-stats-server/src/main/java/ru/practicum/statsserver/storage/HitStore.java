@@ -0,0 +1,49 @@
+package ru.practicum.statsserver.storage;
+
+import ru.practicum.statsdto.ViewStats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Storage backend of the stats server. Implementations are selected with {@code stats.storage.type}.
+ */
+public interface HitStore {
+
+    /**
+     * Stores the hit and returns its id.
+     */
+    long save(HitRecord hit);
+
+    /**
+     * Stores a batch of hits, used by the buffered ingestion to group commits.
+     */
+    default void saveAll(List<HitRecord> hits) {
+        hits.forEach(this::save);
+    }
+
+    List<ViewStats> getStats(LocalDateTime start,
+                             LocalDateTime end,
+                             List<String> uris,
+                             boolean unique);
+
+    /**
+     * Hits of the given uris in {@code [from, to)} per time bucket, app, uri and visitor: the grain
+     * at which counts of adjacent ranges add up, unique ones included. Buckets are counted from
+     * the epoch, timestamps taken as UTC.
+     */
+    List<VisitorHits> getVisitorHits(LocalDateTime from,
+                                     LocalDateTime to,
+                                     Collection<String> uris,
+                                     Duration bucket);
+
+    /**
+     * Hits older than this may have been compacted and are missing from
+     * {@link #getVisitorHits visitor hits}.
+     */
+    default LocalDateTime visitorHitsSince() {
+        return LocalDateTime.MIN;
+    }
+}
@@ -0,0 +1,194 @@
+package ru.practicum.statsserver.storage;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.model.Hit;
+import ru.practicum.statsserver.partition.PartitioningProperties;
+import ru.practicum.statsserver.repository.HitCount;
+import ru.practicum.statsserver.repository.HitRepository;
+import ru.practicum.statsserver.repository.HitRollupRepository;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "stats.storage", name = "type", havingValue = "jpa", matchIfMissing = true)
+public class JpaHitStore implements HitStore {
+
+    private static final String INSERT =
+            "INSERT INTO hits (app_id, uri_id, ip, \"timestamp\") VALUES (?, ?, CAST(? AS inet), ?)";
+
+    private static final String VISITOR_HITS =
+            "SELECT floor(extract(epoch FROM \"timestamp\") / ?)::bigint AS bucket, app_id, uri_id, host(ip) AS ip, "
+                    + "count(*) AS hits FROM hits "
+                    + "WHERE \"timestamp\" >= ? AND \"timestamp\" < ? AND uri_id = ANY(?) "
+                    + "GROUP BY bucket, app_id, uri_id, ip";
+
+    private final HitRepository repository;
+    private final HitRollupRepository rollupRepository;
+    private final HitDictionary dictionary;
+    private final PartitioningProperties partitioning;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public long save(HitRecord record) {
+        // interned outside of the insert transaction, new dictionary entries commit on their own
+        Hit hit = Hit.builder()
+                .appId(dictionary.appId(record.app()))
+                .uriId(dictionary.uriId(record.uri()))
+                .ip(record.ip())
+                .timestamp(record.timestamp())
+                .build();
+        return repository.save(hit).getId();
+    }
+
+    @Override
+    public void saveAll(List<HitRecord> hits) {
+        List<Object[]> rows = hits.stream()
+                .map(hit -> new Object[]{
+                        dictionary.appId(hit.app()),
+                        dictionary.uriId(hit.uri()),
+                        hit.ip().getHostAddress(),
+                        Timestamp.valueOf(hit.timestamp())})
+                .toList();
+        // plain jdbc batch, the entity ids of a group commit are never read back
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT, rows));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStats> getStats(LocalDateTime start,
+                                    LocalDateTime end,
+                                    List<String> uris,
+                                    boolean unique) {
+
+        boolean hasUris = uris != null && !uris.isEmpty();
+        List<Integer> uriIds = null;
+        if (hasUris) {
+            uriIds = dictionary.findUriIds(uris);
+            if (uriIds.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<HitCount> counts;
+        if (!hasUris && !unique) {
+            counts = repository.getStats(start, end);
+        } else if (!hasUris) {
+            counts = repository.getStatsUnique(start, end);
+        } else if (!unique) {
+            counts = repository.getStatsByUris(start, end, uriIds);
+        } else {
+            counts = repository.getStatsUniqueByUris(start, end, uriIds);
+        }
+
+        Set<List<Integer>> approximate = Set.of();
+        if (partitioning.hasRollups()) {
+            List<HitCount> rollups = getRollups(start.toLocalDate(),
+                    PartitioningProperties.lastRolledUpDay(end), uriIds, unique);
+            if (unique || partitioning.cutsRolledUpDay(start, end)) {
+                approximate = rollups.stream()
+                        .map(rollup -> List.of(rollup.appId(), rollup.uriId()))
+                        .collect(Collectors.toSet());
+            }
+            counts = merge(counts, rollups);
+        }
+        return toViewStats(counts, approximate);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<VisitorHits> getVisitorHits(LocalDateTime from,
+                                            LocalDateTime to,
+                                            Collection<String> uris,
+                                            Duration bucket) {
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        if (uriIds.isEmpty()) {
+            return List.of();
+        }
+        List<VisitorRow> rows = jdbcTemplate.query(VISITOR_HITS, (rs, rowNum) -> new VisitorRow(
+                        rs.getLong("bucket"),
+                        rs.getInt("app_id"),
+                        rs.getInt("uri_id"),
+                        IpAddresses.visitorKey(IpAddresses.parse(rs.getString("ip"))),
+                        rs.getLong("hits")),
+                bucket.toSeconds(), Timestamp.valueOf(from), Timestamp.valueOf(to), uriIds.toArray(Integer[]::new));
+        dictionary.loadUris(rows.stream().map(VisitorRow::uriId).distinct().toList());
+        return rows.stream()
+                .map(row -> new VisitorHits(row.bucket(),
+                        dictionary.appName(row.appId()),
+                        dictionary.uriPath(row.uriId()),
+                        row.visitor(),
+                        row.hits()))
+                .toList();
+    }
+
+    /**
+     * With rollup retention the expired partitions only survive as daily counts without ips.
+     */
+    @Override
+    public LocalDateTime visitorHitsSince() {
+        return partitioning.hasRollups() ? partitioning.retainedSince() : LocalDateTime.MIN;
+    }
+
+    /**
+     * Rolled up hits are kept per day, so the range is matched with day precision and unique
+     * counts of several days are summed, giving an upper bound for the compacted part. Counts
+     * taking such a part are reported as approximate.
+     */
+    private List<HitCount> getRollups(LocalDate start, LocalDate end, List<Integer> uriIds, boolean unique) {
+        if (uriIds == null) {
+            return unique ? rollupRepository.getStatsUnique(start, end) : rollupRepository.getStats(start, end);
+        }
+        return unique
+                ? rollupRepository.getStatsUniqueByUris(start, end, uriIds)
+                : rollupRepository.getStatsByUris(start, end, uriIds);
+    }
+
+    private List<HitCount> merge(List<HitCount> counts, List<HitCount> rollups) {
+        if (rollups.isEmpty()) {
+            return counts;
+        }
+        Map<List<Integer>, HitCount> merged = new LinkedHashMap<>();
+        for (HitCount count : counts) {
+            merged.put(List.of(count.appId(), count.uriId()), count);
+        }
+        for (HitCount rollup : rollups) {
+            merged.merge(List.of(rollup.appId(), rollup.uriId()), rollup,
+                    (a, b) -> new HitCount(a.appId(), a.uriId(), a.hits() + b.hits()));
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparingLong(HitCount::hits).reversed())
+                .toList();
+    }
+
+    private List<ViewStats> toViewStats(List<HitCount> counts, Set<List<Integer>> approximate) {
+        dictionary.loadUris(counts.stream().map(HitCount::uriId).toList());
+        return counts.stream()
+                .map(count -> new ViewStats(dictionary.appName(count.appId()),
+                        dictionary.uriPath(count.uriId()),
+                        count.hits(),
+                        approximate.contains(List.of(count.appId(), count.uriId())) ? Boolean.TRUE : null))
+                .toList();
+    }
+
+    private record VisitorRow(long bucket, int appId, int uriId, long visitor, long hits) {
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.statsserver.storage;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "stats.storage")
+public class StorageProperties {
+
+    private StorageType type = StorageType.JPA;
+
+    private Columnar columnar = new Columnar();
+
+    @Getter
+    @Setter
+    public static class Columnar {
+
+        private Path directory = Path.of("data", "hits");
+
+        /**
+         * Rows per segment file; a segment takes 28 bytes per row.
+         */
+        private int segmentCapacity = 1 << 20;
+    }
+}
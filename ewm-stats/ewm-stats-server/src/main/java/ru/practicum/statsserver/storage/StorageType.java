@@ -0,0 +1,6 @@
+package ru.practicum.statsserver.storage;
+
+public enum StorageType {
+    JPA,
+    COLUMNAR
+}
@@ -0,0 +1,10 @@
+package ru.practicum.statsserver.storage;
+
+/**
+ * Hits of one visitor on an (app, uri) pair within one time bucket.
+ *
+ * @param bucket  number of the bucket, seconds since the epoch divided by the bucket length
+ * @param visitor {@link ru.practicum.statsserver.util.IpAddresses#visitorKey key} of the visitor's ip
+ */
+public record VisitorHits(long bucket, String app, String uri, long visitor, long hits) {
+}
@@ -0,0 +1,237 @@
+package ru.practicum.statsserver.storage.columnar;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.HitStore;
+import ru.practicum.statsserver.storage.StorageProperties;
+import ru.practicum.statsserver.storage.VisitorHits;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Append-only columnar hit store kept in memory-mapped segment files. App and uri are dictionary
+ * encoded, ips are packed into two longs and each segment tracks its time range so queries only
+ * scan segments overlapping the requested interval.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "stats.storage", name = "type", havingValue = "columnar")
+public class ColumnarHitStore implements HitStore {
+
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - 64) / Segment.BYTES_PER_ROW;
+
+    private final Path directory;
+    private final int segmentCapacity;
+    private final Dictionary apps;
+    private final Dictionary uris;
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+
+    private long rowsBeforeActive;
+
+    public ColumnarHitStore(StorageProperties properties) throws IOException {
+        this.directory = properties.getColumnar().getDirectory();
+        this.segmentCapacity = properties.getColumnar().getSegmentCapacity();
+        if (segmentCapacity <= 0 || segmentCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Segment capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        Files.createDirectories(directory);
+        apps = new Dictionary(directory.resolve("apps.dict"));
+        uris = new Dictionary(directory.resolve("uris.dict"));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().endsWith(".seg")).sorted().toList()) {
+                segments.add(Segment.open(file));
+            }
+        }
+        for (int i = 0; i < segments.size() - 1; i++) {
+            rowsBeforeActive += segments.get(i).rowCount();
+        }
+        log.info("Opened columnar hit store in {} with {} segments", directory, segments.size());
+    }
+
+    @Override
+    public long save(HitRecord hit) {
+        int appId = apps.intern(hit.app());
+        int uriId = uris.intern(hit.uri());
+        long[] ip = IpCodec.encode(hit.ip());
+        long epoch = hit.timestamp().toEpochSecond(ZoneOffset.UTC);
+
+        synchronized (this) {
+            Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (active == null || !active.accepts(epoch)) {
+                if (active != null) {
+                    rowsBeforeActive += active.rowCount();
+                    active.force();
+                }
+                active = newSegment();
+            }
+            int row = active.append(appId, uriId, ip[0], ip[1], epoch);
+            return rowsBeforeActive + row + 1;
+        }
+    }
+
+    @Override
+    public List<ViewStats> getStats(LocalDateTime start,
+                                    LocalDateTime end,
+                                    List<String> uris,
+                                    boolean unique) {
+        BitSet uriFilter = uriFilter(uris);
+        if (uriFilter != null && uriFilter.isEmpty()) {
+            return List.of();
+        }
+
+        long from = start.toEpochSecond(ZoneOffset.UTC);
+        long to = end.toEpochSecond(ZoneOffset.UTC);
+        Map<Long, long[]> counts = new HashMap<>();
+        Map<Long, Set<IpKey>> visitors = unique ? new HashMap<>() : null;
+
+        for (Segment segment : segments) {
+            if (segment.overlaps(from, to)) {
+                scan(segment, from, to, uriFilter, counts, visitors);
+            }
+        }
+
+        List<ViewStats> result = new ArrayList<>(counts.size());
+        for (Map.Entry<Long, long[]> entry : counts.entrySet()) {
+            long key = entry.getKey();
+            long hits = unique ? visitors.get(key).size() : entry.getValue()[0];
+            result.add(new ViewStats(apps.get((int) (key >>> 32)), this.uris.get((int) key), hits));
+        }
+        result.sort(Comparator.comparingLong(ViewStats::getHits).reversed());
+        return result;
+    }
+
+    @Override
+    public List<VisitorHits> getVisitorHits(LocalDateTime from,
+                                            LocalDateTime to,
+                                            Collection<String> uris,
+                                            Duration bucket) {
+        BitSet uriFilter = uriFilter(uris);
+        if (uriFilter != null && uriFilter.isEmpty()) {
+            return List.of();
+        }
+        long fromEpoch = from.toEpochSecond(ZoneOffset.UTC);
+        long toEpoch = to.toEpochSecond(ZoneOffset.UTC) - 1;
+        long bucketSeconds = bucket.toSeconds();
+        Map<VisitorKey, long[]> counts = new HashMap<>();
+
+        for (Segment segment : segments) {
+            if (!segment.overlaps(fromEpoch, toEpoch)) {
+                continue;
+            }
+            int rows = segment.rowCount();
+            long base = segment.baseEpoch();
+            IntBuffer appIds = segment.appIds();
+            IntBuffer uriIds = segment.uriIds();
+            IntBuffer deltas = segment.timeDeltas();
+            LongBuffer ipHigh = segment.ipHigh();
+            LongBuffer ipLow = segment.ipLow();
+            for (int row = 0; row < rows; row++) {
+                long epoch = base + deltas.get(row);
+                int uriId = uriIds.get(row);
+                if (epoch < fromEpoch || epoch > toEpoch || uriFilter != null && !uriFilter.get(uriId)) {
+                    continue;
+                }
+                VisitorKey key = new VisitorKey(Math.floorDiv(epoch, bucketSeconds), appIds.get(row), uriId,
+                        IpAddresses.visitorKey(ipHigh.get(row), ipLow.get(row)));
+                counts.computeIfAbsent(key, k -> new long[1])[0]++;
+            }
+        }
+
+        List<VisitorHits> result = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> result.add(new VisitorHits(key.bucket(), apps.get(key.appId()),
+                this.uris.get(key.uriId()), key.visitor(), hits[0])));
+        return result;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        apps.close();
+        uris.close();
+    }
+
+    private void scan(Segment segment, long from, long to, BitSet uriFilter,
+                      Map<Long, long[]> counts, Map<Long, Set<IpKey>> visitors) {
+        int rows = segment.rowCount();
+        long base = segment.baseEpoch();
+        IntBuffer appIds = segment.appIds();
+        IntBuffer uriIds = segment.uriIds();
+        IntBuffer deltas = segment.timeDeltas();
+        LongBuffer ipHigh = segment.ipHigh();
+        LongBuffer ipLow = segment.ipLow();
+
+        for (int row = 0; row < rows; row++) {
+            long epoch = base + deltas.get(row);
+            if (epoch < from || epoch > to) {
+                continue;
+            }
+            int uriId = uriIds.get(row);
+            if (uriFilter != null && !uriFilter.get(uriId)) {
+                continue;
+            }
+            long key = ((long) appIds.get(row) << 32) | (uriId & 0xFFFFFFFFL);
+            counts.computeIfAbsent(key, k -> new long[1])[0]++;
+            if (visitors != null) {
+                visitors.computeIfAbsent(key, k -> new HashSet<>()).add(new IpKey(ipHigh.get(row), ipLow.get(row)));
+            }
+        }
+    }
+
+    private BitSet uriFilter(Collection<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return null;
+        }
+        BitSet filter = new BitSet();
+        for (String uri : uris) {
+            Integer id = this.uris.find(uri);
+            if (id != null) {
+                filter.set(id);
+            }
+        }
+        return filter;
+    }
+
+    private Segment newSegment() {
+        Path file = directory.resolve(String.format("%010d.seg", segments.size()));
+        try {
+            Segment segment = Segment.create(file, segmentCapacity);
+            segments.add(segment);
+            log.info("Created hit segment {}", segment);
+            return segment;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private record IpKey(long high, long low) {
+    }
+
+    private record VisitorKey(long bucket, int appId, int uriId, long visitor) {
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.statsserver.storage.columnar;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only string dictionary persisted as a sequence of UTF records; the id of a value is its
+ * position in the file.
+ */
+final class Dictionary implements Closeable {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final DataOutputStream out;
+
+    Dictionary(Path file) throws IOException {
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                while (true) {
+                    String value = in.readUTF();
+                    ids.put(value, values.size());
+                    values.add(value);
+                }
+            } catch (EOFException ignored) {
+                // end of dictionary
+            }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    int intern(String value) {
+        Integer id = ids.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            try {
+                out.writeUTF(value);
+                out.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            int next = values.size();
+            values.add(value);
+            ids.put(value, next);
+            return next;
+        }
+    }
+
+    Integer find(String value) {
+        return ids.get(value);
+    }
+
+    synchronized String get(int id) {
+        return values.get(id);
+    }
+
+    synchronized int size() {
+        return values.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.statsserver.storage.columnar;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Packs an ip address into two longs holding its 16-byte IPv6 form, IPv4 addresses being
+ * IPv4-mapped.
+ */
+final class IpCodec {
+
+    private IpCodec() {
+    }
+
+    static long[] encode(InetAddress ip) {
+        byte[] bytes = ip.getAddress();
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        if (bytes.length == 4) {
+            buffer.putLong(0L).putInt(0xFFFF).put(bytes);
+        } else {
+            buffer.put(bytes);
+        }
+        return new long[]{buffer.getLong(0), buffer.getLong(8)};
+    }
+}
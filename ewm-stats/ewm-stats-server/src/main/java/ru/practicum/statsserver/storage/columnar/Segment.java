@@ -0,0 +1,186 @@
+package ru.practicum.statsserver.storage.columnar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fixed-capacity memory-mapped segment of hits stored column by column.
+ *
+ * <p>Layout: a 64-byte header (magic, capacity, row count, base/min/max epoch seconds) followed by
+ * the app id, uri id, ip high/low word and timestamp delta columns, each sized for the full capacity.
+ * Timestamps are stored as seconds relative to the first row of the segment.</p>
+ */
+final class Segment implements Closeable {
+
+    static final int BYTES_PER_ROW = 4 + 4 + 8 + 8 + 4;
+
+    private static final int MAGIC = 0x45574D43;
+    private static final int HEADER = 64;
+    private static final int CAPACITY_OFFSET = 4;
+    private static final int COUNT_OFFSET = 8;
+    private static final int BASE_OFFSET = 16;
+    private static final int MIN_OFFSET = 24;
+    private static final int MAX_OFFSET = 32;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final IntBuffer appIds;
+    private final IntBuffer uriIds;
+    private final LongBuffer ipHigh;
+    private final LongBuffer ipLow;
+    private final IntBuffer timeDeltas;
+
+    private volatile int rowCount;
+    private volatile long minEpoch;
+    private volatile long maxEpoch;
+    private long baseEpoch;
+
+    private Segment(Path file, MappedByteBuffer buffer, int capacity) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        int offset = HEADER;
+        appIds = column(offset, capacity * 4).asIntBuffer();
+        offset += capacity * 4;
+        uriIds = column(offset, capacity * 4).asIntBuffer();
+        offset += capacity * 4;
+        ipHigh = column(offset, capacity * 8).asLongBuffer();
+        offset += capacity * 8;
+        ipLow = column(offset, capacity * 8).asLongBuffer();
+        offset += capacity * 8;
+        timeDeltas = column(offset, capacity * 4).asIntBuffer();
+    }
+
+    static Segment create(Path file, int capacity) throws IOException {
+        Segment segment = new Segment(file, map(file, HEADER + (long) capacity * BYTES_PER_ROW), capacity);
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(CAPACITY_OFFSET, capacity);
+        segment.buffer.putInt(COUNT_OFFSET, 0);
+        segment.minEpoch = Long.MAX_VALUE;
+        segment.maxEpoch = Long.MIN_VALUE;
+        return segment;
+    }
+
+    static Segment open(Path file) throws IOException {
+        MappedByteBuffer buffer = map(file, Files.size(file));
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a hit segment: " + file);
+        }
+        Segment segment = new Segment(file, buffer, buffer.getInt(CAPACITY_OFFSET));
+        segment.rowCount = buffer.getInt(COUNT_OFFSET);
+        segment.baseEpoch = buffer.getLong(BASE_OFFSET);
+        segment.minEpoch = segment.rowCount == 0 ? Long.MAX_VALUE : buffer.getLong(MIN_OFFSET);
+        segment.maxEpoch = segment.rowCount == 0 ? Long.MIN_VALUE : buffer.getLong(MAX_OFFSET);
+        return segment;
+    }
+
+    /**
+     * Returns whether a row with the given timestamp still fits: the segment has room and the
+     * timestamp is representable as an int delta from the segment base.
+     */
+    boolean accepts(long epochSecond) {
+        if (rowCount >= capacity) {
+            return false;
+        }
+        if (rowCount == 0) {
+            return true;
+        }
+        long delta = epochSecond - baseEpoch;
+        return delta >= Integer.MIN_VALUE && delta <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Appends a row; callers serialize appends, readers only see rows below the published count.
+     */
+    int append(int appId, int uriId, long ipHi, long ipLo, long epochSecond) {
+        int row = rowCount;
+        if (row == 0) {
+            baseEpoch = epochSecond;
+            buffer.putLong(BASE_OFFSET, epochSecond);
+        }
+        appIds.put(row, appId);
+        uriIds.put(row, uriId);
+        ipHigh.put(row, ipHi);
+        ipLow.put(row, ipLo);
+        timeDeltas.put(row, (int) (epochSecond - baseEpoch));
+
+        if (epochSecond < minEpoch) {
+            minEpoch = epochSecond;
+            buffer.putLong(MIN_OFFSET, epochSecond);
+        }
+        if (epochSecond > maxEpoch) {
+            maxEpoch = epochSecond;
+            buffer.putLong(MAX_OFFSET, epochSecond);
+        }
+        buffer.putInt(COUNT_OFFSET, row + 1);
+        rowCount = row + 1;
+        return row;
+    }
+
+    boolean overlaps(long fromEpoch, long toEpoch) {
+        return rowCount > 0 && minEpoch <= toEpoch && maxEpoch >= fromEpoch;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    long baseEpoch() {
+        return baseEpoch;
+    }
+
+    IntBuffer appIds() {
+        return appIds;
+    }
+
+    IntBuffer uriIds() {
+        return uriIds;
+    }
+
+    LongBuffer ipHigh() {
+        return ipHigh;
+    }
+
+    LongBuffer ipLow() {
+        return ipLow;
+    }
+
+    IntBuffer timeDeltas() {
+        return timeDeltas;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() {
+        force();
+    }
+
+    @Override
+    public String toString() {
+        return file.getFileName().toString();
+    }
+
+    private ByteBuffer column(int offset, int length) {
+        return buffer.slice(offset, length).order(ByteOrder.nativeOrder());
+    }
+
+    private static MappedByteBuffer map(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package ru.practicum.statsserver.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+/**
+ * Parses ip literals without ever falling back to a DNS lookup. IPv4-mapped IPv6 addresses are
+ * normalized to plain IPv4 so both spellings count as the same visitor.
+ */
+public final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    public static InetAddress parse(String value) {
+        String ip = value.trim();
+        try {
+            if (ip.indexOf(':') >= 0) {
+                // a bracketed host is only ever parsed as an IPv6 literal
+                return InetAddress.getByName("[" + ip + "]");
+            }
+            byte[] bytes = parseIpv4(ip);
+            if (bytes != null) {
+                return InetAddress.getByAddress(bytes);
+            }
+        } catch (UnknownHostException ex) {
+            // fall through to the common error
+        }
+        throw new IllegalArgumentException("Invalid ip address: " + value);
+    }
+
+    /**
+     * A long standing for the ip when counting distinct visitors: the address itself for IPv4 and a
+     * hash with the sign bit set for IPv6, so the two kinds never collide.
+     */
+    public static long visitorKey(InetAddress ip) {
+        ByteBuffer bytes = ByteBuffer.wrap(ip.getAddress());
+        return bytes.remaining() == 4
+                ? bytes.getInt() & 0xFFFFFFFFL
+                : visitorKey(bytes.getLong(), bytes.getLong());
+    }
+
+    /**
+     * {@link #visitorKey(InetAddress)} of an address given as the two halves of its IPv6 form.
+     */
+    public static long visitorKey(long high, long low) {
+        if (high == 0 && low >>> 32 == 0xFFFF) {
+            return low & 0xFFFFFFFFL;
+        }
+        return mix(high ^ mix(low)) | Long.MIN_VALUE;
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        return value ^ value >>> 33;
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        String[] parts = ip.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3 || !part.chars().allMatch(Character::isDigit)) {
+                return null;
+            }
+            int octet = Integer.parseInt(part);
+            if (octet > 255) {
+                return null;
+            }
+            bytes[i] = (byte) octet;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,12 @@
+-- Schema exactly as Hibernate schema update created it before migrations existed; such databases
+-- are baselined at this version instead of running it, so everything added since belongs in later
+-- versions. V3__PartitionHits turns this hits table into the partitioned, dictionary-encoded one.
+
+CREATE TABLE hits (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    timestamp TIMESTAMP(6) NOT NULL,
+    ip        VARCHAR(50)  NOT NULL,
+    app       VARCHAR(100) NOT NULL,
+    uri       VARCHAR(200) NOT NULL,
+    PRIMARY KEY (id)
+);
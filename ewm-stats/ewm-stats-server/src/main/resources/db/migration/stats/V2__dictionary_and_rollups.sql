@@ -0,0 +1,28 @@
+-- Dictionaries the hits reference by id, and daily rollups of expired partitions. Databases left by
+-- schema update of the versions in between may already have them; a string-keyed hit_rollups is
+-- encoded by V3__PartitionHits.
+
+CREATE TABLE IF NOT EXISTS apps (
+    id   INTEGER GENERATED BY DEFAULT AS IDENTITY,
+    name VARCHAR(100) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_app_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS uris (
+    id   INTEGER GENERATED BY DEFAULT AS IDENTITY,
+    path VARCHAR(200) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_uri_path UNIQUE (path)
+);
+
+CREATE TABLE IF NOT EXISTS hit_rollups (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    app_id     INTEGER NOT NULL,
+    uri_id     INTEGER NOT NULL,
+    day        DATE    NOT NULL,
+    hits       BIGINT  NOT NULL,
+    unique_ips BIGINT  NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_hit_rollup UNIQUE (app_id, uri_id, day)
+);
@@ -0,0 +1,92 @@
+package ru.practicum.statsserver;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.web.client.RestClient;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.ViewStats;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Starts the stats server on a database the first release left behind: hits in the plain,
+ * string-keyed table Hibernate schema update created, and no migration history.
+ */
+class LegacySchemaUpgradeTest {
+
+    @TempDir
+    private static Path directory;
+
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext server;
+    private static RestClient client;
+
+    @BeforeAll
+    static void startOnLegacyDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("legacy/schema.sql"));
+        }
+        server = new SpringApplicationBuilder(StatsServerApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--stats.ingest.log-directory=" + directory.resolve("ingest"));
+        int port = ((ServletWebServerApplicationContext) server).getWebServer().getPort();
+        client = RestClient.create("http://localhost:" + port);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        if (server != null) {
+            server.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void legacyHitsAreConvertedAndCounted() {
+        JdbcTemplate jdbc = new JdbcTemplate(postgres.getPostgresDatabase());
+        assertEquals(List.of("1", "2", "3"), jdbc.queryForList(
+                "SELECT version FROM flyway_schema_history WHERE success ORDER BY installed_rank", String.class));
+        assertEquals("p", jdbc.queryForObject("SELECT relkind FROM pg_class WHERE relname = 'hits'", String.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM hits_default", Integer.class));
+
+        client.post().uri("/hit")
+                .body(new EndpointHit(null, "ewm-main-service", "/events/2", "10.0.0.3", "2024-05-01 12:00:00", null))
+                .retrieve()
+                .toBodilessEntity();
+
+        assertEquals(Map.of("/events/1", 3L, "/events/2", 2L), stats(false));
+        assertEquals(Map.of("/events/1", 2L, "/events/2", 2L), stats(true));
+    }
+
+    private static Map<String, Long> stats(boolean unique) {
+        List<ViewStats> stats = client.get()
+                .uri("/stats?start={start}&end={end}&uris=/events/1&uris=/events/2&unique={unique}",
+                        "2024-05-01 00:00:00", "2024-05-02 00:00:00", unique)
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {});
+        return stats.stream().collect(Collectors.toMap(ViewStats::getUri, ViewStats::getHits));
+    }
+}
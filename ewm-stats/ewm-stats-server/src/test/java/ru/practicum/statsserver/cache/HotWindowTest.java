@@ -0,0 +1,186 @@
+package ru.practicum.statsserver.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.env.MockEnvironment;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.StorageProperties;
+import ru.practicum.statsserver.storage.columnar.ColumnarHitStore;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+class HotWindowTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 20, 30);
+    private static final List<String> URIS = List.of("/events/1", "/events/2", "/events/3");
+
+    @TempDir
+    private Path directory;
+
+    // started three hours ago, so only the last three of the stored six hours are in memory
+    private final MutableClock clock = new MutableClock(NOW.minusHours(3));
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final HotWindowProperties properties = new HotWindowProperties();
+    private ColumnarHitStore store;
+    private HotWindow hot;
+    private StatsCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StorageProperties storage = new StorageProperties();
+        storage.getColumnar().setDirectory(directory);
+        store = new ColumnarHitStore(storage);
+        properties.setWindow(Duration.ofHours(4));
+        properties.setSlot(Duration.ofMinutes(1));
+        hot = new HotWindow(properties, registry, clock);
+        StatsCacheProperties cacheProperties = new StatsCacheProperties();
+        cacheProperties.setBucket(Duration.ofMinutes(10));
+        cache = new StatsCache(store, hot, cacheProperties, registry, clock);
+        clock.advance(Duration.ofHours(3));
+
+        Random random = new Random(5);
+        for (int i = 0; i < 3000; i++) {
+            LocalDateTime timestamp = NOW.minusSeconds(random.nextInt(6 * 3600));
+            save(URIS.get(random.nextInt(URIS.size())), "10.0.0." + random.nextInt(40), timestamp);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void windowsAcrossTheCoverageMatchTheStore() {
+        assertEquals(NOW.minusHours(3).plusSeconds(30).toEpochSecond(ZoneOffset.UTC), hot.coveredSince());
+        assertMatchesStore(new Random(13));
+    }
+
+    @Test
+    void recentWindowIsServedFromMemory() {
+        LocalDateTime start = NOW.minusHours(2).plusSeconds(17);
+        assertEquals(counts(store.getStats(start, NOW, URIS, true)), counts(cache.getStats(start, NOW, URIS, true)));
+        assertEquals(counts(store.getStats(start, NOW, null, false)), counts(cache.getStats(start, NOW, null, false)));
+
+        assertEquals(1.0, registry.counter("stats.cache.requests", "result", "hit").count());
+        assertEquals(0.0, registry.counter("stats.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void currentBucketIsAlwaysUpToDate() {
+        LocalDateTime start = NOW.minusHours(1);
+        Map<String, Long> before = counts(cache.getStats(start, NOW, URIS, false));
+        save("/events/1", "10.9.9.9", NOW);
+
+        Map<String, Long> after = counts(cache.getStats(start, NOW, URIS, false));
+        assertEquals(before.get("/events/1") + 1, after.get("/events/1"));
+    }
+
+    @Test
+    void windowShrinksToMaxHits() {
+        properties.setMaxHits(500);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        hot = new HotWindow(properties, registry, clock);
+        cache = new StatsCache(store, hot, new StatsCacheProperties(), registry, clock);
+        Random random = new Random(7);
+        for (int i = 0; i < 1500; i++) {
+            save(URIS.get(random.nextInt(URIS.size())), "10.0.1." + random.nextInt(40),
+                    NOW.plusSeconds(random.nextInt(3600)));
+        }
+        clock.advance(Duration.ofHours(1));
+
+        hot.evict();
+        assertTrue(hot.coveredSince() > NOW.plusMinutes(30).toEpochSecond(ZoneOffset.UTC));
+        assertTrue(registry.get("stats.hot_window.hits").gauge().value() <= 600);
+        LocalDateTime start = NOW.minusMinutes(30);
+        for (boolean unique : new boolean[]{false, true}) {
+            assertEquals(counts(store.getStats(start, NOW.plusHours(1), URIS, unique)),
+                    counts(cache.getStats(start, NOW.plusHours(1), URIS, unique)));
+        }
+    }
+
+    @Test
+    void readTheWindowMovedPastFallsBackToTheStore() {
+        long start = NOW.minusHours(3).plusSeconds(30).toEpochSecond(ZoneOffset.UTC);
+        assertTrue(hot.getVisitorHits(start - 60, start + 60, URIS, 60).isEmpty());
+        assertTrue(hot.getVisitorHits(start, start + 60, URIS, 60).isPresent());
+
+        // coverage moves on between the cache asking for it and reading the window
+        AtomicBoolean moved = new AtomicBoolean();
+        HotWindow moving = spy(hot);
+        doAnswer(call -> moved.get() ? call.callRealMethod() : start - 3600).when(moving).coveredSince();
+        doAnswer(call -> {
+            moved.set(true);
+            return call.callRealMethod();
+        }).when(moving).getVisitorHits(anyLong(), anyLong(), any(), anyLong());
+        LocalDateTime from = NOW.minusHours(4);
+        for (List<String> uris : Arrays.asList(URIS, null)) {
+            for (boolean unique : new boolean[]{false, true}) {
+                cache = new StatsCache(store, moving, new StatsCacheProperties(), new SimpleMeterRegistry(), clock);
+                moved.set(false);
+                assertEquals(counts(store.getStats(from, NOW, uris, unique)),
+                        counts(cache.getStats(from, NOW, uris, unique)));
+            }
+        }
+    }
+
+    @Test
+    void reactiveProfileRunsWithoutTheWindow() {
+        MockEnvironment environment = new MockEnvironment();
+        environment.setActiveProfiles("reactive");
+        HotWindow reactive = new HotWindow(properties, new SimpleMeterRegistry(), environment);
+        reactive.record(List.of(new HitRecord("ewm-main-service", "/events/1", IpAddresses.parse("10.0.0.1"),
+                LocalDateTime.now())));
+
+        assertEquals(Long.MAX_VALUE, reactive.coveredSince());
+        assertTrue(new HotWindow(properties, new SimpleMeterRegistry(), new MockEnvironment()).coveredSince()
+                < Long.MAX_VALUE);
+    }
+
+    private void assertMatchesStore(Random random) {
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = NOW.minusSeconds(random.nextInt(7 * 3600));
+            LocalDateTime end = random.nextBoolean() ? NOW : start.plusSeconds(random.nextInt(3 * 3600));
+            List<String> uris = random.nextInt(4) == 0 ? null : URIS.subList(0, 1 + random.nextInt(URIS.size()));
+            for (boolean unique : new boolean[]{false, true}) {
+                assertEquals(counts(store.getStats(start, end, uris, unique)),
+                        counts(cache.getStats(start, end, uris, unique)),
+                        () -> start + " - " + end + " " + uris + " " + unique);
+            }
+        }
+    }
+
+    private void save(String uri, String ip, LocalDateTime timestamp) {
+        HitRecord hit = new HitRecord("ewm-main-service", uri, IpAddresses.parse(ip), timestamp);
+        store.save(hit);
+        cache.record(List.of(hit));
+    }
+
+    private static Map<String, Long> counts(List<ViewStats> stats) {
+        Map<String, Long> counts = new HashMap<>();
+        stats.forEach(stat -> counts.put(stat.getUri(), stat.getHits()));
+        return counts;
+    }
+}
@@ -0,0 +1,176 @@
+package ru.practicum.statsserver.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.statsdto.ViewChanges;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.HitStore;
+import ru.practicum.statsserver.storage.StorageProperties;
+import ru.practicum.statsserver.storage.columnar.ColumnarHitStore;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+class StatsCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 20, 30);
+    private static final List<String> URIS = List.of("/events/1", "/events/2", "/events/3");
+
+    @TempDir
+    private Path directory;
+
+    private final MutableClock clock = new MutableClock(NOW);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private ColumnarHitStore store;
+    private StatsCache cache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StorageProperties storage = new StorageProperties();
+        storage.getColumnar().setDirectory(directory);
+        store = new ColumnarHitStore(storage);
+        cache = new StatsCache(store, new HotWindow(disabledHotWindow(), registry, clock), properties(), registry, clock);
+
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            LocalDateTime timestamp = NOW.minusSeconds(random.nextInt(6 * 3600));
+            save(URIS.get(random.nextInt(URIS.size())), "10.0.0." + random.nextInt(40), timestamp);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void windowsMatchTheStoreExactly() {
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = NOW.minusSeconds(random.nextInt(7 * 3600));
+            LocalDateTime end = random.nextBoolean() ? NOW : start.plusSeconds(random.nextInt(3 * 3600));
+            List<String> uris = URIS.subList(0, 1 + random.nextInt(URIS.size()));
+            for (boolean unique : new boolean[]{false, true}) {
+                assertEquals(counts(store.getStats(start, end, uris, unique)),
+                        counts(cache.getStats(start, end, uris, unique)),
+                        () -> start + " - " + end + " " + uris + " " + unique);
+            }
+        }
+    }
+
+    @Test
+    void repeatedWindowIsServedFromCache() {
+        LocalDateTime start = NOW.minusHours(5).plusSeconds(7);
+        cache.getStats(start, NOW, URIS, true);
+        clock.advance(Duration.ofSeconds(1));
+
+        List<ViewStats> repeated = cache.getStats(start, NOW.plusSeconds(1), URIS, true);
+        assertEquals(counts(store.getStats(start, NOW.plusSeconds(1), URIS, true)), counts(repeated));
+        assertEquals(1.0, registry.counter("stats.cache.requests", "result", "hit").count());
+        assertEquals(1.0, registry.counter("stats.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void longWindowIsCountedByTheStore() {
+        HitStore spied = spy(store);
+        StatsCache longWindows = new StatsCache(spied, new HotWindow(disabledHotWindow(), registry, clock),
+                properties(), registry, clock);
+
+        List<ViewStats> stats = longWindows.getStats(ViewChanges.COUNTED_SINCE, NOW, URIS, true);
+        assertEquals(counts(store.getStats(ViewChanges.COUNTED_SINCE, NOW, URIS, true)), counts(stats));
+        verify(spied).getStats(ViewChanges.COUNTED_SINCE, NOW, URIS, true);
+        verify(spied, never()).getVisitorHits(any(), any(), any(), any());
+        assertEquals(1.0, registry.counter("stats.cache.requests", "result", "bypass").count());
+    }
+
+    @Test
+    void cachedBucketsStayWithinMaxBytes() {
+        LocalDateTime start = NOW.minusHours(5);
+        cache.getStats(start, NOW, List.of(URIS.get(0)), true);
+        double oneUri = registry.get("stats.cache.bytes").gauge().value();
+
+        // room for two of the three uris
+        StatsCacheProperties properties = properties();
+        properties.setMaxBytes((long) (oneUri * 2.5));
+        MeterRegistry limited = new SimpleMeterRegistry();
+        cache = new StatsCache(store, new HotWindow(disabledHotWindow(), limited, clock), properties, limited, clock);
+        for (String uri : URIS) {
+            assertEquals(counts(store.getStats(start, NOW, List.of(uri), true)),
+                    counts(cache.getStats(start, NOW, List.of(uri), true)));
+            assertTrue(limited.get("stats.cache.bytes").gauge().value() <= properties.getMaxBytes());
+        }
+
+        // the first uri was dropped to make room and is loaded again, the last one is still cached
+        cache.getStats(start, NOW, List.of(URIS.get(0)), true);
+        assertEquals(4.0, limited.counter("stats.cache.requests", "result", "miss").count());
+        cache.getStats(start, NOW, List.of(URIS.get(2)), true);
+        assertEquals(1.0, limited.counter("stats.cache.requests", "result", "hit").count());
+    }
+
+    @Test
+    void lateHitDropsItsClosedBucket() {
+        LocalDateTime start = NOW.minusHours(3);
+        cache.getStats(start, NOW, URIS, false);
+
+        cache.record(List.of(save("/events/2", "10.9.9.9", NOW.minusHours(2))));
+        assertEquals(counts(store.getStats(start, NOW, URIS, false)), counts(cache.getStats(start, NOW, URIS, false)));
+    }
+
+    @Test
+    void currentBucketIsReusedBriefly() {
+        LocalDateTime start = NOW.minusHours(1);
+        Map<String, Long> before = counts(cache.getStats(start, NOW, URIS, false));
+        HitRecord hit = save("/events/1", "10.9.9.9", NOW);
+        cache.record(List.of(hit));
+
+        clock.advance(Duration.ofSeconds(1));
+        assertEquals(before, counts(cache.getStats(start, NOW.plusSeconds(1), URIS, false)));
+
+        clock.advance(Duration.ofSeconds(3));
+        Map<String, Long> after = counts(cache.getStats(start, NOW.plusSeconds(4), URIS, false));
+        assertEquals(before.get("/events/1") + 1, after.get("/events/1"));
+    }
+
+    private static StatsCacheProperties properties() {
+        StatsCacheProperties properties = new StatsCacheProperties();
+        properties.setBucket(Duration.ofMinutes(10));
+        properties.setOpenBucketTtl(Duration.ofSeconds(2));
+        return properties;
+    }
+
+    private static HotWindowProperties disabledHotWindow() {
+        HotWindowProperties hot = new HotWindowProperties();
+        hot.setEnabled(false);
+        return hot;
+    }
+
+    private HitRecord save(String uri, String ip, LocalDateTime timestamp) {
+        HitRecord hit = new HitRecord("ewm-main-service", uri, IpAddresses.parse(ip), timestamp);
+        store.save(hit);
+        return hit;
+    }
+
+    private static Map<String, Long> counts(List<ViewStats> stats) {
+        Map<String, Long> counts = new HashMap<>();
+        stats.forEach(stat -> counts.put(stat.getUri(), stat.getHits()));
+        return counts;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.statsserver.feed;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewChangeLogTest {
+
+    @Test
+    void pagesThroughLatestChangesOncePerUri() {
+        ViewChangeLog log = new ViewChangeLog(properties(100));
+        log.record(List.of("/events/1", "/events/2", "/events/3"));
+        log.record(List.of("/events/1"));
+
+        ViewChangeLog.Page first = log.changes(0, 2);
+        assertEquals(List.of("/events/2", "/events/3"), first.uris());
+        assertTrue(first.more());
+
+        ViewChangeLog.Page second = log.changes(first.cursor(), 2);
+        assertEquals(List.of("/events/1"), second.uris());
+        assertFalse(second.more());
+        assertEquals(log.head(), second.cursor());
+        assertTrue(log.changes(second.cursor(), 2).uris().isEmpty());
+    }
+
+    @Test
+    void losesPositionsOlderThanCapacity() {
+        ViewChangeLog log = new ViewChangeLog(properties(2));
+        log.record(List.of("/events/1", "/events/2", "/events/3"));
+
+        assertNull(log.changes(0, 10));
+        assertEquals(List.of("/events/2", "/events/3"), log.changes(1, 10).uris());
+        assertNull(log.changes(log.head() + 1, 10));
+    }
+
+    private FeedProperties properties(int capacity) {
+        FeedProperties properties = new FeedProperties();
+        properties.setCapacity(capacity);
+        return properties;
+    }
+}
@@ -0,0 +1,170 @@
+package ru.practicum.statsserver.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsserver.service.StatsServiceImpl;
+import ru.practicum.statsserver.storage.HitRecord;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitFilterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0, 0);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void repeatsWithinTheWindowAreDropped() {
+        HitFilter filter = filter(properties(), List.of());
+
+        assertTrue(accepts(filter, hit("ewm-main-service", "/events/1", "10.0.0.1", NOW)));
+        assertFalse(accepts(filter, hit("ewm-main-service", "/events/1", "10.0.0.1", NOW.plusSeconds(5))));
+        assertTrue(accepts(filter, hit("ewm-main-service", "/events/2", "10.0.0.1", NOW.plusSeconds(5))));
+        assertTrue(accepts(filter, hit("ewm-admin", "/events/1", "10.0.0.1", NOW.plusSeconds(5))));
+        assertTrue(accepts(filter, hit("ewm-main-service", "/events/1", "10.0.0.2", NOW.plusSeconds(5))));
+        // the next window still sees the previous one
+        assertFalse(accepts(filter, hit("ewm-main-service", "/events/1", "10.0.0.1", NOW.plusSeconds(35))));
+        assertTrue(accepts(filter, hit("ewm-main-service", "/events/1", "10.0.0.1", NOW.plusSeconds(95))));
+        // older than the two windows kept
+        assertTrue(accepts(filter, hit("ewm-main-service", "/events/2", "10.0.0.1", NOW.plusSeconds(5))));
+
+        assertEquals(2.0, dropped("duplicate"));
+    }
+
+    @Test
+    void hitsAreOnlyRememberedOnceStored() {
+        HitFilter filter = filter(properties(), List.of());
+        EndpointHit hit = hit("ewm-main-service", "/events/1", "10.0.0.1", NOW);
+
+        // the first attempt failed to store, so its retry is not a duplicate
+        assertTrue(filter.accepts(hit, StatsServiceImpl.toRecord(hit)));
+        assertTrue(accepts(filter, hit));
+        assertFalse(accepts(filter, hit));
+    }
+
+    @Test
+    void batchesDropRepeatsWithinThemselves() {
+        HitFilter filter = filter(properties(), List.of());
+        HitFilter.Batch batch = filter.batch();
+        List<EndpointHit> hits = List.of(
+                hit("ewm-main-service", "/events/1", "10.0.0.1", NOW),
+                hit("ewm-main-service", "/events/1", "10.0.0.1", NOW.plusSeconds(35)),
+                hit("ewm-main-service", "/events/2", "10.0.0.1", NOW),
+                hit("ewm-main-service", "/events/1", "10.0.0.1", NOW.plusSeconds(95)));
+
+        List<HitRecord> accepted = hits.stream()
+                .map(hit -> batch.accepts(hit, StatsServiceImpl.toRecord(hit)) ? StatsServiceImpl.toRecord(hit) : null)
+                .toList();
+        assertEquals(1, accepted.stream().filter(Objects::isNull).count());
+        assertEquals(1.0, dropped("duplicate"));
+
+        filter.stored(accepted.stream().filter(Objects::nonNull).toList());
+        assertFalse(accepts(filter, hits.get(3)));
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        HitFilterProperties properties = properties();
+        properties.setExpectedHits(20_000);
+        properties.setFalsePositiveRate(0.01);
+        HitFilter filter = filter(properties, List.of());
+
+        for (int i = 0; i < 20_000; i++) {
+            accepts(filter, hit("ewm-main-service", "/events/" + i % 500, "10." + i / 500 + ".0.1", NOW));
+        }
+        assertTrue(dropped("duplicate") < 400, () -> dropped("duplicate") + " of 20000 distinct hits dropped");
+    }
+
+    @Test
+    void rulesDropCrawlersAndBlockedRanges() {
+        HitFilterProperties properties = properties();
+        properties.setBlockedUserAgents(List.of("bot\\b", "crawler"));
+        properties.setBlockedIps(List.of("66.249.64.0/19", "2001:db8::/32", "10.9.9.9"));
+        HitRule admin = new HitRule() {
+            @Override
+            public String name() {
+                return "admin";
+            }
+
+            @Override
+            public boolean matches(EndpointHit hit) {
+                return hit.getApp().equals("ewm-admin");
+            }
+        };
+        HitFilter filter = filter(properties, List.of(admin));
+
+        assertFalse(accepts(filter, agent("Mozilla/5.0 (compatible; Googlebot/2.1)", "10.0.0.1")));
+        assertFalse(accepts(filter, agent("Some-Crawler/1.0", "10.0.0.2")));
+        assertTrue(accepts(filter, agent("Mozilla/5.0 (X11; Linux x86_64)", "10.0.0.3")));
+        assertTrue(accepts(filter, agent(null, "10.0.0.4")));
+        assertFalse(accepts(filter, agent(null, "66.249.70.1")));
+        assertTrue(accepts(filter, agent(null, "66.249.96.1")));
+        assertFalse(accepts(filter, agent(null, "2001:db8:1::5")));
+        assertFalse(accepts(filter, agent(null, "::ffff:10.9.9.9")));
+        assertFalse(accepts(filter, hit("ewm-admin", "/events/1", "10.0.0.5", NOW)));
+
+        assertEquals(2.0, dropped("user-agent"));
+        assertEquals(3.0, dropped("ip"));
+        assertEquals(1.0, dropped("admin"));
+    }
+
+    @Test
+    void disabledFilterKeepsEverything() {
+        HitFilterProperties properties = properties();
+        properties.setEnabled(false);
+        properties.setBlockedIps(List.of("10.0.0.0/8"));
+        HitFilter filter = filter(properties, List.of());
+
+        assertTrue(accepts(filter, hit("ewm-main-service", "/events/1", "10.0.0.1", NOW)));
+        assertTrue(accepts(filter, hit("ewm-main-service", "/events/1", "10.0.0.1", NOW)));
+    }
+
+    private HitFilter filter(HitFilterProperties properties, List<HitRule> rules) {
+        return new HitFilter(properties, rules, registry);
+    }
+
+    private double dropped(String reason) {
+        return registry.counter("stats.filter.dropped", "reason", reason).count();
+    }
+
+    private static HitFilterProperties properties() {
+        HitFilterProperties properties = new HitFilterProperties();
+        properties.setEnabled(true);
+        properties.setDuplicateWindow(Duration.ofSeconds(30));
+        properties.setExpectedHits(1000);
+        return properties;
+    }
+
+    private static boolean accepts(HitFilter filter, EndpointHit hit) {
+        HitRecord record = StatsServiceImpl.toRecord(hit);
+        if (!filter.accepts(hit, record)) {
+            return false;
+        }
+        filter.stored(List.of(record));
+        return true;
+    }
+
+    private static EndpointHit agent(String userAgent, String ip) {
+        EndpointHit hit = hit("ewm-main-service", "/events/1", ip, NOW);
+        hit.setUserAgent(userAgent);
+        return hit;
+    }
+
+    private static EndpointHit hit(String app, String uri, String ip, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app(app)
+                .uri(uri)
+                .ip(ip)
+                .timestamp(StatsServiceImpl.FORMATTER.format(timestamp))
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package ru.practicum.statsserver.ingest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import ru.practicum.statsserver.cache.StatsCache;
+import ru.practicum.statsserver.feed.ViewChangeLog;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.HitStore;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class BufferedHitIngestorTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void failingStoreRefusesHitsAndLetsShutdownFinish() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        HitStore store = mock(HitStore.class);
+        doAnswer(invocation -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("database is down");
+        }).when(store).saveAll(anyList());
+        IngestProperties properties = new IngestProperties();
+        properties.setLogDirectory(directory);
+        properties.setFsync(FsyncPolicy.NEVER);
+        properties.setBufferCapacity(2);
+        properties.setBatchSize(1);
+        properties.setBufferTimeout(Duration.ofMillis(100));
+        BufferedHitIngestor ingestor = new BufferedHitIngestor(store, null, null, properties, new SimpleMeterRegistry());
+
+        // one hit is taken by the writer, two wait in the buffer
+        ingestor.ingest(hit("/events/1"));
+        while (attempts.get() == 0) {
+            Thread.sleep(10);
+        }
+        ingestor.ingest(hit("/events/2"));
+        ingestor.ingest(hit("/events/3"));
+        assertThrows(BufferFullException.class, () -> ingestor.ingest(hit("/events/4")));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), ingestor::shutdown);
+
+        // nothing was checkpointed, every accepted hit is replayed on the next start
+        HitLog log = new HitLog(directory, properties.getLogSegmentSize(), FsyncPolicy.NEVER);
+        assertEquals(3, log.pending().size());
+        log.close();
+    }
+
+    @Test
+    void replaysLeftoverHitsWithoutHoldingUpStartup() throws Exception {
+        HitLog previous = new HitLog(directory, 1 << 20, FsyncPolicy.NEVER);
+        previous.append(hit("/events/1"));
+        previous.append(hit("/events/2"));
+        previous.close();
+        HitStore store = mock(HitStore.class);
+        doThrow(new IllegalStateException("database is down")).when(store).saveAll(anyList());
+
+        BufferedHitIngestor ingestor = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> new BufferedHitIngestor(store, null, null, properties(2, 2), new SimpleMeterRegistry()));
+        verify(store, timeout(5000).atLeastOnce()).saveAll(anyList());
+        assertTimeoutPreemptively(Duration.ofSeconds(5), ingestor::shutdown);
+
+        HitLog log = new HitLog(directory, 1 << 20, FsyncPolicy.NEVER);
+        assertEquals(2, log.pending().size());
+        log.close();
+    }
+
+    @Test
+    void hitsTheStoreRejectsAreDeadLettered() throws Exception {
+        List<HitRecord> saved = new CopyOnWriteArrayList<>();
+        HitStore store = mock(HitStore.class);
+        doAnswer(invocation -> {
+            List<HitRecord> hits = invocation.getArgument(0);
+            if (hits.stream().anyMatch(hit -> hit.uri().startsWith("/bad"))) {
+                throw new DataIntegrityViolationException("value too long");
+            }
+            saved.addAll(hits);
+            return null;
+        }).when(store).saveAll(anyList());
+        BufferedHitIngestor ingestor = new BufferedHitIngestor(store, mock(ViewChangeLog.class), mock(StatsCache.class),
+                properties(16, 8), new SimpleMeterRegistry());
+
+        ingestor.ingestAll(List.of(hit("/events/1"), hit("/bad/1"), hit("/events/2"), hit("/events/3"),
+                hit("/events/4"), hit("/events/5"), hit("/bad/2"), hit("/events/6")));
+        ingestor.ingest(hit("/events/7"));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (saved.size() < 7) {
+                Thread.sleep(10);
+            }
+        });
+        ingestor.shutdown();
+        assertEquals(List.of("/events/1", "/events/2", "/events/3", "/events/4", "/events/5", "/events/6",
+                "/events/7"), saved.stream().map(HitRecord::uri).toList());
+        List<String> deadLetters = Files.readAllLines(directory.resolve("dead-letter.log"));
+        assertEquals(2, deadLetters.size());
+        assertTrue(deadLetters.get(0).contains("/bad/1") && deadLetters.get(0).endsWith("value too long"));
+        assertTrue(deadLetters.get(1).contains("/bad/2"));
+
+        HitLog log = new HitLog(directory, 1 << 20, FsyncPolicy.NEVER);
+        assertEquals(0, log.pending().size());
+        log.close();
+    }
+
+    @Test
+    void batchLongerThanTheBufferIsTakenInChunks() throws Exception {
+        List<HitRecord> saved = new CopyOnWriteArrayList<>();
+        HitStore store = mock(HitStore.class);
+        doAnswer(invocation -> saved.addAll(invocation.getArgument(0))).when(store).saveAll(anyList());
+        BufferedHitIngestor ingestor = new BufferedHitIngestor(store, mock(ViewChangeLog.class), mock(StatsCache.class),
+                properties(4, 100), new SimpleMeterRegistry());
+
+        List<HitRecord> hits = IntStream.rangeClosed(1, 10).mapToObj(i -> hit("/events/" + i)).toList();
+        ingestor.ingestAll(hits);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (saved.size() < hits.size()) {
+                Thread.sleep(10);
+            }
+        });
+        ingestor.shutdown();
+        assertEquals(hits, saved);
+    }
+
+    private IngestProperties properties(int bufferCapacity, int batchSize) {
+        IngestProperties properties = new IngestProperties();
+        properties.setLogDirectory(directory);
+        properties.setFsync(FsyncPolicy.NEVER);
+        properties.setBufferCapacity(bufferCapacity);
+        properties.setBatchSize(batchSize);
+        properties.setBufferTimeout(Duration.ofMillis(500));
+        return properties;
+    }
+
+    private static HitRecord hit(String uri) {
+        return new HitRecord("ewm-main-service", uri, IpAddresses.parse("10.0.0.1"), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.statsserver.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HitLogTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_000_000);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void replaysHitsPastTheCheckpoint() throws Exception {
+        HitLog log = new HitLog(directory, 64, FsyncPolicy.NEVER);
+        for (int i = 1; i <= 5; i++) {
+            log.append(hit("/events/" + i));
+        }
+        log.checkpoint(3);
+        log.close();
+
+        HitLog reopened = new HitLog(directory, 64, FsyncPolicy.NEVER);
+        List<LoggedHit> pending = reopened.pending();
+        assertEquals(List.of(4L, 5L), pending.stream().map(LoggedHit::sequence).toList());
+        assertEquals(hit("/events/4"), pending.get(0).hit());
+        assertEquals(6L, reopened.append(hit("/events/6")).sequence());
+
+        reopened.checkpoint(6);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(f -> f.toString().endsWith(".wal")).count());
+        }
+        reopened.close();
+    }
+
+    @Test
+    void stopsAtTornTail() throws Exception {
+        HitLog log = new HitLog(directory, 1 << 20, FsyncPolicy.ALWAYS);
+        log.append(hit("/events/1"));
+        log.append(hit("/events/2"));
+        log.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(f -> f.toString().endsWith(".wal")).findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 3));
+
+        HitLog reopened = new HitLog(directory, 1 << 20, FsyncPolicy.NEVER);
+        assertEquals(1, reopened.pending().size());
+        reopened.close();
+    }
+
+    @Test
+    void appendsAfterATornSegmentAreReplayed() throws Exception {
+        // one record per segment, so the torn one is the segment the log reopens
+        HitLog log = new HitLog(directory, 1, FsyncPolicy.ALWAYS);
+        log.append(hit("/events/1"));
+        log.append(hit("/events/2"));
+        log.close();
+
+        Path torn = directory.resolve(String.format("%020d.wal", 2));
+        byte[] bytes = Files.readAllBytes(torn);
+        Files.write(torn, Arrays.copyOf(bytes, bytes.length - 3));
+
+        HitLog reopened = new HitLog(directory, 1 << 20, FsyncPolicy.ALWAYS);
+        assertEquals(2L, reopened.append(hit("/events/3")).sequence());
+        reopened.close();
+
+        HitLog replayed = new HitLog(directory, 1 << 20, FsyncPolicy.NEVER);
+        assertEquals(List.of("/events/1", "/events/3"),
+                replayed.pending().stream().map(hit -> hit.hit().uri()).toList());
+        replayed.close();
+    }
+
+    private HitRecord hit(String uri) {
+        return new HitRecord("ewm-main-service", uri, IpAddresses.parse("10.0.0.1"), NOW);
+    }
+}
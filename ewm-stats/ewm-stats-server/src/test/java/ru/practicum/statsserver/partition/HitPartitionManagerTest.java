@@ -0,0 +1,122 @@
+package ru.practicum.statsserver.partition;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.client.RestClient;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.StatsServerApplication;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the partition maintenance of a stats server keeping one month of raw hits on an embedded
+ * database: old hits that landed in the default partition get a partition of their own, which is
+ * then expired into daily rollups that reads still count.
+ */
+class HitPartitionManagerTest {
+
+    private static final String START = "2024-05-01 00:00:00";
+    private static final String END = "2024-05-03 00:00:00";
+
+    @TempDir
+    private static Path directory;
+
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext server;
+    private static RestClient client;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        jdbc = new JdbcTemplate(postgres.getPostgresDatabase());
+        server = new SpringApplicationBuilder(StatsServerApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--stats.partitioning.retention=1",
+                        "--stats.partitioning.retention-mode=ROLLUP",
+                        "--stats.ingest.log-directory=" + directory.resolve("ingest"));
+        int port = ((ServletWebServerApplicationContext) server).getWebServer().getPort();
+        client = RestClient.create("http://localhost:" + port);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        if (server != null) {
+            server.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void oldHitsAreMovedOutOfTheDefaultPartitionAndRolledUp() {
+        hit("10.0.0.1", "2024-05-01 10:00:00");
+        hit("10.0.0.1", "2024-05-01 11:00:00");
+        hit("10.0.0.1", "2024-05-02 10:00:00");
+        hit("10.0.0.2", "2024-05-02 11:00:00");
+        assertEquals(4, jdbc.queryForObject("SELECT COUNT(*) FROM hits_default", Integer.class));
+
+        server.getBean(HitPartitionManager.class).run(null);
+
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM hits_default", Integer.class));
+        assertFalse(jdbc.queryForObject("SELECT to_regclass('hits_p20240501') IS NOT NULL", Boolean.class));
+        assertEquals(List.of(
+                Map.of("day", Date.valueOf(LocalDate.of(2024, 5, 1)), "hits", 2L, "unique_ips", 1L),
+                Map.of("day", Date.valueOf(LocalDate.of(2024, 5, 2)), "hits", 2L, "unique_ips", 2L)),
+                jdbc.queryForList("SELECT day, hits, unique_ips FROM hit_rollups ORDER BY day"));
+
+        // whole days of plain counts are exact
+        ViewStats hits = stats(START, END, false);
+        assertEquals(4L, hits.getHits());
+        assertNull(hits.getApproximate());
+
+        // the visitor of both days is counted twice
+        ViewStats unique = stats(START, END, true);
+        assertEquals(3L, unique.getHits());
+        assertTrue(unique.getApproximate());
+
+        // the hit before 10:30 still counts, its day is only kept whole
+        ViewStats partial = stats("2024-05-01 10:30:00", END, false);
+        assertEquals(4L, partial.getHits());
+        assertTrue(partial.getApproximate());
+    }
+
+    private static void hit(String ip, String timestamp) {
+        client.post().uri("/hit")
+                .body(new EndpointHit(null, "ewm-main-service", "/events/1", ip, timestamp, null))
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    private static ViewStats stats(String start, String end, boolean unique) {
+        List<ViewStats> stats = client.get()
+                .uri("/stats?start={start}&end={end}&uris=/events/1&unique={unique}", start, end, unique)
+                .retrieve()
+                .body(new ParameterizedTypeReference<>() {});
+        assertEquals(1, stats.size());
+        return stats.get(0);
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.statsserver.partition;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Migrates hits layouts left by schema update of versions between the first release and the
+ * migrations, each on a fresh embedded database.
+ */
+class PartitionHitsMigrationTest {
+
+    private EmbeddedPostgres postgres;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        jdbc = new JdbcTemplate(postgres.getPostgresDatabase());
+    }
+
+    @AfterEach
+    void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    void encodedTableOwningItsIdentityIsMovedOver() {
+        jdbc.execute("CREATE TABLE apps (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "name VARCHAR(100) NOT NULL CONSTRAINT uq_app_name UNIQUE)");
+        jdbc.execute("CREATE TABLE uris (id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "path VARCHAR(200) NOT NULL CONSTRAINT uq_uri_path UNIQUE)");
+        jdbc.execute("CREATE TABLE hits (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "app_id INTEGER NOT NULL, uri_id INTEGER NOT NULL, ip INET NOT NULL, " +
+                "\"timestamp\" TIMESTAMP(6) NOT NULL)");
+        jdbc.update("INSERT INTO apps (name) VALUES ('ewm-main-service')");
+        jdbc.update("INSERT INTO uris (path) VALUES ('/events/1')");
+        jdbc.update("INSERT INTO hits (app_id, uri_id, ip, \"timestamp\") VALUES " +
+                "(1, 1, '10.0.0.1', '2024-05-01 10:00:00'), (1, 1, '10.0.0.2', '2024-05-01 11:00:00')");
+
+        migrate(postgres.getPostgresDatabase());
+
+        assertPartitioned();
+        assertEquals(List.of(1L, 2L), jdbc.queryForList("SELECT id FROM hits ORDER BY id", Long.class));
+        assertEquals("NO", jdbc.queryForObject("SELECT is_identity FROM information_schema.columns " +
+                "WHERE table_name = 'hits' AND column_name = 'id'", String.class));
+        // the sequence the identity owned now numbers the partitioned table
+        assertEquals(3L, jdbc.queryForObject("INSERT INTO hits (app_id, uri_id, ip, \"timestamp\") " +
+                "VALUES (1, 1, '10.0.0.3', '2024-05-02 10:00:00') RETURNING id", Long.class));
+    }
+
+    @Test
+    void stringKeyedPartitionsAndRollupsAreEncoded() {
+        jdbc.execute("CREATE TABLE hits (id BIGINT NOT NULL, app VARCHAR(100) NOT NULL, uri VARCHAR(200) NOT NULL, " +
+                "ip VARCHAR(50) NOT NULL, \"timestamp\" TIMESTAMP NOT NULL, PRIMARY KEY (id, \"timestamp\")) " +
+                "PARTITION BY RANGE (\"timestamp\")");
+        jdbc.execute("CREATE TABLE hits_p20240501 PARTITION OF hits FOR VALUES FROM ('2024-05-01') TO ('2024-06-01')");
+        jdbc.execute("CREATE TABLE hits_default PARTITION OF hits DEFAULT");
+        jdbc.update("INSERT INTO hits VALUES " +
+                "(1, 'ewm-main-service', '/events/1', '10.0.0.1', '2024-05-01 10:00:00'), " +
+                "(2, 'ewm-main-service', '/events/1', '::ffff:10.0.0.2', '2024-05-01 11:00:00'), " +
+                "(3, 'ewm-main-service', '/events/2', 'unknown', '2024-07-01 10:00:00')");
+        jdbc.execute("CREATE TABLE hit_rollups (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "app VARCHAR(100) NOT NULL, uri VARCHAR(200) NOT NULL, day DATE NOT NULL, " +
+                "hits BIGINT NOT NULL, unique_ips BIGINT NOT NULL, CONSTRAINT uq_hit_rollup UNIQUE (app, uri, day))");
+        jdbc.update("INSERT INTO hit_rollups (app, uri, day, hits, unique_ips) " +
+                "VALUES ('ewm-main-service', '/events/3', '2024-04-01', 5, 2)");
+
+        migrate(postgres.getPostgresDatabase());
+
+        assertPartitioned();
+        assertFalse(exists("hits_p20240501_legacy"));
+        assertFalse(exists("hits_default_legacy"));
+        List<Map<String, Object>> rows = jdbc.queryForList("SELECT h.id, u.path, host(h.ip) AS ip FROM hits h " +
+                "JOIN uris u ON u.id = h.uri_id ORDER BY h.id");
+        assertEquals(List.of(
+                Map.of("id", 1L, "path", "/events/1", "ip", "10.0.0.1"),
+                Map.of("id", 2L, "path", "/events/1", "ip", "10.0.0.2"),
+                Map.of("id", 3L, "path", "/events/2", "ip", "0.0.0.0")), rows);
+        assertEquals(Map.of("path", "/events/3", "hits", 5L, "unique_ips", 2L), jdbc.queryForMap(
+                "SELECT u.path, r.hits, r.unique_ips FROM hit_rollups r JOIN uris u ON u.id = r.uri_id"));
+    }
+
+    private void assertPartitioned() {
+        assertEquals("p", jdbc.queryForObject("SELECT relkind FROM pg_class WHERE relname = 'hits'", String.class));
+        assertTrue(exists("hits_default"));
+        assertFalse(exists("hits_legacy"));
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private static void migrate(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/stats")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+}
@@ -0,0 +1,221 @@
+package ru.practicum.statsserver.reactive;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import ru.practicum.statsclient.ReactiveStatsClient;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.ViewChanges;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.StatsServerApplication;
+import ru.practicum.statsserver.cache.HotWindow;
+import ru.practicum.statsserver.partition.HitPartitionManager;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A stats server on the reactive profile over an embedded database keeping one month of raw hits,
+ * written and read through {@link ReactiveStatsClient} and plain requests.
+ */
+class ReactiveStatsTest {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @TempDir
+    private static Path directory;
+
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext server;
+    private static WebClient web;
+    private static ReactiveStatsClient client;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        jdbc = new JdbcTemplate(postgres.getPostgresDatabase());
+        server = new SpringApplicationBuilder(StatsServerApplication.class)
+                .profiles("reactive")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--stats.partitioning.retention=1",
+                        "--stats.partitioning.retention-mode=ROLLUP",
+                        "--stats.ingest.log-directory=" + directory.resolve("ingest"));
+        int port = ((ReactiveWebServerApplicationContext) server).getWebServer().getPort();
+        web = WebClient.create("http://localhost:" + port);
+        client = new ReactiveStatsClient(web);
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        if (server != null) {
+            server.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void hitsAreCounted() {
+        LocalDateTime day = LocalDateTime.now().minusDays(1).withNano(0);
+        for (int view = 0; view < 5; view++) {
+            client.hit(hit("/events/1", "10.0.0." + view % 2, day.plusSeconds(view))).block();
+        }
+        client.hit(hit("/events/2", "10.0.0.1", day)).block();
+
+        assertEquals(Map.of("/events/1", 5L, "/events/2", 1L), counts(client.getStats(day, day.plusHours(1), null, false)
+                .block()));
+        List<ViewStats> unique = client.getStats(day, day.plusHours(1), List.of("/events/1"), true).block();
+        assertEquals(Map.of("/events/1", 2L), counts(unique));
+        assertNull(unique.get(0).getApproximate());
+    }
+
+    @Test
+    void longUriListsArePostedInChunks() {
+        LocalDateTime day = LocalDateTime.now().minusDays(2).withNano(0);
+        List<String> uris = new ArrayList<>();
+        Map<String, Long> expected = new HashMap<>();
+        for (int event = 10; event < 20; event++) {
+            String uri = "/events/" + event;
+            uris.add(uri);
+            for (int view = 0; view < event % 3 + 1; view++) {
+                client.hit(hit(uri, "10.0.1." + view, day)).block();
+            }
+            expected.put(uri, (long) (event % 3 + 1));
+        }
+        uris.add("/events/10");
+
+        ReactiveStatsClient chunked = new ReactiveStatsClient(List.of(web), 2, 3);
+        assertEquals(expected, counts(chunked.getStats(day, day.plusHours(1), uris, true).block()));
+    }
+
+    @Test
+    void batchIsStoredWholeOrNotAtAll() {
+        LocalDateTime day = LocalDateTime.now().minusDays(3).withNano(0);
+        List<EndpointHit> batch = new ArrayList<>();
+        for (int view = 0; view < 3; view++) {
+            batch.add(hit("/events/30", "10.0.2." + view, day.plusSeconds(view)));
+        }
+        // longer than the uris column, fails after the first hits would have been written one by one
+        batch.add(hit("/events/" + "3".repeat(200), "10.0.2.9", day));
+
+        assertThrows(WebClientResponseException.InternalServerError.class, () -> postBatch(batch));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM hits WHERE \"timestamp\" >= ? AND \"timestamp\" < ?",
+                Integer.class, day, day.plusHours(1)));
+
+        postBatch(batch.subList(0, 3));
+        assertEquals(Map.of("/events/30", 3L), counts(client.getStats(day, day.plusHours(1), null, false).block()));
+    }
+
+    @Test
+    void changefeedListsUrisOfNewHits() {
+        ViewChanges head = client.getChanges(0, null, null, 10).block();
+        assertTrue(head.getStats().isEmpty());
+
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        postBatch(List.of(hit("/events/40", "10.0.3.1", now), hit("/events/40", "10.0.3.1", now),
+                hit("/events/41", "10.0.3.2", now)));
+
+        ViewChanges changes = client.getChanges(0, head.getEpoch(), head.getCursor(), 10).block();
+        assertEquals(head.getEpoch(), changes.getEpoch());
+        assertFalse(changes.isReset());
+        assertEquals(Map.of("/events/40", 1L, "/events/41", 1L), counts(changes.getStats()));
+
+        ViewChanges reset = client.getChanges(0, "other", head.getCursor(), 10).block();
+        assertTrue(reset.isReset());
+        assertEquals(changes.getCursor(), reset.getCursor());
+    }
+
+    @Test
+    void rolledUpDaysAreCounted() {
+        LocalDateTime day = LocalDateTime.of(2024, 5, 1, 10, 0);
+        client.hit(hit("/events/50", "10.0.4.1", day)).block();
+        client.hit(hit("/events/50", "10.0.4.1", day.plusHours(1))).block();
+        client.hit(hit("/events/50", "10.0.4.1", day.plusDays(1))).block();
+        client.hit(hit("/events/50", "10.0.4.2", day.plusDays(1).plusHours(1))).block();
+
+        server.getBean(HitPartitionManager.class).run(null);
+
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM hits_default", Integer.class));
+        LocalDateTime start = day.toLocalDate().atStartOfDay();
+        ViewStats hits = client.getStats(start, start.plusDays(2), List.of("/events/50"), false).block().get(0);
+        assertEquals(4L, hits.getHits());
+        assertNull(hits.getApproximate());
+
+        ViewStats unique = client.getStats(start, start.plusDays(2), List.of("/events/50"), true).block().get(0);
+        assertEquals(3L, unique.getHits());
+        assertTrue(unique.getApproximate());
+
+        ViewStats partial = client.getStats(day.plusMinutes(30), start.plusDays(2), List.of("/events/50"), false)
+                .block().get(0);
+        assertEquals(4L, partial.getHits());
+        assertTrue(partial.getApproximate());
+    }
+
+    @Test
+    void invalidRequestsAreRejected() {
+        WebClientResponseException.BadRequest reversed = assertThrows(WebClientResponseException.BadRequest.class,
+                () -> web.get()
+                        .uri("/stats?start={start}&end={end}", "2024-05-02 00:00:00", "2024-05-01 00:00:00")
+                        .retrieve()
+                        .toBodilessEntity()
+                        .block());
+        assertTrue(reversed.getResponseBodyAsString().contains("End must be after start"));
+
+        EndpointHit hit = hit("/events/60", "10.0.5.1", LocalDateTime.now());
+        hit.setApp(" ");
+        WebClientResponseException rejected = assertThrows(WebClientResponseException.class,
+                () -> client.hit(hit).block());
+        assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode());
+    }
+
+    @Test
+    void hotWindowIsOff() {
+        assertEquals(Long.MAX_VALUE, server.getBean(HotWindow.class).coveredSince());
+    }
+
+    private static void postBatch(List<EndpointHit> hits) {
+        web.post().uri("/hit/batch")
+                .bodyValue(hits)
+                .retrieve()
+                .toBodilessEntity()
+                .block();
+    }
+
+    private static EndpointHit hit(String uri, String ip, LocalDateTime timestamp) {
+        return new EndpointHit(null, "ewm-main-service", uri, ip, FORMATTER.format(timestamp), null);
+    }
+
+    private static Map<String, Long> counts(List<ViewStats> stats) {
+        Map<String, Long> counts = new HashMap<>();
+        for (ViewStats stat : stats) {
+            assertNull(counts.put(stat.getUri(), stat.getHits()));
+        }
+        return counts;
+    }
+}
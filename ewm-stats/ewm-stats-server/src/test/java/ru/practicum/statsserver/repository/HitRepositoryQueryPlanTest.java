@@ -0,0 +1,150 @@
+package ru.practicum.statsserver.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Plans every stats query against the migrated, partitioned hits table with sequential scans
+ * disabled; a partition still planned as a sequential scan has no index the query can use.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(HitRepositoryQueryPlanTest.Recording.class)
+class HitRepositoryQueryPlanTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    private HitRepository hitRepository;
+
+    @Autowired
+    private StatementRecorder recorder;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @Test
+    void statsQueriesUseIndexes() {
+        assertIndexed(() -> hitRepository.getStats(NOW.minusDays(1), NOW));
+        assertIndexed(() -> hitRepository.getStatsUnique(NOW.minusDays(1), NOW));
+        assertIndexed(() -> hitRepository.getStatsByUris(NOW.minusDays(1), NOW, List.of(1, 2)));
+        assertIndexed(() -> hitRepository.getStatsUniqueByUris(NOW.minusDays(1), NOW, List.of(1, 2)));
+    }
+
+    private void assertIndexed(Runnable query) {
+        recorder.statements.clear();
+        query.run();
+        assertFalse(recorder.statements.isEmpty(), "no statement executed");
+        for (QueryInfo statement : recorder.statements) {
+            String plan = explain(statement);
+            assertFalse(plan.contains("Seq Scan"), () -> statement.getQuery() + "\n" + plan);
+        }
+    }
+
+    private static String explain(QueryInfo statement) {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+            try (Statement settings = connection.createStatement()) {
+                settings.execute("SET enable_seqscan = off");
+            }
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.getQuery())) {
+                for (List<ParameterSetOperation> parameters : statement.getParametersList()) {
+                    for (ParameterSetOperation parameter : parameters) {
+                        parameter.getMethod().invoke(explain, parameter.getArgs());
+                    }
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException("Could not explain " + statement.getQuery(), ex);
+        }
+    }
+
+    static class StatementRecorder implements QueryExecutionListener {
+
+        private final List<QueryInfo> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            queryInfoList.stream()
+                    .filter(query -> query.getQuery().stripLeading().toLowerCase().startsWith("select"))
+                    .forEach(statements::add);
+        }
+    }
+
+    @TestConfiguration
+    static class Recording {
+
+        @Bean
+        StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+
+        @Bean
+        static BeanPostProcessor recordingDataSource(ObjectProvider<StatementRecorder> recorder) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource
+                            ? ProxyDataSourceBuilder.create(dataSource).listener(recorder.getObject()).build()
+                            : bean;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package ru.practicum.statsserver.shard;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import ru.practicum.statsclient.ReactiveStatsClient;
+import ru.practicum.statsclient.StatsClient;
+import ru.practicum.statsdto.EndpointHit;
+import ru.practicum.statsdto.UriShards;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.StatsServerApplication;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Three columnar stats servers started as shards of one data set, written and read through
+ * {@link StatsClient} and {@link ReactiveStatsClient}.
+ */
+class ShardedStatsTest {
+
+    private static final int SHARDS = 3;
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @TempDir
+    private static Path directory;
+
+    private static final List<ConfigurableApplicationContext> servers = new ArrayList<>();
+    private static final List<String> urls = new ArrayList<>();
+    private static final List<RestClient> shards = new ArrayList<>();
+    private static StatsClient client;
+
+    // app, uri -> hits and distinct ips, as the client should report them
+    private static final Map<List<String>, Long> hits = new HashMap<>();
+    private static final Map<List<String>, Set<String>> ips = new HashMap<>();
+
+    @BeforeAll
+    static void startShards() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            ConfigurableApplicationContext server = new SpringApplicationBuilder(StatsServerApplication.class)
+                    .profiles("columnar")
+                    .run("--server.port=0",
+                            "--stats.shard.index=" + shard,
+                            "--stats.shard.count=" + SHARDS,
+                            "--stats.storage.columnar.directory=" + directory.resolve("hits-" + shard),
+                            "--stats.ingest.log-directory=" + directory.resolve("ingest-" + shard));
+            servers.add(server);
+            int port = ((ServletWebServerApplicationContext) server).getWebServer().getPort();
+            urls.add("http://localhost:" + port);
+            shards.add(RestClient.create(urls.get(shard)));
+        }
+        client = new StatsClient(shards);
+
+        for (int event = 1; event <= 30; event++) {
+            for (int view = 0; view < event; view++) {
+                String app = view % 4 == 0 ? "ewm-admin" : "ewm-main-service";
+                String ip = "10.0." + (view % 7) + "." + event % 3;
+                EndpointHit hit = new EndpointHit(null, app, "/events/" + event, ip,
+                        FORMATTER.format(NOW.plusSeconds(view)), null);
+                client.hit(hit);
+                hits.merge(List.of(app, hit.getUri()), 1L, Long::sum);
+                ips.computeIfAbsent(List.of(app, hit.getUri()), key -> new HashSet<>()).add(ip);
+            }
+        }
+    }
+
+    @AfterAll
+    static void stopShards() {
+        if (client != null) {
+            client.close();
+        }
+        servers.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void gathersStatsOfAllShards() {
+        List<ViewStats> stats = client.getStats(NOW, NOW.plusHours(1), null, false);
+        assertEquals(hits, counts(stats));
+        for (int i = 1; i < stats.size(); i++) {
+            assertTrue(stats.get(i - 1).getHits() >= stats.get(i).getHits());
+        }
+    }
+
+    @Test
+    void uniqueCountsOfRequestedUrisAreExact() {
+        List<String> uris = List.of("/events/3", "/events/12", "/events/17", "/events/29", "/events/99");
+        Map<List<String>, Long> expected = ips.entrySet().stream()
+                .filter(entry -> uris.contains(entry.getKey().get(1)))
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> (long) entry.getValue().size()));
+
+        assertEquals(expected, counts(client.getStats(NOW, NOW.plusHours(1), uris, true)));
+    }
+
+    @Test
+    void longUriListsArePostedInParallelChunks() {
+        List<String> uris = new ArrayList<>();
+        for (int event = 40; event >= 1; event--) {
+            uris.add("/events/" + event);
+        }
+        uris.add("/events/7");
+        uris.add("/compilations/1");
+
+        try (StatsClient chunked = new StatsClient(shards, 2, 4)) {
+            assertEquals(hits, counts(chunked.getStats(NOW, NOW.plusHours(1), uris, false)));
+        }
+    }
+
+    @Test
+    void postedRangesCoverEveryId() {
+        Map<List<String>, Long> expected = ips.entrySet().stream()
+                .filter(entry -> UriShards.shardOf(entry.getKey().get(1), SHARDS) == 0)
+                .filter(entry -> {
+                    int event = Integer.parseInt(entry.getKey().get(1).substring("/events/".length()));
+                    return event >= 5 && event <= 20;
+                })
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> (long) entry.getValue().size()));
+        List<String> uris = new ArrayList<>();
+        for (int event = 5; event <= 20; event++) {
+            uris.add("/events/" + event);
+        }
+
+        try (StatsClient single = new StatsClient(List.of(shards.get(0)), 0, 100)) {
+            assertEquals(expected, counts(single.getStats(NOW, NOW.plusHours(1), uris, true)));
+        }
+    }
+
+    @Test
+    void everyShardKeepsOnlyItsOwnUris() {
+        Set<Integer> used = new HashSet<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            try (StatsClient single = new StatsClient(List.of(shards.get(shard)))) {
+                for (ViewStats stat : single.getStats(NOW, NOW.plusHours(1), null, false)) {
+                    assertEquals(shard, UriShards.shardOf(stat.getUri(), SHARDS), stat.getUri());
+                    used.add(shard);
+                }
+            }
+        }
+        assertEquals(SHARDS, used.size(), "uris should be spread over all shards");
+    }
+
+    @Test
+    void reactiveClientRoutesLikeTheBlockingOne() {
+        ReactiveStatsClient reactive = new ReactiveStatsClient(urls.stream().map(WebClient::create).toList(), 2, 4);
+        LocalDateTime day = NOW.plusDays(3);
+        Map<List<String>, Long> expected = new HashMap<>();
+        List<String> uris = new ArrayList<>();
+        for (int event = 300; event < 310; event++) {
+            EndpointHit hit = new EndpointHit(null, "ewm-main-service", "/events/" + event, "10.3.0.1",
+                    FORMATTER.format(day), null);
+            reactive.hit(hit).block();
+            expected.put(List.of("ewm-main-service", hit.getUri()), 1L);
+            uris.add(hit.getUri());
+        }
+
+        assertEquals(expected, counts(reactive.getStats(day, day.plusHours(1), null, false).block()));
+        assertEquals(expected, counts(reactive.getStats(day, day.plusHours(1), uris, true).block()));
+        List<String> earlier = hits.keySet().stream().map(key -> key.get(1)).distinct().toList();
+        assertEquals(hits, counts(reactive.getStats(NOW, NOW.plusHours(1), earlier, false).block()));
+    }
+
+    @Test
+    void shardRejectsHitOfAnotherShard() {
+        String uri = "/events/1";
+        int other = (UriShards.shardOf(uri, SHARDS) + 1) % SHARDS;
+        EndpointHit hit = new EndpointHit(null, "ewm-main-service", uri, "10.0.0.1", FORMATTER.format(NOW), null);
+
+        HttpClientErrorException rejected = assertThrows(HttpClientErrorException.class, () ->
+                shards.get(other).post().uri("/hit").body(hit).retrieve().toBodilessEntity());
+        assertEquals(MisdirectedHitException.STATUS, rejected.getStatusCode().value());
+        assertEquals(Map.of(List.of("ewm-admin", uri), 1L),
+                counts(client.getStats(NOW, NOW.plusHours(1), List.of(uri), false)));
+    }
+
+    @Test
+    void batchesAreSplitBetweenShards() {
+        LocalDateTime day = NOW.plusDays(1);
+        List<EndpointHit> batch = new ArrayList<>();
+        Map<List<String>, Long> expected = new HashMap<>();
+        for (int event = 100; event < 110; event++) {
+            for (int view = 0; view <= event % 3; view++) {
+                batch.add(new EndpointHit(null, "ewm-main-service", "/events/" + event, "10.1.0." + view,
+                        FORMATTER.format(day.plusSeconds(view)), null));
+                expected.merge(List.of("ewm-main-service", "/events/" + event), 1L, Long::sum);
+            }
+        }
+        assertEquals(List.of(), client.hitAll(batch));
+
+        assertEquals(expected, counts(client.getStats(day, day.plusHours(1), null, false)));
+        HttpClientErrorException rejected = assertThrows(HttpClientErrorException.class, () ->
+                shards.get(0).post().uri("/hit/batch").body(batch).retrieve().toBodilessEntity());
+        assertEquals(MisdirectedHitException.STATUS, rejected.getStatusCode().value());
+    }
+
+    @Test
+    void invalidHitFailsOnlyTheBatchOfItsShard() {
+        LocalDateTime day = NOW.plusDays(2);
+        List<EndpointHit> batch = new ArrayList<>();
+        for (int event = 200; event < 210; event++) {
+            batch.add(new EndpointHit(null, "ewm-main-service", "/events/" + event, "10.2.0.1",
+                    FORMATTER.format(day), null));
+        }
+        EndpointHit invalid = batch.get(0);
+        invalid.setTimestamp(null);
+        int shard = UriShards.shardOf(invalid.getUri(), SHARDS);
+
+        List<StatsClient.FailedBatch> failed = client.hitAll(batch);
+
+        assertEquals(1, failed.size());
+        HttpClientErrorException rejected = assertInstanceOf(HttpClientErrorException.class, failed.get(0).error());
+        assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode());
+        List<EndpointHit> ofShard = batch.stream()
+                .filter(hit -> UriShards.shardOf(hit.getUri(), SHARDS) == shard)
+                .toList();
+        assertEquals(ofShard, failed.get(0).hits());
+        Map<List<String>, Long> expected = batch.stream()
+                .filter(hit -> UriShards.shardOf(hit.getUri(), SHARDS) != shard)
+                .collect(Collectors.toMap(hit -> List.of("ewm-main-service", hit.getUri()), hit -> 1L));
+        assertEquals(expected, counts(client.getStats(day, day.plusHours(1), null, false)));
+    }
+
+    private static Map<List<String>, Long> counts(List<ViewStats> stats) {
+        Map<List<String>, Long> counts = new HashMap<>();
+        for (ViewStats stat : stats) {
+            assertNull(counts.put(List.of(stat.getApp(), stat.getUri()), stat.getHits()));
+        }
+        return counts;
+    }
+}
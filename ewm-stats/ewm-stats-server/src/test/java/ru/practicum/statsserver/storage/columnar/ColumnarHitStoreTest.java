@@ -0,0 +1,70 @@
+package ru.practicum.statsserver.storage.columnar;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.statsdto.ViewStats;
+import ru.practicum.statsserver.storage.HitRecord;
+import ru.practicum.statsserver.storage.StorageProperties;
+import ru.practicum.statsserver.util.IpAddresses;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarHitStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void countsHitsAndUniqueIpsAcrossSegments() throws Exception {
+        ColumnarHitStore store = new ColumnarHitStore(properties(2));
+        store.save(hit("/events/1", "10.0.0.1", NOW));
+        store.save(hit("/events/1", "10.0.0.1", NOW.plusMinutes(1)));
+        store.save(hit("/events/1", "::ffff:10.0.0.1", NOW.plusMinutes(2)));
+        store.save(hit("/events/1", "2001:db8::1", NOW.plusMinutes(3)));
+        store.save(hit("/events/2", "10.0.0.2", NOW.plusMinutes(4)));
+
+        List<ViewStats> all = store.getStats(NOW, NOW.plusHours(1), null, false);
+        assertEquals(2, all.size());
+        assertEquals("/events/1", all.get(0).getUri());
+        assertEquals(4L, all.get(0).getHits());
+
+        List<ViewStats> unique = store.getStats(NOW, NOW.plusHours(1), List.of("/events/1"), true);
+        assertEquals(1, unique.size());
+        assertEquals(2L, unique.get(0).getHits());
+        store.close();
+    }
+
+    @Test
+    void filtersByTimeAndSurvivesReopen() throws Exception {
+        ColumnarHitStore store = new ColumnarHitStore(properties(16));
+        store.save(hit("/events/1", "10.0.0.1", NOW.minusDays(1)));
+        store.save(hit("/events/1", "10.0.0.2", NOW));
+        store.close();
+
+        ColumnarHitStore reopened = new ColumnarHitStore(properties(16));
+        List<ViewStats> stats = reopened.getStats(NOW.minusHours(1), NOW, List.of("/events/1", "/events/9"), false);
+        assertEquals(1, stats.size());
+        assertEquals(1L, stats.get(0).getHits());
+        assertTrue(reopened.getStats(NOW.minusHours(1), NOW, List.of("/events/9"), false).isEmpty());
+        assertEquals(3L, reopened.save(hit("/events/1", "10.0.0.3", NOW)));
+        reopened.close();
+    }
+
+    private StorageProperties properties(int capacity) {
+        StorageProperties properties = new StorageProperties();
+        properties.getColumnar().setDirectory(directory);
+        properties.getColumnar().setSegmentCapacity(capacity);
+        return properties;
+    }
+
+    private HitRecord hit(String uri, String ip, LocalDateTime timestamp) {
+        return new HitRecord("ewm-main-service", uri, IpAddresses.parse(ip), timestamp);
+    }
+}
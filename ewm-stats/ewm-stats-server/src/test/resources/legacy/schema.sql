@@ -0,0 +1,16 @@
+-- Database of the first release: the schema Hibernate schema update created, and no migration history.
+
+create table hits (
+    id bigint generated by default as identity,
+    timestamp timestamp(6) not null,
+    ip varchar(50) not null,
+    app varchar(100) not null,
+    uri varchar(200) not null,
+    primary key (id)
+);
+
+insert into hits (timestamp, ip, app, uri) values
+    ('2024-05-01 10:00:00', '10.0.0.1', 'ewm-main-service', '/events/1'),
+    ('2024-05-01 10:05:00', '10.0.0.1', 'ewm-main-service', '/events/1'),
+    ('2024-05-01 11:00:00', '10.0.0.2', 'ewm-main-service', '/events/1'),
+    ('2024-05-01 11:30:00', '10.0.0.2', 'ewm-main-service', '/events/2');